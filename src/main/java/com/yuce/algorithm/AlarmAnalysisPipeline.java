@@ -0,0 +1,995 @@
+package com.yuce.algorithm;
+
+import com.yuce.common.GxDealTagDataPush;
+import com.yuce.config.PipelineProperties;
+import com.yuce.config.VideoProperties;
+import com.yuce.entity.AlarmPipelineState;
+import com.yuce.entity.AlarmProcessingContext;
+import com.yuce.entity.CheckAlarmResult;
+import com.yuce.entity.OriginalAlarmRecord;
+import com.yuce.service.impl.AlarmPipelineStateServiceImpl;
+import com.yuce.service.impl.CheckAlarmResultServiceImpl;
+import com.yuce.service.impl.CloudEyesDeviceServiceImpl;
+import com.yuce.service.impl.RoadCheckRecordServiceImpl;
+import com.yuce.util.DeadLetterSpool;
+import com.yuce.util.FlagTagUtil;
+import com.yuce.util.LatencyHistogram;
+import com.yuce.util.StagedPipeline;
+import com.yuce.util.WeightedFairScheduler;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * 告警分阶段处理链路：
+ *  notify → validate → connectivity → extract-frame → extract-window → road → detect → result → feature → collection → group
+ *  无需视频分析的告警（路径为空、非目标事件类型、命中预筛选规则）由fast阶段独立线程完成推送与通用算法处理，不与视频分析告警共用队列
+ *  各阶段独立线程池与有界队列，阶段间显式流转；detect阶段后非停驶、行人、抛洒物告警进入push阶段（误检点位推送）
+ *  开启路面检测并发模式时，配置范围内的事件类型由road-detect阶段同时发起路面检测与算法检测，两者结束后再合并判定
+ *  实时来源告警按时效调度：积压时视频分析各阶段新告警优先出队，超过时效的告警在访问视频前超时降级（未积压时照常分析）
+ *  validate阶段后经公平调度闸门（fair）进入视频分析：按厂商+路段加权公平放行，单个厂商或路段告警激增时不挤占其余告警
+ *  视频连接失败的告警经重试闸门（connectivity-retry）由定时器在退避时间后重新进入视频分析，等待期间不占用阶段线程；
+ *  kafka来源告警异步提交、处理结束时回调提交位移，等待重试期间不占用消费通道线程；数据库与JSONL来源仍同步等待处理结果
+ *  新增告警入库时写入初始阶段状态，各阶段完成后写入告警处理阶段状态（alarm_pipeline_state），已有状态且未结束的告警从首个未完成阶段续跑
+ */
+@Slf4j
+@Component
+public class AlarmAnalysisPipeline {
+
+    public static final String STAGE_NOTIFY = "notify"; //推送原始告警记录
+    public static final String STAGE_VALIDATE = "validate"; //路径、事件类型校验
+    public static final String STAGE_CONNECTIVITY = "connectivity"; //视频连通性&&元数据校验
+    public static final String STAGE_EXTRACT_FRAME = "extract-frame"; //视频抽帧
+    public static final String STAGE_EXTRACT_WINDOW = "extract-window"; //图片提框
+    public static final String STAGE_ROAD = "road"; //路面检测
+    public static final String STAGE_DETECT = "detect"; //停驶、行人、抛洒物算法检测
+    public static final String STAGE_ROAD_DETECT = "road-detect"; //路面检测与算法检测并发执行
+    public static final String STAGE_RESULT = "result"; //算法检测结果
+    public static final String STAGE_FEATURE = "feature"; //特征要素判定
+    public static final String STAGE_COLLECTION = "collection"; //告警集判定
+    public static final String STAGE_GROUP = "group"; //告警组判定
+    public static final String STAGE_PUSH = "push"; //误检点位推送
+    public static final String STAGE_FAST = "fast"; //无需视频分析告警的推送及通用算法处理
+    public static final String STAGE_SAVED = "saved"; //入库（仅记录初始阶段状态，非独立处理阶段）
+    public static final String STAGE_STALE = "stale"; //超时降级（仅记录失败阶段，非独立处理阶段）
+    public static final String STAGE_FAIR = "fair"; //视频分析前的公平调度闸门（非处理阶段，不占用线程）
+    public static final String STAGE_CONNECTIVITY_RETRY = "connectivity-retry"; //视频连接失败后的定时重试闸门（非处理阶段，不占用线程）
+
+    private static final List<String> EVENT_TYPE_LIST = Arrays.asList("停驶", "行人", "抛洒物");//接受事件类型列表
+
+    /**
+     * 阶段状态位：写入alarm_pipeline_state.stage_mask，取值固定，不可调整
+     */
+    public static final int STATE_DONE = 1 << 30; //处理结束（得到结果或降级为"无法判断"）
+    private static final Map<String, Integer> STAGE_BITS = new HashMap<>();
+    static {
+        STAGE_BITS.put(STAGE_NOTIFY, 1);
+        STAGE_BITS.put(STAGE_VALIDATE, 1 << 1);
+        STAGE_BITS.put(STAGE_CONNECTIVITY, 1 << 2);
+        STAGE_BITS.put(STAGE_EXTRACT_FRAME, 1 << 3);
+        STAGE_BITS.put(STAGE_EXTRACT_WINDOW, 1 << 4);
+        STAGE_BITS.put(STAGE_ROAD, 1 << 5);
+        STAGE_BITS.put(STAGE_DETECT, 1 << 6);
+        STAGE_BITS.put(STAGE_ROAD_DETECT, (1 << 5) | (1 << 6));
+        STAGE_BITS.put(STAGE_RESULT, 1 << 7);
+        STAGE_BITS.put(STAGE_FEATURE, 1 << 8);
+        STAGE_BITS.put(STAGE_COLLECTION, 1 << 9);
+        STAGE_BITS.put(STAGE_GROUP, 1 << 10);
+        STAGE_BITS.put(STAGE_PUSH, 1 << 11);
+        STAGE_BITS.put(STAGE_FAST, 1 | (1 << 1));
+    }
+    //续跑时按此顺序查找首个未完成阶段（notify不重复推送，push由detect阶段按事件类型流转）
+    private static final List<String> RESUME_ORDER = Arrays.asList(STAGE_VALIDATE, STAGE_CONNECTIVITY, STAGE_EXTRACT_FRAME, STAGE_EXTRACT_WINDOW,
+            STAGE_ROAD, STAGE_DETECT, STAGE_RESULT, STAGE_FEATURE, STAGE_COLLECTION, STAGE_GROUP);
+
+    @Autowired
+    private PipelineProperties pipelineProperties;
+
+    @Autowired
+    private VideoProperties videoProperties;
+
+    @Autowired
+    private RoadCheckRecordServiceImpl roadCheckRecordServiceImpl;
+
+    @Autowired
+    private CloudEyesDeviceServiceImpl cloudEyesDeviceServiceImpl;
+
+    @Autowired
+    private CheckAlarmResultServiceImpl checkAlarmResultServiceImpl;
+
+    @Autowired
+    private GeneralAlgorithm generalAlgorithm; //通用算法服务
+
+    @Autowired
+    private PreFilterAlgorithm preFilterAlgorithm;//预筛选规则服务
+
+    @Autowired
+    private ExtractFrameAlgorithm extractFrameAlgorithm;//抽帧算法服务
+
+    @Autowired
+    private ExtractWindowAlgorithm extractWindowAlgorithm;//提框算法服务
+
+    @Autowired
+    private PswAlgorithm pswAlgorithm;//抛洒物算法服务
+
+    @Autowired
+    private PersonAlgorithm personAlgorithm;//行人算法服务
+
+    @Autowired
+    private VehicleAlgorithm vehicleAlgorithm;//停驶算法服务
+
+    @Autowired
+    private CheckResultAlgorithm checkResultAlgorithm;
+
+    @Autowired
+    private FeatureElementAlgorithm featureElementAlgorithm;//特征要素填充服务
+
+    @Autowired
+    private AlarmCollectionAlgorithm alarmCollectionAlgorithm;//告警集填充服务
+
+    @Autowired
+    private CollectionGroupAlgorithm collectionGroupAlgorithm;//告警组填充服务
+
+    @Autowired
+    private RoadAlgorithm roadAlgorithm;//路面检测算法服务
+
+    @Autowired
+    private GxDealTagDataPush gxDealTagDataPush;
+
+    @Autowired
+    private DeadLetterSpool deadLetterSpool;//死信暂存服务
+
+    @Autowired
+    private AlarmPipelineStateServiceImpl alarmPipelineStateServiceImpl;//告警处理阶段状态服务
+
+    private StagedPipeline<AlarmJob> pipeline;
+
+    private ThreadPoolExecutor roadCheckExecutor; //并发模式下的路面检测线程池
+
+    private WeightedFairScheduler<AlarmJob> fairScheduler; //按厂商+路段的公平调度器，未开启时为null
+
+    private ScheduledThreadPoolExecutor retryTimer; //视频连接重试定时器
+
+    private final AtomicLong retryScheduled = new AtomicLong(); //累计安排重试次数
+    private final AtomicLong retryExhausted = new AtomicLong(); //重试次数用尽降级数量
+    private final AtomicInteger retryPending = new AtomicInteger(); //等待重试的告警数
+
+    private final LatencyHistogram alarmAgeMillis = new LatencyHistogram(); //实时告警进入视频分析时的告警时延（当前时间-告警时间）分布
+    private final AtomicLong staleCount = new AtomicLong(); //超时降级数量
+
+    /**
+     * 时效优先级：实时来源（按时效调度）先于其余来源；实时来源按告警时间新告警优先，
+     * 其余来源（历史回放、死信重放、续跑）按提交时间先进先出，在实时告警积压消化后执行
+     */
+    private static final Comparator<AlarmJob> FRESHEST_FIRST = Comparator.comparing(AlarmJob::isDeadlineAware).reversed()
+            .thenComparingLong(job -> job.isDeadlineAware() ? -job.getPriorityTime() : job.getPriorityTime());
+
+    /**
+     * 路面检测结论
+     */
+    private enum RoadVerdict {
+        OFF_ROAD, //物体在路面外（路面内无记录，路面外有记录）
+        ON_ROAD, //物体在路面内
+        UNKNOWN //路面检测异常，按路面内继续处理
+    }
+
+    /**
+     * 算法检测结果：失败时记录失败阶段及降级原因
+     */
+    @Data
+    private static class Detection {
+        private final String stage;
+        private final String failReason; //为null时检测成功
+    }
+
+    /**
+     * 单条告警在各阶段间流转的处理状态
+     */
+    @Data
+    public static class AlarmJob {
+        private final OriginalAlarmRecord record;
+        private final boolean spoolOnFailure; //降级为"无法判断"时是否记入死信暂存
+        private final boolean notify; //是否推送原始告警记录（fast阶段使用）
+        private final boolean deadlineAware; //是否按告警时效调度
+        private final long priorityTime; //出队优先级时间（毫秒）：实时来源为告警时间，越新越先执行；其余来源为提交时间，先提交先执行
+        private boolean success = true; //是否得到确定结果
+        private volatile String fairKey; //经公平调度放行时的调度key，处理结束后释放在途额度
+        private volatile int connectivityAttempts; //视频连接次数（含首次）
+    }
+
+    @PostConstruct
+    public void init() {
+        pipeline = new StagedPipeline<>("AlarmStage");
+        register(STAGE_NOTIFY, this::notifyStage);
+        register(STAGE_VALIDATE, this::validateStage);
+        register(STAGE_CONNECTIVITY, this::connectivityStage);
+        register(STAGE_EXTRACT_FRAME, this::extractFrameStage);
+        register(STAGE_EXTRACT_WINDOW, this::extractWindowStage);
+        register(STAGE_ROAD, this::roadStage);
+        register(STAGE_DETECT, this::detectStage);
+        register(STAGE_ROAD_DETECT, this::roadDetectStage);
+        register(STAGE_RESULT, this::resultStage);
+        register(STAGE_FEATURE, this::featureStage);
+        register(STAGE_COLLECTION, this::collectionStage);
+        register(STAGE_GROUP, this::groupStage);
+        register(STAGE_PUSH, this::pushStage);
+        register(STAGE_FAST, this::fastStage);
+
+        PipelineProperties.Fairness fairness = pipelineProperties.getFairness();
+        if (fairness.isEnabled()) {
+            fairScheduler = new WeightedFairScheduler<>("AlarmFair", fairness.getMaxInFlight(), this::fairWeightOf, this::fairMaxInFlightOf, FRESHEST_FIRST);
+            pipeline.gate(STAGE_FAIR, STAGE_CONNECTIVITY, (job, admit) -> {
+                String key = fairKeyOf(job.getRecord());
+                fairScheduler.submit(key, job, () -> {
+                    job.setFairKey(key);
+                    admit.run();
+                });
+            });
+        }
+
+        // 重试闸门：到期后重新经公平调度（如开启）进入connectivity阶段；下游队列满时仅阻塞定时器线程
+        AtomicInteger retryIndex = new AtomicInteger();
+        retryTimer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "AlarmStage-connectivity-retry-" + retryIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        retryTimer.setRemoveOnCancelPolicy(true);
+        pipeline.gate(STAGE_CONNECTIVITY_RETRY, fairScheduler != null ? STAGE_FAIR : STAGE_CONNECTIVITY,
+                (job, admit) -> retryTimer.schedule(() -> {
+                    retryPending.decrementAndGet();
+                    admit.run();
+                }, retryDelayMillis(), TimeUnit.MILLISECONDS));
+
+        PipelineProperties.RoadDetect roadDetect = pipelineProperties.getRoadDetect();
+        if (roadDetect.isConcurrent()) {
+            // 复用road阶段的线程数及队列容量；队列满时由road-detect阶段线程自行执行路面检测
+            PipelineProperties.Stage roadStage = pipelineProperties.stageOf(STAGE_ROAD);
+            AtomicInteger index = new AtomicInteger();
+            roadCheckExecutor = new ThreadPoolExecutor(roadStage.getThreads(), roadStage.getThreads(), 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(roadStage.getQueueCapacity()),
+                    r -> new Thread(r, "AlarmStage-road-async-" + index.getAndIncrement()),
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+            log.info("路面检测与算法检测并发模式已开启 | 适用事件类型:{}", roadDetect.getEventTypes());
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (fairScheduler != null) {
+            fairScheduler.shutdown();
+        }
+        retryTimer.shutdown(); // 已安排的重试到期后照常放行，由已关闭的阶段拒绝，等待方不会悬挂
+        pipeline.shutdown();
+        if (roadCheckExecutor != null) {
+            roadCheckExecutor.shutdown();
+        }
+    }
+
+    /**
+     * @desc 本次新增告警记录的处理链路：尚无任何派生结果及阶段状态，各阶段跳过存在性查询
+     * @param alarmRecord 已回填tblId的告警记录
+     * @param notify 是否推送原始告警记录
+     * @param spoolOnFailure 降级为"无法判断"时是否记入死信暂存
+     * @return 是否得到确定结果，因处理失败降级为"无法判断"时返回false
+     * @throws Exception 阶段执行中未捕获的异常
+     */
+    public boolean analyzeNew(OriginalAlarmRecord alarmRecord, boolean notify, boolean spoolOnFailure) throws Exception {
+        return analyzeNew(alarmRecord, notify, spoolOnFailure, false);
+    }
+
+    /**
+     * @desc 本次新增告警记录的处理链路，可按告警时效调度
+     * @param alarmRecord 已回填tblId的告警记录
+     * @param notify 是否推送原始告警记录
+     * @param spoolOnFailure 降级为"无法判断"时是否记入死信暂存
+     * @param deadlineAware 是否按告警时效调度（积压时新告警优先，超过时效超时降级）
+     * @return 是否得到确定结果，因处理失败降级为"无法判断"时返回false
+     * @throws Exception 阶段执行中未捕获的异常
+     */
+    public boolean analyzeNew(OriginalAlarmRecord alarmRecord, boolean notify, boolean spoolOnFailure, boolean deadlineAware) throws Exception {
+        return await(analyzeNewAsync(alarmRecord, notify, spoolOnFailure, deadlineAware));
+    }
+
+    /**
+     * @desc 本次新增告警记录的处理链路，提交后立即返回不等待处理结束（调用线程仅在起始阶段队列已满时阻塞）
+     * @param alarmRecord 已回填tblId的告警记录
+     * @param notify 是否推送原始告警记录
+     * @param spoolOnFailure 降级为"无法判断"时是否记入死信暂存
+     * @param deadlineAware 是否按告警时效调度（积压时新告警优先，超过时效超时降级）
+     * @return 处理结束时完成：是否得到确定结果；阶段执行中未捕获的异常时以异常完成
+     */
+    public CompletableFuture<Boolean> analyzeNewAsync(OriginalAlarmRecord alarmRecord, boolean notify, boolean spoolOnFailure, boolean deadlineAware) {
+        AlarmProcessingContext context = new AlarmProcessingContext();
+        context.markNewRecord();
+        return submit(alarmRecord, context, resumeStage(alarmRecord, 0, notify), notify, spoolOnFailure, deadlineAware);
+    }
+
+    /**
+     * @desc 执行告警处理链路并等待结束：按阶段状态从首个未完成阶段开始，已结束的告警不再处理；无阶段状态时完整执行
+     * @param alarmRecord 已回填tblId的告警记录
+     * @param notify 是否推送原始告警记录
+     * @param spoolOnFailure 降级为"无法判断"时是否记入死信暂存
+     * @return 是否得到确定结果，因处理失败降级为"无法判断"时返回false
+     * @throws Exception 阶段执行中未捕获的异常
+     */
+    public boolean analyze(OriginalAlarmRecord alarmRecord, boolean notify, boolean spoolOnFailure) throws Exception {
+        int stageMask = stageMaskOf(alarmRecord);
+        if ((stageMask & STATE_DONE) != 0) {
+            log.info("告警记录已处理结束，不再处理 | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", alarmRecord.getTblId(), alarmRecord.getId(), alarmRecord.getImagePath(), alarmRecord.getVideoPath());
+            return true;
+        }
+        return await(submit(alarmRecord, new AlarmProcessingContext(), resumeStage(alarmRecord, stageMask, notify), notify, spoolOnFailure, false));
+    }
+
+    /**
+     * @desc 新增告警记录写入初始阶段状态，入库后、完成首个阶段前中断的告警重新消费时可续跑
+     * @param alarmRecords 已回填tblId的新增告警记录
+     */
+    public void markSaved(List<OriginalAlarmRecord> alarmRecords) {
+        List<Long> tblIdList = alarmRecords.stream().map(OriginalAlarmRecord::getTblId).filter(Objects::nonNull).collect(Collectors.toList());
+        alarmPipelineStateServiceImpl.markSaved(tblIdList, STAGE_SAVED);
+    }
+
+    /**
+     * @desc 已存在告警记录中处理未结束的记录（一次IN查询阶段状态），查询失败时按无需续跑处理
+     * @param alarmRecords 已回填tblId的已存在告警记录
+     * @return 存在阶段状态且未结束的告警记录
+     */
+    public List<OriginalAlarmRecord> unfinished(List<OriginalAlarmRecord> alarmRecords) {
+        List<Long> tblIdList = alarmRecords.stream().map(OriginalAlarmRecord::getTblId).filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        List<OriginalAlarmRecord> result = new ArrayList<>();
+        if (tblIdList.isEmpty()) {
+            return result;
+        }
+        Map<Long, Integer> maskMap = new HashMap<>();
+        try {
+            for (AlarmPipelineState state : alarmPipelineStateServiceImpl.getStateList(tblIdList)) {
+                if (state.getStageMask() != null) {
+                    maskMap.put(state.getTblId(), state.getStageMask());
+                }
+            }
+        } catch (Exception e) {
+            log.warn("告警处理阶段状态批量查询失败，本批已存在记录不续跑 | 数量:{} | 异常:{}", tblIdList.size(), e.getMessage());
+            return result;
+        }
+        for (OriginalAlarmRecord alarmRecord : alarmRecords) {
+            Integer stageMask = maskMap.get(alarmRecord.getTblId());
+            if (stageMask != null && (stageMask & STATE_DONE) == 0) {
+                result.add(alarmRecord);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @desc 已入库告警记录续跑：仅存在阶段状态且未结束时（上次处理中断）从首个未完成阶段继续，无阶段状态的历史记录不处理；
+     *       入库后尚未完成任何阶段的告警按来源选项推送原始告警记录后完整处理
+     * @param alarmRecord 已回填tblId的告警记录
+     * @param notify 尚未完成任何阶段时是否推送原始告警记录
+     * @param spoolOnFailure 降级为"无法判断"时是否记入死信暂存
+     * @return 是否发起续跑
+     * @throws Exception 阶段执行中未捕获的异常
+     */
+    public boolean resume(OriginalAlarmRecord alarmRecord, boolean notify, boolean spoolOnFailure) throws Exception {
+        return await(resumeAsync(alarmRecord, notify, spoolOnFailure));
+    }
+
+    /**
+     * @desc 已入库告警记录续跑，提交后立即返回不等待处理结束（调用线程仅在起始阶段队列已满时阻塞）
+     * @param alarmRecord 已回填tblId的告警记录
+     * @param notify 尚未完成任何阶段时是否推送原始告警记录
+     * @param spoolOnFailure 降级为"无法判断"时是否记入死信暂存
+     * @return 处理结束时完成：是否发起续跑；阶段执行中未捕获的异常时以异常完成
+     */
+    public CompletableFuture<Boolean> resumeAsync(OriginalAlarmRecord alarmRecord, boolean notify, boolean spoolOnFailure) {
+        AlarmPipelineState state = alarmPipelineStateServiceImpl.getState(alarmRecord.getTblId());
+        if (state == null || state.getStageMask() == null || (state.getStageMask() & STATE_DONE) != 0) {
+            return CompletableFuture.completedFuture(false);
+        }
+        String stage = resumeStage(alarmRecord, state.getStageMask(), notify);
+        log.info("告警记录处理未结束，从未完成阶段续跑 | tblId:{} | alarmId:{} | 续跑阶段:{} | 上次失败阶段:{} | 上次失败原因:{}", alarmRecord.getTblId(), alarmRecord.getId(), stage, state.getLastErrorStage(), state.getLastError());
+        return submit(alarmRecord, new AlarmProcessingContext(), stage, notify, spoolOnFailure, false).thenApply(success -> true);
+    }
+
+    /**
+     * @desc 告警处理阶段状态，查询失败时按无状态处理
+     * @return 已完成阶段位掩码
+     */
+    private int stageMaskOf(OriginalAlarmRecord alarmRecord) {
+        try {
+            AlarmPipelineState state = alarmPipelineStateServiceImpl.getState(alarmRecord.getTblId());
+            return state == null || state.getStageMask() == null ? 0 : state.getStageMask();
+        } catch (Exception e) {
+            log.warn("告警处理阶段状态查询失败，按完整链路处理 | tblId:{} | alarmId:{} | 异常:{}", alarmRecord.getTblId(), alarmRecord.getId(), e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * @desc 按已完成阶段位掩码确定起始阶段
+     */
+    private String resumeStage(OriginalAlarmRecord alarmRecord, int stageMask, boolean notify) {
+        if (stageMask == 0) {
+            if (!requiresVideo(alarmRecord)) {
+                return STAGE_FAST;
+            }
+            return notify ? STAGE_NOTIFY : STAGE_VALIDATE;
+        }
+        for (String stage : RESUME_ORDER) {
+            if ((stageMask & STAGE_BITS.get(stage)) != 0) {
+                continue;
+            }
+            if (STAGE_RESULT.equals(stage) && !"行人".equals(alarmRecord.getEventType()) && !"停驶".equals(alarmRecord.getEventType())) {
+                return "抛洒物".equals(alarmRecord.getEventType()) ? STAGE_DETECT : STAGE_PUSH;
+            }
+            return stage;
+        }
+        return STAGE_VALIDATE;
+    }
+
+    /**
+     * @desc 提交告警处理链路，处理结束（或异常）时释放公平调度在途额度、关闭视频会话并清理处理上下文
+     * @return 处理结束时完成：是否得到确定结果
+     */
+    private CompletableFuture<Boolean> submit(OriginalAlarmRecord alarmRecord, AlarmProcessingContext context, String startStage, boolean notify, boolean spoolOnFailure, boolean deadlineAware) {
+        boolean freshness = deadlineAware && pipelineProperties.getFreshness().isEnabled() && alarmRecord.getAlarmTime() != null;
+        long priorityTime = freshness ? alarmRecord.getAlarmTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : System.currentTimeMillis();
+        AlarmJob job = new AlarmJob(alarmRecord, spoolOnFailure, notify, freshness, priorityTime);
+        alarmRecord.setProcessingContext(context);
+        return pipeline.submit(startStage, job).whenComplete((done, e) -> {
+            if (job.getFairKey() != null) {
+                fairScheduler.complete(job.getFairKey());
+            }
+            context.closeVideoSession();
+            alarmRecord.setProcessingContext(null);
+            log.debug("告警处理上下文统计 | tblId:{} | alarmId:{} | 数据库读取:{}次 | 缓存命中:{}次", alarmRecord.getTblId(), alarmRecord.getId(), context.getLoadCount(), context.getHitCount());
+        }).thenApply(done -> job.isSuccess());
+    }
+
+    /**
+     * @desc 等待处理结束，解包阶段执行中未捕获的异常
+     */
+    private static boolean await(CompletableFuture<Boolean> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+    }
+
+    /**
+     * @desc 公平调度状态：全局在途数及各厂商+路段的权重、在途上限、排队数、在途数、累计放行数、排队耗时分位数
+     * @return 未开启时返回null
+     */
+    public Map<String, Object> fairnessStats() {
+        return fairScheduler == null ? null : fairScheduler.stats();
+    }
+
+    private static String fairKeyOf(OriginalAlarmRecord alarmRecord) {
+        return alarmRecord.getCompany() + "|" + alarmRecord.getRoadId();
+    }
+
+    private int fairWeightOf(String key) {
+        PipelineProperties.FairnessRule rule = fairnessRuleOf(key);
+        return rule == null || rule.getWeight() == null ? pipelineProperties.getFairness().getDefaultWeight() : rule.getWeight();
+    }
+
+    private int fairMaxInFlightOf(String key) {
+        PipelineProperties.FairnessRule rule = fairnessRuleOf(key);
+        return rule == null || rule.getMaxInFlight() == null ? pipelineProperties.getFairness().getDefaultMaxInFlight() : rule.getMaxInFlight();
+    }
+
+    private PipelineProperties.FairnessRule fairnessRuleOf(String key) {
+        int separator = key.indexOf('|');
+        return pipelineProperties.fairnessRuleOf(key.substring(0, separator), key.substring(separator + 1));
+    }
+
+    /**
+     * @desc 是否需要视频分析：与validate阶段判定一致，路径为空、非停驶/行人/抛洒物、命中预筛选规则的告警仅需通用算法处理
+     * @param alarmRecord
+     * @return
+     */
+    public boolean requiresVideo(OriginalAlarmRecord alarmRecord) {
+        return StringUtils.hasText(alarmRecord.getImagePath()) && StringUtils.hasText(alarmRecord.getVideoPath())
+                && EVENT_TYPE_LIST.contains(alarmRecord.getEventType())
+                && !preFilterAlgorithm.matches(alarmRecord);
+    }
+
+    /**
+     * @desc 各阶段运行状态（按链路顺序）
+     * @return
+     */
+    public Map<String, Map<String, Object>> stageStats() {
+        Map<String, Map<String, Object>> stats = pipeline.stats();
+        Map<String, Object> retry = new LinkedHashMap<>();
+        retry.put("pending", retryPending.get());
+        retry.put("scheduled", retryScheduled.get());
+        retry.put("exhausted", retryExhausted.get());
+        stats.put(STAGE_CONNECTIVITY_RETRY, retry);
+        return stats;
+    }
+
+    /**
+     * @desc 时效调度状态：时效配置、当前视频分析排队告警数、实时告警进入视频分析时的告警时延分位数、超时降级数量
+     * @return
+     */
+    public Map<String, Object> freshnessStats() {
+        PipelineProperties.Freshness freshness = pipelineProperties.getFreshness();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", freshness.isEnabled());
+        stats.put("maxAgeMinutes", freshness.getMaxAgeMinutes());
+        stats.put("priorityStages", freshness.getPriorityStages());
+        stats.put("backlogThreshold", freshness.getBacklogThreshold());
+        stats.put("backlog", videoBacklog());
+        stats.put("alarmAgeMillis", alarmAgeMillis.snapshot());
+        stats.put("staleCount", staleCount.get());
+        return stats;
+    }
+
+    /**
+     * @desc 注册阶段：阶段正常结束后记录完成位（链路结束时同时记录结束位），异常时记录失败阶段后抛出
+     */
+    private void register(String stageName, StagedPipeline.StageHandler<AlarmJob> handler) {
+        PipelineProperties.Stage stage = pipelineProperties.stageOf(stageName);
+        int stageBits = STAGE_BITS.get(stageName);
+        PipelineProperties.Freshness freshness = pipelineProperties.getFreshness();
+        Comparator<AlarmJob> priority = freshness.isEnabled() && freshness.getPriorityStages().contains(stageName) ? FRESHEST_FIRST : null;
+        pipeline.stage(stageName, stage.getThreads(), stage.getQueueCapacity(), priority, job -> {
+            long tblId = job.getRecord().getTblId();
+            String next;
+            try {
+                next = handler.handle(job);
+            } catch (Exception e) {
+                alarmPipelineStateServiceImpl.markFailed(tblId, stageName, 0, String.valueOf(e));
+                throw e;
+            }
+            // 进入重试闸门时阶段尚未完成，不记录完成位
+            if (job.isSuccess() && !STAGE_CONNECTIVITY_RETRY.equals(next)) {
+                alarmPipelineStateServiceImpl.markCompleted(tblId, stageName, next == null ? stageBits | STATE_DONE : stageBits);
+            }
+            return next;
+        });
+    }
+
+    /**
+     * @desc 推送原始告警记录
+     */
+    private String notifyStage(AlarmJob job) {
+        gxDealTagDataPush.pushToGx(job.getRecord());
+        return STAGE_VALIDATE;
+    }
+
+    /**
+     * @desc 无需视频分析告警：推送原始告警记录后按validate阶段规则处理；
+     *       分类后预筛选规则发生变化、需视频分析时按原链路进入connectivity阶段
+     */
+    private String fastStage(AlarmJob job) {
+        if (job.isNotify()) {
+            gxDealTagDataPush.pushToGx(job.getRecord());
+        }
+        return validateStage(job);
+    }
+
+    /**
+     * @desc 视频路径、图片路径为空告警记录直接剔除；非停驶、行人、抛洒物告警默认正检；
+     *       命中预筛选规则（如之江智能夜间时段）的告警直接给出初检结果，不再访问视频
+     */
+    private String validateStage(AlarmJob job) {
+        OriginalAlarmRecord alarmRecord = job.getRecord();
+        if(!StringUtils.hasText(alarmRecord.getImagePath()) || !StringUtils.hasText(alarmRecord.getVideoPath())){
+            log.info("图品/视频路径为空，调用通用算法检测 | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", alarmRecord.getTblId(), alarmRecord.getId(), alarmRecord.getImagePath(), alarmRecord.getVideoPath());
+            return null;
+        }
+        if(!EVENT_TYPE_LIST.contains(alarmRecord.getEventType())){
+            generalAlgorithm.checkDeal(alarmRecord,"", FlagTagUtil.CHECK_RESULT_RIGHT);
+            return null;
+        }
+        if (preFilterAlgorithm.preFilterDeal(alarmRecord)) {
+            return null;
+        }
+        return fairScheduler != null ? STAGE_FAIR : STAGE_CONNECTIVITY;
+    }
+
+    /**
+     * @desc 视频连通性&&元数据校验，校验失败调用通用算法处理
+     */
+    private String connectivityStage(AlarmJob job) {
+        // 时效判定仅在首次进入时执行，重试不重复判定
+        if (job.isDeadlineAware() && job.getConnectivityAttempts() == 0 && isStale(job)) {
+            return null;
+        }
+        OriginalAlarmRecord alarmRecord = job.getRecord();
+        int attempt = job.getConnectivityAttempts() + 1;
+        job.setConnectivityAttempts(attempt);
+        ExtractFrameAlgorithm.ConnectivityResult result = extractFrameAlgorithm.checkVideoConnectivity(alarmRecord);
+        if (result == ExtractFrameAlgorithm.ConnectivityResult.READY) {
+            return STAGE_EXTRACT_FRAME;
+        }
+        VideoProperties.ConnectRetry retry = videoProperties.getConnectRetry();
+        int maxAttempts = retry.getMaxAttempts();
+        if (result == ExtractFrameAlgorithm.ConnectivityResult.UNREACHABLE && attempt < maxAttempts) {
+            log.warn("第{}次视频连接失败，交由定时器重试 | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{} | 最大连接次数:{}", attempt, alarmRecord.getTblId(), alarmRecord.getId(), alarmRecord.getImagePath(), alarmRecord.getVideoPath(), maxAttempts);
+            // 等待重试期间释放公平调度在途额度，重试时重新排队
+            String fairKey = job.getFairKey();
+            if (fairKey != null) {
+                job.setFairKey(null);
+                fairScheduler.complete(fairKey);
+            }
+            retryScheduled.incrementAndGet();
+            retryPending.incrementAndGet();
+            return STAGE_CONNECTIVITY_RETRY;
+        }
+        if (result == ExtractFrameAlgorithm.ConnectivityResult.UNREACHABLE) {
+            retryExhausted.incrementAndGet();
+            log.error("有效等待时长and重试次数中，视频连通and元数据未测试成功 | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{} | 连接次数:{}", alarmRecord.getTblId(), alarmRecord.getId(), alarmRecord.getImagePath(), alarmRecord.getVideoPath(), attempt);
+        }
+        return degrade(job, "connectivity", "视频资源访问异常，初检为无法判断");
+    }
+
+    /**
+     * @desc 视频连接重试间隔：按配置间隔上下随机抖动
+     * @return 毫秒
+     */
+    private long retryDelayMillis() {
+        VideoProperties.ConnectRetry retry = videoProperties.getConnectRetry();
+        double jitter = Math.max(0, Math.min(1, retry.getJitterRatio()));
+        double factor = jitter == 0 ? 1 : 1 + ThreadLocalRandom.current().nextDouble(-jitter, jitter);
+        return Math.max(0, (long) (retry.getIntervalMs() * factor));
+    }
+
+    /**
+     * @desc 时效判定：视频分析积压且告警时延超过时效时不再访问视频，调用通用算法标记"无法判断"（超时降级），按配置记入死信暂存等待补做；
+     *       未积压时超过时效的告警照常分析
+     * @return 是否已超时降级
+     */
+    private boolean isStale(AlarmJob job) {
+        OriginalAlarmRecord alarmRecord = job.getRecord();
+        PipelineProperties.Freshness freshness = pipelineProperties.getFreshness();
+        long ageMillis = Duration.between(alarmRecord.getAlarmTime(), LocalDateTime.now()).toMillis();
+        alarmAgeMillis.record(ageMillis);
+        if (ageMillis <= TimeUnit.MINUTES.toMillis(freshness.getMaxAgeMinutes())) {
+            return false;
+        }
+        int backlog = videoBacklog();
+        if (backlog < freshness.getBacklogThreshold()) {
+            return false;
+        }
+        String reason = "超时降级，告警时延" + ageMillis / 60000 + "分钟，初检为无法判断";
+        log.info("视频分析积压且告警超过时效，跳过视频分析 | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{} | 告警时间:{} | 时效:{}分钟 | 排队告警数:{}", alarmRecord.getTblId(), alarmRecord.getId(), alarmRecord.getImagePath(), alarmRecord.getVideoPath(), alarmRecord.getAlarmTime(), freshness.getMaxAgeMinutes(), backlog);
+        staleCount.incrementAndGet();
+        generalAlgorithm.checkDeal(alarmRecord, reason, FlagTagUtil.CHECK_RESULT_UNKNOWN);
+        alarmPipelineStateServiceImpl.markFailed(alarmRecord.getTblId(), STAGE_STALE, STATE_DONE, reason);
+        if (freshness.isDeferToDeadLetter()) {
+            deadLetterSpool.record(alarmRecord, STAGE_STALE, reason);
+        }
+        job.setSuccess(false);
+        return true;
+    }
+
+    /**
+     * @desc 视频分析排队告警数：公平调度排队数（开启时）+ 时效优先阶段排队数
+     * @return
+     */
+    private int videoBacklog() {
+        int backlog = fairScheduler != null ? fairScheduler.waitingCount() : 0;
+        for (String stageName : pipelineProperties.getFreshness().getPriorityStages()) {
+            backlog += pipeline.queued(stageName);
+        }
+        return backlog;
+    }
+
+    /**
+     * @desc 视频抽帧，抽帧失败调用通用算法处理
+     */
+    private String extractFrameStage(AlarmJob job) {
+        if(!extractFrameAlgorithm.extractFrame(job.getRecord())){
+            return degrade(job, "extract_frame", "视频抽帧异常，初检为无法判断");
+        }
+        return STAGE_EXTRACT_WINDOW;
+    }
+
+    /**
+     * @desc 图片提框，提框失败调用通用算法处理
+     */
+    private String extractWindowStage(AlarmJob job) {
+        OriginalAlarmRecord alarmRecord = job.getRecord();
+        if(!extractWindowAlgorithm.extractWindow(alarmRecord)){
+            return degrade(job, "extract_window", "图片提框异常，初检为无法判断");
+        }
+
+        if (roadCheckExecutor != null && pipelineProperties.getRoadDetect().getEventTypes().contains(alarmRecord.getEventType())) {
+            return STAGE_ROAD_DETECT;
+        }
+        return STAGE_ROAD;
+    }
+
+    /**
+     * 路面检测：
+     *  物体在路面外（路面内无记录，路面外有记录）→ 标记误检
+     *  检测类型非停驶、行人、抛洒物 → 通用算法处理
+     *  检测类型为停驶、行人、抛洒物 → 进入算法检测阶段；路面检测异常时同样继续后续处理
+     */
+    private String roadStage(AlarmJob job) {
+        OriginalAlarmRecord alarmRecord = job.getRecord();
+        String alarmId = alarmRecord.getId();
+        String imagePath = alarmRecord.getImagePath();
+        String videoPath = alarmRecord.getVideoPath();
+        String eventType = alarmRecord.getEventType();
+
+        RoadVerdict verdict = checkRoad(alarmRecord);
+        if (verdict == RoadVerdict.OFF_ROAD) {
+            markOffRoad(alarmRecord);
+            return null;
+        }
+        if (verdict == RoadVerdict.ON_ROAD) {
+            if (!EVENT_TYPE_LIST.contains(eventType)) {
+                log.info("路面检测：物体在路面内，但检测类型非停驶、行人、抛洒物，默认正检 | alarmId:{} | eventType:{} | imagePath:{} | videoPath:{} | roadId:{}", alarmId, eventType, imagePath, videoPath, alarmRecord.getRoadId());
+                generalAlgorithm.checkDeal(alarmRecord, "", FlagTagUtil.CHECK_RESULT_RIGHT);
+                return null;
+            }
+            log.info("路面检测：物体在路面内且事件类型需后续处理 | alarmId:{} | eventType:{} | imagePath:{} | videoPath:{}", alarmId, eventType, imagePath, videoPath);
+        }
+        return STAGE_DETECT;
+    }
+
+    /**
+     * 路面检测与算法检测并发执行：
+     *  路面检测提交至独立线程池，当前线程同时执行算法检测，两者结束后合并判定
+     *  物体在路面外 → 标记误检，丢弃算法检测结果（代价为一次多余的算法调用）
+     *  其余情况 → 按算法检测结果继续，与串行模式一致
+     */
+    private String roadDetectStage(AlarmJob job) {
+        OriginalAlarmRecord alarmRecord = job.getRecord();
+        CompletableFuture<RoadVerdict> roadFuture = CompletableFuture.supplyAsync(() -> checkRoad(alarmRecord), roadCheckExecutor);
+        Detection detection = detect(alarmRecord);
+        if (roadFuture.join() == RoadVerdict.OFF_ROAD) {
+            log.info("路面检测：物体在路面外，忽略并发执行的算法检测结果 | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{} | 算法检测是否成功:{}", alarmRecord.getTblId(), alarmRecord.getId(), alarmRecord.getImagePath(), alarmRecord.getVideoPath(), detection.getFailReason() == null);
+            markOffRoad(alarmRecord);
+            return null;
+        }
+        return afterDetection(job, detection);
+    }
+
+    /**
+     * @desc 执行路面检测并统计路面内、外记录数
+     * @return 路面检测结论，异常时返回UNKNOWN
+     */
+    private RoadVerdict checkRoad(OriginalAlarmRecord alarmRecord) {
+        long tblId = alarmRecord.getTblId();
+        String alarmId = alarmRecord.getId();
+        String imagePath = alarmRecord.getImagePath();
+        String videoPath = alarmRecord.getVideoPath();
+        try{
+            // 执行路面检测核心逻辑
+            roadAlgorithm.roadCheckDeal(alarmRecord);
+            // 查询路面检测结果（内/外记录数）
+            int onRoadCount = roadCheckRecordServiceImpl.getRecordByTblIdAndTypeAndFlag(tblId,"road", 1).size();
+            int outRoadCount = roadCheckRecordServiceImpl.getRecordByTblIdAndTypeAndFlag(tblId,"road", 2).size();
+            log.info("路面检测结果统计：tblId:{} | alarmId:{} | imagePath:{} | videoPath:{} | 路面内:{}条 | 路面外:{}条 ", tblId, alarmId, imagePath, videoPath, onRoadCount, outRoadCount);
+            return onRoadCount == 0 && outRoadCount > 0 ? RoadVerdict.OFF_ROAD : RoadVerdict.ON_ROAD;
+        } catch (Exception e) {
+            log.error("路面检测发生异常，默认继续后续处理：tblId:{} | alarmId:{} | imagePath:{} | videoPath:{} | 异常详情:{}", tblId, alarmId, imagePath, videoPath, e);
+            return RoadVerdict.UNKNOWN;
+        }
+    }
+
+    /**
+     * @desc 物体在路面外，标记误检
+     */
+    private void markOffRoad(OriginalAlarmRecord alarmRecord) {
+        generalAlgorithm.checkDeal(alarmRecord, "非路面物体,初检为误检", FlagTagUtil.CHECK_RESULT_ERROR);
+        log.info("路面检测：物体在路面外，标记为误检：tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", alarmRecord.getTblId(), alarmRecord.getId(), alarmRecord.getImagePath(), alarmRecord.getVideoPath());
+    }
+
+    /**
+     * @desc 停驶、行人、抛洒物专属算法检测，失败时兜底通用算法；停驶、行人检测成功后进入结果判定阶段
+     */
+    private String detectStage(AlarmJob job) {
+        return afterDetection(job, detect(job.getRecord()));
+    }
+
+    /**
+     * @desc 按算法检测结果流转：失败降级为"无法判断"；抛洒物结束，停驶、行人进入结果判定，其余类型进入误检点位推送
+     */
+    private String afterDetection(AlarmJob job, Detection detection) {
+        if (detection.getFailReason() != null) {
+            return degrade(job, detection.getStage(), detection.getFailReason());
+        }
+        String eventType = job.getRecord().getEventType();
+        if ("抛洒物".equals(eventType)) {
+            return null;
+        }
+        if ("行人".equals(eventType) || "停驶".equals(eventType)) {
+            return STAGE_RESULT;
+        }
+        return STAGE_PUSH;
+    }
+
+    /**
+     * @desc 调用停驶、行人、抛洒物专属算法，不做降级处理，由调用方根据结果流转
+     */
+    private Detection detect(OriginalAlarmRecord alarmRecord) {
+        long tblId = alarmRecord.getTblId();
+        String alarmId = alarmRecord.getId();
+        String imagePath = alarmRecord.getImagePath();
+        String videoPath = alarmRecord.getVideoPath();
+        String eventType = alarmRecord.getEventType();
+
+        if ("抛洒物".equals(eventType)) {
+            try {
+                if (!pswAlgorithm.pswDeal(alarmRecord)) {
+                    log.info("抛洒物算法处理失败,兜底调用通用算法：tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
+                    return new Detection("psw", "抛洒物算法处理失败,初检为无法判断");
+                }
+            } catch (Exception e) {
+                log.error("抛洒物算法处理异常,兜底调用通用算法：tblId:{} | alarmId:{} | imagePath:{} | videoPath:{} | 异常详情:{}",tblId, alarmId, imagePath, videoPath, e);
+                return new Detection("psw", "抛洒物算法执行异常，初检为无法判断");
+            }
+            return new Detection("psw", null);
+        }
+
+        if ("行人".equals(eventType)) {
+            try {
+                if (!personAlgorithm.personDeal(alarmRecord)) {
+                    log.info("行人算法处理失败,兜底调用通用算法:tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
+                    return new Detection("person", "行人算法处理失败,初检为无法判断");
+                }
+            } catch (Exception e) {
+                log.error("行人算法处理异常 | 兜底调用通用算法 | alarmId:{} | imagePath:{} | videoPath:{} | 异常详情:", alarmId, imagePath, videoPath, e);
+                return new Detection("person", "行人算法执行异常,初检为无法判断");
+            }
+            return new Detection("person", null);
+        }
+
+        if ("停驶".equals(eventType)) {
+            try {
+                if (!vehicleAlgorithm.vehicleDeal(alarmRecord)) {
+                    log.info("停驶算法处理失败 | 兜底调用通用算法, tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
+                    return new Detection("vehicle", "停驶算法处理失败,初检为无法判断");
+                }
+                log.info("停驶算法处理成功 | 开始执行后续业务流程 | tblId:{} | alarmId:{}", tblId, alarmId);
+            } catch (Exception e) {
+                log.error("停驶算法处理异常 | 兜底调用通用算法 | alarmId:{} | imagePath:{} | videoPath:{} | 异常详情:", alarmId, imagePath, videoPath, e);
+                return new Detection("vehicle", "停驶算法执行异常,初检为无法判断");
+            }
+            return new Detection("vehicle", null);
+        }
+        return new Detection(null, null);
+    }
+
+    /**
+     * @desc 获取算法检测结果
+     */
+    private String resultStage(AlarmJob job) {
+        return followUp(job, () -> checkResultAlgorithm.checkResultDealByAlgo(job.getRecord()), "算法检测结果获取完成", STAGE_FEATURE);
+    }
+
+    /**
+     * @desc 特征要素判定
+     */
+    private String featureStage(AlarmJob job) {
+        return followUp(job, () -> featureElementAlgorithm.featureElementDealByAlgo(job.getRecord()), "特征要素判定完成", STAGE_COLLECTION);
+    }
+
+    /**
+     * @desc 告警集判定
+     */
+    private String collectionStage(AlarmJob job) {
+        return followUp(job, () -> alarmCollectionAlgorithm.collectionDeal(job.getRecord()), "告警集判定完成", STAGE_GROUP);
+    }
+
+    /**
+     * @desc 告警组判定
+     */
+    private String groupStage(AlarmJob job) {
+        return followUp(job, () -> collectionGroupAlgorithm.groupDeal(job.getRecord()), "全部处理完成", null);
+    }
+
+    /**
+     * 误检点位推送逻辑：
+     * 1. 查询当前告警的检测结果
+     * 2. 若为误检（checkFlag=2），获取最近50条误检记录的设备ID并推送刷新
+     */
+    private String pushStage(AlarmJob job) {
+        OriginalAlarmRecord alarmRecord = job.getRecord();
+        long tblId = alarmRecord.getTblId();
+        String alarmId = alarmRecord.getId();
+        String imagePath = alarmRecord.getImagePath();
+        String videoPath = alarmRecord.getVideoPath();
+
+        CheckAlarmResult currentCheckResult = AlarmProcessingContext.of(alarmRecord).getCheckResult(() -> checkAlarmResultServiceImpl.getResultByTblId(tblId));
+        log.info("开始误检点位推送处理 | 查询当前告警检测结果 | alarmId:{} | imagePath:{} | videoPath:{} | 检测结果是否存在:{}", alarmId, imagePath, videoPath, currentCheckResult != null);
+
+        if (currentCheckResult == null) {
+            log.error("误检点位推送失败 | 未查询到当前告警的正误检标签 | roadId:{} | alarmId:{} | eventType:{} | imagePath:{} | videoPath:{}", alarmRecord.getRoadId(), alarmId, alarmRecord.getEventType(), imagePath, videoPath);
+            return null;
+        }
+
+        if (currentCheckResult.getCheckFlag() != 2) {
+            log.debug("当前告警非误检，无需推送点位 | checkFlag:{} | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", currentCheckResult.getCheckFlag(), tblId, alarmId, imagePath, videoPath);
+            return null;
+        }
+
+        try {
+            List<String> recentFalseDeviceIds = checkAlarmResultServiceImpl.getRecentFalseCheckList(currentCheckResult.getId());
+            log.info("查询到最近50条误检记录的设备ID | 数量:{} | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{} | 设备ID列表:{}", recentFalseDeviceIds.size(), tblId, alarmId, imagePath, videoPath, recentFalseDeviceIds);
+
+            if (recentFalseDeviceIds.isEmpty()) {
+                log.warn("误检点位推送：最近50条误检记录的设备ID列表为空 | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
+                return null;
+            }
+
+            cloudEyesDeviceServiceImpl.refreshDevices(recentFalseDeviceIds);
+            log.info("误检点位推送成功 | 设备ID数量:{} tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", recentFalseDeviceIds.size(), tblId, alarmId, imagePath, videoPath);
+        } catch (Exception e) {
+            log.error("误检点位推送异常 | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{} | 异常详情:", tblId, alarmId, imagePath, videoPath, e);
+        }
+        return null;
+    }
+
+    /**
+     * @desc 停驶、行人检测成功后的后续判定步骤，异常时兜底通用算法
+     * @param job
+     * @param step 判定步骤
+     * @param stepName 步骤说明
+     * @param next 下一阶段
+     * @return
+     */
+    private String followUp(AlarmJob job, Runnable step, String stepName, String next) {
+        OriginalAlarmRecord alarmRecord = job.getRecord();
+        String eventType = alarmRecord.getEventType();
+        try {
+            step.run();
+            log.debug("{}后续流程：{}: tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", eventType, stepName, alarmRecord.getTblId(), alarmRecord.getId(), alarmRecord.getImagePath(), alarmRecord.getVideoPath());
+            return next;
+        } catch (Exception e) {
+            log.error("{}算法处理异常 | 兜底调用通用算法 | alarmId:{} | imagePath:{} | videoPath:{} | 异常详情:", eventType, alarmRecord.getId(), alarmRecord.getImagePath(), alarmRecord.getVideoPath(), e);
+            return degrade(job, "行人".equals(eventType) ? "person" : "vehicle", eventType + "算法执行异常,初检为无法判断");
+        }
+    }
+
+    /**
+     * @desc 处理失败降级：调用通用算法标记"无法判断"，并按需记入死信暂存等待检测服务恢复后重放
+     * @param job
+     * @param stage 失败阶段
+     * @param reason 降级原因
+     * @return 固定返回null，处理结束
+     */
+    private String degrade(AlarmJob job, String stage, String reason) {
+        generalAlgorithm.checkDeal(job.getRecord(), reason, FlagTagUtil.CHECK_RESULT_UNKNOWN);
+        alarmPipelineStateServiceImpl.markFailed(job.getRecord().getTblId(), stage, STATE_DONE, reason);
+        if (job.isSpoolOnFailure()) {
+            deadLetterSpool.record(job.getRecord(), stage, reason);
+        }
+        job.setSuccess(false);
+        return null;
+    }
+}
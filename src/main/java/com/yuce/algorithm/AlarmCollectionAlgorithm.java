@@ -68,7 +68,8 @@ public class AlarmCollectionAlgorithm extends ServiceImpl<AlarmCollectionMapper,
         log.info("告警记录进行告警集逻辑处理 | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{} | eventType:{} | alarmTime:{}", tblId, alarmId, imagePath, videoPath, eventType, alarmTime);
 
         //获取告警记录初检结果
-        int checkFlag = getCheckFlag(tblId);
+        AlarmProcessingContext context = AlarmProcessingContext.of(record);
+        int checkFlag = getCheckFlag(record);
 
         //alarmId已有归属告警集逻辑
         AlarmCollection existingByAlarmId = alarmCollectionServiceImpl.getCollectionByAlarmId(alarmId);
@@ -79,7 +80,7 @@ public class AlarmCollectionAlgorithm extends ServiceImpl<AlarmCollectionMapper,
                     tblId, alarmId, imagePath, videoPath, existingByAlarmId.getId());
 
             //更新处置建议
-            appendAdvice(record, alarmCollectionServiceImpl.getCollectionByTblId(tblId).getId());
+            appendAdvice(record, context.getCollection(() -> alarmCollectionServiceImpl.getCollectionByTblId(tblId)).getId());
             pushToGx(record, alarmId);
             return;
         }
@@ -134,7 +135,7 @@ public class AlarmCollectionAlgorithm extends ServiceImpl<AlarmCollectionMapper,
 
         //更新处置建议
         try {
-            appendAdvice(record, alarmCollectionServiceImpl.getCollectionByTblId(tblId).getId());
+            appendAdvice(record, context.getCollection(() -> alarmCollectionServiceImpl.getCollectionByTblId(tblId)).getId());
         } catch (Exception e) {
             log.error("更新处置建议失败 | tblId:{} | 异常原因:{}", tblId, e.getMessage(), e);
         }
@@ -214,6 +215,7 @@ public class AlarmCollectionAlgorithm extends ServiceImpl<AlarmCollectionMapper,
             collection.setModifyTime(LocalDateTime.now());
             log.info(collection.toString());
             this.updateById(collection);
+            AlarmProcessingContext.of(record).setCollection(collection);
             log.info("告警集执行更新：tblId:{} | alarmId:{} | collectionId:{}", newTblId, newAlarmId, collection.getId());
         } catch (Exception e) {
             log.error("告警集更新异常：tblId:{} | alarmId:{} | collectionId:{} | exception info:{}",
@@ -399,6 +401,7 @@ public class AlarmCollectionAlgorithm extends ServiceImpl<AlarmCollectionMapper,
             }
 
             this.saveOrUpdate(newCollection);
+            AlarmProcessingContext.of(record).setCollection(newCollection);
             log.debug("新告警集创建成功 | collectionId:{} | alarmId:{}", newCollection.getId(), alarmId);
         } catch (Exception e) {
             log.error("创建新告警集失败 | alarmId:{} | 异常原因:", alarmId, e);
@@ -831,7 +834,7 @@ public class AlarmCollectionAlgorithm extends ServiceImpl<AlarmCollectionMapper,
             int disposalAdvice = FlagTagUtil.ADVICE_UNDETERMINED;
             String adviceReason = "";
 
-            AlarmCollection alarmCollection = alarmCollectionServiceImpl.getCollectionByTblId(tblId);
+            AlarmCollection alarmCollection = AlarmProcessingContext.of(record).getCollection(() -> alarmCollectionServiceImpl.getCollectionByTblId(tblId));
             log.info("正检告警集判断:{}", alarmCollection == null ? "null" : alarmCollection.toString());
 
             int rightCheckNum = 0; // 默认值
@@ -860,11 +863,12 @@ public class AlarmCollectionAlgorithm extends ServiceImpl<AlarmCollectionMapper,
         }
     }
 
-    public int getCheckFlag(long tblId){
+    public int getCheckFlag(OriginalAlarmRecord record){
         //获取检测结果标签（增加非空处理）
+        long tblId = record.getTblId();
         int checkFlag = FlagTagUtil.CHECK_RESULT_UNKNOWN;
         try {
-            CheckAlarmResult checkResult = checkAlarmResultServiceImpl.getResultByTblId(tblId);
+            CheckAlarmResult checkResult = AlarmProcessingContext.of(record).getCheckResult(() -> checkAlarmResultServiceImpl.getResultByTblId(tblId));
             if (checkResult != null) {
                 checkFlag = checkResult.getCheckFlag();
             }
@@ -0,0 +1,205 @@
+package com.yuce.algorithm;
+
+import com.yuce.entity.OriginalAlarmRecord;
+import com.yuce.handler.AlarmFilterPolicy;
+import com.yuce.handler.MessageLane;
+import com.yuce.service.impl.OriginalAlarmServiceImpl;
+import com.yuce.util.DeadLetterSpool;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+
+/**
+ * 告警统一处理入口：各来源解析出原始告警记录后按来源筛选策略执行
+ *  1、入库前筛选
+ *  2、原始告警记录存储&&更新，新增记录写入初始阶段状态，已存在记录仅更新；上次处理中断（阶段状态未结束）的已存在记录从未完成阶段续跑
+ *  3、算法处理前筛选
+ *  4、分阶段算法处理链路
+ */
+@Slf4j
+@Component
+public class AlarmPipeline {
+
+    @Autowired
+    private OriginalAlarmServiceImpl originalAlarmServiceImpl;
+
+    @Autowired
+    private AlarmAnalysisPipeline alarmAnalysisPipeline;
+
+    @Autowired
+    private DeadLetterSpool deadLetterSpool;
+
+    /**
+     * @desc 单条处理：筛选、存储、算法处理
+     * @param alarmRecord
+     * @param policy 来源筛选策略
+     * @return 是否为新增记录并进入算法处理
+     */
+    public boolean process(OriginalAlarmRecord alarmRecord, AlarmFilterPolicy policy) {
+        if (!admit(alarmRecord, policy)) {
+            return false;
+        }
+        if (originalAlarmServiceImpl.saveOrUpdateRecord(alarmRecord)) {
+            resume(alarmRecord, policy);
+            return false;
+        }
+        //新增记录已回填主键id，无需再次查询
+        alarmAnalysisPipeline.markSaved(Collections.singletonList(alarmRecord));
+        analyze(alarmRecord, policy);
+        return true;
+    }
+
+    /**
+     * @desc 入库前筛选
+     * @param alarmRecord
+     * @param policy 来源筛选策略
+     * @return 是否通过
+     */
+    public boolean admit(OriginalAlarmRecord alarmRecord, AlarmFilterPolicy policy) {
+        String reason = policy.rejectBeforeSave(alarmRecord);
+        if (reason != null) {
+            log.info("告警记录入库前剔除 | 来源:{} | 原因:{} | alarmId:{} | imagePath:{} | videoPath:{} | roadId:{}", policy.name(), reason, alarmRecord.getId(), alarmRecord.getImagePath(), alarmRecord.getVideoPath(), alarmRecord.getRoadId());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @desc 入口处理通道分类：无需视频分析的告警进入快速通道，避免排在视频分析告警之后；
+     *       分类异常时进入视频分析通道（两个通道均可完成全部处理），不影响已入库记录生成处理任务
+     * @param alarmRecord
+     * @return
+     */
+    public MessageLane laneOf(OriginalAlarmRecord alarmRecord) {
+        try {
+            return alarmAnalysisPipeline.requiresVideo(alarmRecord) ? MessageLane.HEAVY : MessageLane.FAST;
+        } catch (Exception e) {
+            log.warn("告警处理通道分类异常，进入视频分析通道 | tblId:{} | alarmId:{} | 异常:{}", alarmRecord.getTblId(), alarmRecord.getId(), e.getMessage());
+            return MessageLane.HEAVY;
+        }
+    }
+
+    /**
+     * @desc 批量筛选并存储，批内去重、一次IN查询判重；新增记录写入初始阶段状态，已存在记录一次IN查询阶段状态
+     * @param alarmRecords
+     * @param policy 来源筛选策略
+     * @param resumeList 输出：已存在且上次处理未结束、需续跑的告警记录（已回填tblId）
+     * @return 本批新增的告警记录（已回填tblId）
+     */
+    public List<OriginalAlarmRecord> saveBatch(List<OriginalAlarmRecord> alarmRecords, AlarmFilterPolicy policy, List<OriginalAlarmRecord> resumeList) {
+        List<OriginalAlarmRecord> admitted = alarmRecords.stream().filter(record -> admit(record, policy)).collect(Collectors.toList());
+        List<OriginalAlarmRecord> existingList = new ArrayList<>();
+        List<OriginalAlarmRecord> inserted = originalAlarmServiceImpl.saveOrUpdateBatch(admitted, existingList);
+        alarmAnalysisPipeline.markSaved(inserted);
+        List<OriginalAlarmRecord> analyzable = existingList.stream().filter(record -> policy.rejectBeforeAnalyze(record) == null).collect(Collectors.toList());
+        resumeList.addAll(alarmAnalysisPipeline.unfinished(analyzable));
+        return inserted;
+    }
+
+    /**
+     * @desc 已入库新告警记录的算法处理：按来源选项推送原始告警记录；
+     *       未捕获异常按来源选项记入死信暂存，由重放任务在检测服务恢复后重新处理
+     * @param alarmRecord 已回填tblId的告警记录
+     * @param policy 来源筛选策略
+     */
+    public void analyze(OriginalAlarmRecord alarmRecord, AlarmFilterPolicy policy) {
+        String reason = policy.rejectBeforeAnalyze(alarmRecord);
+        if (reason != null) {
+            log.info("告警记录不进行算法处理 | 来源:{} | 原因:{} | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", policy.name(), reason, alarmRecord.getTblId(), alarmRecord.getId(), alarmRecord.getImagePath(), alarmRecord.getVideoPath());
+            return;
+        }
+        try {
+            alarmAnalysisPipeline.analyzeNew(alarmRecord, policy.notifyUpstream(), policy.spoolOnFailure(), policy.deadlineAware());
+        } catch (Exception e) {
+            analyzeFailed(alarmRecord, policy, e);
+        }
+    }
+
+    /**
+     * @desc 同analyze，提交后立即返回不等待处理结束，供消费通道线程不随视频重试退避阻塞
+     * @param alarmRecord 已回填tblId的告警记录
+     * @param policy 来源筛选策略
+     * @return 处理结束时完成，异常已按来源选项处理，不以异常完成
+     */
+    public CompletableFuture<Void> analyzeAsync(OriginalAlarmRecord alarmRecord, AlarmFilterPolicy policy) {
+        String reason = policy.rejectBeforeAnalyze(alarmRecord);
+        if (reason != null) {
+            log.info("告警记录不进行算法处理 | 来源:{} | 原因:{} | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", policy.name(), reason, alarmRecord.getTblId(), alarmRecord.getId(), alarmRecord.getImagePath(), alarmRecord.getVideoPath());
+            return CompletableFuture.completedFuture(null);
+        }
+        try {
+            return alarmAnalysisPipeline.analyzeNewAsync(alarmRecord, policy.notifyUpstream(), policy.spoolOnFailure(), policy.deadlineAware())
+                    .handle((success, e) -> {
+                        if (e != null) {
+                            analyzeFailed(alarmRecord, policy, unwrap(e));
+                        }
+                        return null;
+                    });
+        } catch (Exception e) {
+            analyzeFailed(alarmRecord, policy, e);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    private void analyzeFailed(OriginalAlarmRecord alarmRecord, AlarmFilterPolicy policy, Throwable e) {
+        log.error("告警记录算法处理异常 | 来源:{} | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", policy.name(), alarmRecord.getTblId(), alarmRecord.getId(), alarmRecord.getImagePath(), alarmRecord.getVideoPath(), e);
+        if (policy.spoolOnFailure()) {
+            deadLetterSpool.record(alarmRecord, "pipeline", String.valueOf(e));
+        }
+    }
+
+    /**
+     * @desc 已存在告警记录续跑：仅阶段状态存在且未结束时处理，无阶段状态的历史记录保持原有行为不做后续处理
+     * @param alarmRecord 已回填tblId的告警记录
+     * @param policy 来源筛选策略
+     */
+    public void resume(OriginalAlarmRecord alarmRecord, AlarmFilterPolicy policy) {
+        if (alarmRecord.getTblId() == null || policy.rejectBeforeAnalyze(alarmRecord) != null) {
+            return;
+        }
+        try {
+            alarmAnalysisPipeline.resume(alarmRecord, policy.notifyUpstream(), policy.spoolOnFailure());
+        } catch (Exception e) {
+            resumeFailed(alarmRecord, policy, e);
+        }
+    }
+
+    /**
+     * @desc 同resume，提交后立即返回不等待处理结束
+     * @param alarmRecord 已回填tblId的告警记录
+     * @param policy 来源筛选策略
+     * @return 处理结束时完成，异常已记录，不以异常完成
+     */
+    public CompletableFuture<Void> resumeAsync(OriginalAlarmRecord alarmRecord, AlarmFilterPolicy policy) {
+        if (alarmRecord.getTblId() == null || policy.rejectBeforeAnalyze(alarmRecord) != null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        try {
+            return alarmAnalysisPipeline.resumeAsync(alarmRecord, policy.notifyUpstream(), policy.spoolOnFailure())
+                    .handle((resumed, e) -> {
+                        if (e != null) {
+                            resumeFailed(alarmRecord, policy, unwrap(e));
+                        }
+                        return null;
+                    });
+        } catch (Exception e) {
+            resumeFailed(alarmRecord, policy, e);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    private void resumeFailed(OriginalAlarmRecord alarmRecord, AlarmFilterPolicy policy, Throwable e) {
+        log.error("告警记录续跑异常 | 来源:{} | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", policy.name(), alarmRecord.getTblId(), alarmRecord.getId(), alarmRecord.getImagePath(), alarmRecord.getVideoPath(), e);
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+}
@@ -1,6 +1,7 @@
 package com.yuce.algorithm;
 
 import com.yuce.config.VideoProperties;
+import com.yuce.entity.AlarmProcessingContext;
 import com.yuce.entity.CheckAlarmProcess;
 import com.yuce.entity.CheckAlarmResult;
 import com.yuce.entity.OriginalAlarmRecord;
@@ -62,8 +63,9 @@ public class CheckResultAlgorithm {
         String imagePath = record.getImagePath();
         String videoPath = record.getVideoPath();
 
-        if (!isAlreadyDeal(tblId, alarmId, imagePath, videoPath)) {
-            checkAlarmResultServiceImpl.insert(record, checkFlag, reason, FlagTagUtil.CHECK_ALGO_SOURCE_GENERAL, "no_item");
+        if (!isAlreadyDeal(record)) {
+            AlarmProcessingContext.of(record).setCheckResult(
+                    checkAlarmResultServiceImpl.insert(record, checkFlag, reason, FlagTagUtil.CHECK_ALGO_SOURCE_GENERAL, "no_item"));
             log.info("告警记录完成算法初检 | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
         }
     }
@@ -80,12 +82,12 @@ public class CheckResultAlgorithm {
         String videoPath = record.getVideoPath();
         String eventType = record.getEventType();
 
-        if (isAlreadyDeal(tblId, alarmId, imagePath, videoPath)) {
+        if (isAlreadyDeal(record)) {
             return;
         }
 
         if(eventType.equals("停驶")){
-            checkResultByIou(tblId, alarmId, imagePath, videoPath,0.2,1);
+            checkResultByIou(record, 0.2, 1);
         }else if(eventType.equals("行人")){
             checkResultByImgNum(record, "person");
         }else if(eventType.equals("抛洒物")){
@@ -95,6 +97,20 @@ public class CheckResultAlgorithm {
         }
     }
 
+    /**
+     * @desc 告警记录是否已经过算法初检，优先读取处理上下文中的检测结果
+     * @param record
+     * @return
+     */
+    public boolean isAlreadyDeal(OriginalAlarmRecord record) {
+        long tblId = record.getTblId();
+        if (AlarmProcessingContext.of(record).getCheckResult(() -> checkAlarmResultServiceImpl.getResultByTblId(tblId)) != null) {
+            log.info("告警记录已完成算法初检,不再处理 | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, record.getId(), record.getImagePath(), record.getVideoPath());
+            return true;
+        }
+        return false;
+    }
+
     /**
      * @desc 告警记录是否已经过算法初检
      * @param tblId
@@ -114,14 +130,15 @@ public class CheckResultAlgorithm {
 
     /**
      * @desc 根据IOU确定算法核检结果
-     * @param tblId
-     * @param alarmId
-     * @param imagePath
-     * @param videoPath
+     * @param record
      * @param iouConfig
      * @param rightCheckNumConfig
      */
-    public void checkResultByIou(long tblId, String alarmId, String imagePath, String videoPath, double iouConfig, int rightCheckNumConfig) {
+    public void checkResultByIou(OriginalAlarmRecord record, double iouConfig, int rightCheckNumConfig) {
+        long tblId = record.getTblId();
+        String alarmId = record.getId();
+        String imagePath = record.getImagePath();
+        String videoPath = record.getVideoPath();
 
         //抽帧图片逐个判定检验结果
         int rightCheckNum = 0;
@@ -169,7 +186,8 @@ public class CheckResultAlgorithm {
         checkAlarmResult.setCheckSource(FlagTagUtil.CHECK_ALGO_SOURCE_DEVELOP);
         checkAlarmResult.setCheckTime(LocalDateTime.now());
 
-        CheckAlarmResult existing = checkAlarmResultServiceImpl.getResultByTblId(tblId);
+        AlarmProcessingContext context = AlarmProcessingContext.of(record);
+        CheckAlarmResult existing = context.getCheckResult(() -> checkAlarmResultServiceImpl.getResultByTblId(tblId));
         if (existing != null) {
             // 更新已有记录
             log.info("检测结果已存在，更新检测结果：tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
@@ -182,6 +200,7 @@ public class CheckResultAlgorithm {
             checkAlarmResultMapper.insert(checkAlarmResult);
             log.info("算法初检完成，插入检测结果：tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
         }
+        context.setCheckResult(checkAlarmResult);
     }
 
     /**
@@ -196,7 +215,8 @@ public class CheckResultAlgorithm {
         String imagePath = record.getImagePath();
         String videoPath = record.getVideoPath();
 
-        CheckAlarmResult existing = checkAlarmResultMapper.getResultByTblId(record.getTblId());
+        AlarmProcessingContext context = AlarmProcessingContext.of(record);
+        CheckAlarmResult existing = context.getCheckResult(() -> checkAlarmResultMapper.getResultByTblId(tblId));
         if(existing != null){
             log.info("告警记录已经检测，不再处理：tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
         }
@@ -222,6 +242,7 @@ public class CheckResultAlgorithm {
             existing.setUpdateTime(LocalDateTime.now());
             existing.setCheckTime(LocalDateTime.now());
             checkAlarmResultMapper.updateById(existing);
+            context.setCheckResult(existing);
         } else {
             // 新增记录
             CheckAlarmResult checkAlarmResult = new CheckAlarmResult();
@@ -237,6 +258,7 @@ public class CheckResultAlgorithm {
             checkAlarmResult.setCreateTime(LocalDateTime.now());
             checkAlarmResult.setUpdateTime(LocalDateTime.now());
             checkAlarmResultMapper.insert(checkAlarmResult);
+            context.setCheckResult(checkAlarmResult);
         }
     }
 }
\ No newline at end of file
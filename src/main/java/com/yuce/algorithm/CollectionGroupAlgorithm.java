@@ -1,5 +1,6 @@
 package com.yuce.algorithm;
 
+import com.yuce.entity.AlarmProcessingContext;
 import com.yuce.entity.AlarmCollection;
 import com.yuce.entity.CheckAlarmResult;
 import com.yuce.entity.CollectionGroupRecord;
@@ -45,7 +46,8 @@ public class CollectionGroupAlgorithm {
 
         try {
             // 1. 查询告警记录归属告警集（处理 null 场景）
-            AlarmCollection alarmCollection = alarmCollectionServiceImpl.getCollectionByTblId(tblId);
+            AlarmProcessingContext context = AlarmProcessingContext.of(record);
+            AlarmCollection alarmCollection = context.getCollection(() -> alarmCollectionServiceImpl.getCollectionByTblId(tblId));
             if (alarmCollection == null || alarmCollection.getId() == null) {
                 log.error("告警组分组失败：未查询到归属告警集: tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
                 return;
@@ -53,14 +55,14 @@ public class CollectionGroupAlgorithm {
             Integer collectionId = alarmCollection.getId();
 
             // 2. 判断告警记录是否已经分组（避免重复分组）
-            CollectionGroupRecord existGroup = collectionGroupServiceImpl.getGroupByKey(alarmId, imagePath, videoPath);
+            CollectionGroupRecord existGroup = context.isNewRecord() ? null : collectionGroupServiceImpl.getGroupByKey(alarmId, imagePath, videoPath);
             if (existGroup != null) {
                 log.info("告警记录已分组，不再处理: tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
                 return;
             }
 
             // 3. 查询检测结果（处理 null 场景）
-            CheckAlarmResult checkAlarmResult = checkAlarmResultServiceImpl.getResultByTblId(tblId);
+            CheckAlarmResult checkAlarmResult = context.getCheckResult(() -> checkAlarmResultServiceImpl.getResultByTblId(tblId));
             String checkName = "";
             if (checkAlarmResult == null || checkAlarmResult.getCheckName() == null) {
                 log.warn("告警组分组异常：未查询到检测结果为null: tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
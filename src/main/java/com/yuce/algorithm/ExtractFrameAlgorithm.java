@@ -1,11 +1,15 @@
 package com.yuce.algorithm;
 
 import com.yuce.config.VideoProperties;
+import com.yuce.entity.AlarmProcessingContext;
 import com.yuce.entity.FrameImageInfo;
 import com.yuce.entity.OriginalAlarmRecord;
 import com.yuce.service.impl.FrameImageServiceImpl;
 import com.yuce.util.FileUtil;
+import com.yuce.util.FrameJpegEncoder;
+import com.yuce.util.VideoFileCache;
 import com.yuce.util.VideoCheckUtil;
+import com.yuce.util.VideoSession;
 import lombok.extern.slf4j.Slf4j;
 import org.bytedeco.ffmpeg.global.avutil;
 import org.bytedeco.javacv.*;
@@ -16,11 +20,11 @@ import javax.annotation.PostConstruct;
 import javax.imageio.ImageIO;
 import java.io.File;
 import java.io.IOException;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -30,16 +34,24 @@ import java.util.List;
 @Slf4j
 public class ExtractFrameAlgorithm {
 
-    private static final int MAX_RETRY_TIMES = 3;
-    private static final long RETRY_INTERVAL_MS = 5_000;
     private static final String IMAGE_FORMAT = "jpg";
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd");
     private static final long[] STOPPED_TIMESTAMPS = {7_000_000L, 8_000_000L, 9_000_000L};
     private static final int[] DEFAULT_PERCENTAGES = {50, 80, 95};
 
+    /**
+     * 视频连通性&&元数据校验结果
+     */
+    public enum ConnectivityResult {
+        READY, //校验通过，视频会话已保存到处理上下文
+        UNREACHABLE, //视频连接失败，可重试
+        INVALID //元数据不符合要求或其他异常，重试无意义
+    }
+
     private int targetFrameCount;
     private String videoBaseDir;
     private String imageBaseDir;
+    private FrameJpegEncoder jpegEncoder; //原生JPEG编码，未开启时为null
 
     @Autowired
     private VideoProperties videoProperties;
@@ -47,6 +59,9 @@ public class ExtractFrameAlgorithm {
     @Autowired
     private FrameImageServiceImpl frameImageServiceImpl;
 
+    @Autowired
+    private VideoFileCache videoFileCache;
+
     @PostConstruct
     public void init() {
         this.targetFrameCount = videoProperties.getFrameCount();
@@ -60,6 +75,12 @@ public class ExtractFrameAlgorithm {
         avutil.av_log_set_level(avutil.AV_LOG_QUIET);
         FFmpegLogCallback.set();
 
+        VideoProperties.Extract extract = videoProperties.getExtract();
+        if (extract.isNativeJpeg()) {
+            jpegEncoder = new FrameJpegEncoder(extract.getJpegQuality());
+            log.info("抽帧图片原生JPEG编码已开启, 图片质量:{}", jpegEncoder.getQuality());
+        }
+
         log.info("抽帧算法初始化完成, 目标抽帧图片数量:{}, 视频存储路径:{}, 图片存储路径:{}", targetFrameCount, videoBaseDir, imageBaseDir);
     }
 
@@ -79,28 +100,47 @@ public class ExtractFrameAlgorithm {
 
         /**
          * 执行抽帧：
-         * 1、转换视频路径编码
+         * 1、转换视频路径编码（开启本地视频缓存时读取本地文件）
          * 2、检查抽帧图片存储路径是否存在
          * 3、根据告警类型采用对应形式抽帧
          *      3.1、停驶按照时间抽帧
          *      3.2、其他类型按照百分比抽帧
+         *      前向解码模式下目标位置按时间排序后单次前向解码，逐个seek模式保持原抽帧方式
          */
         String encodedVideoUrl = encodeVideoUrl(videoPath);
         String imageSaveDir = buildImageSaveDir(record.getAlarmTime());
         FileUtil.fileExists(imageSaveDir);
 
-        try (FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(encodedVideoUrl);
+        // 优先复用连通性校验阶段打开的视频会话；断点续跑、暂存已满或暂存超时等场景重新打开
+        VideoSession session = AlarmProcessingContext.of(record).takeVideoSession();
+        if (session != null) {
+            long parkedMillis = session.unpark();
+            if (parkedMillis > videoProperties.getSession().getMaxIdleMs()) {
+                log.info("视频会话暂存超时，重新打开 | tblId:{} | alarmId:{} | 暂存时长:{}ms", tblId, alarmId, parkedMillis);
+                session.close();
+                session = null;
+            }
+        }
+        VideoProperties.Extract extract = videoProperties.getExtract();
+        try (VideoSession video = session != null ? session : openSession(videoPath, encodedVideoUrl);
              Java2DFrameConverter converter = new Java2DFrameConverter()) {
 
-            configureGrabber(grabber);
-            grabber.start();
-
-            List<FrameImageInfo> frameImageList = "停驶".equals(eventType)
-                    ? extractByTimestamp(grabber, converter, record, imageSaveDir)
-                    : extractByPercentage(grabber, converter, record, imageSaveDir);
+            FFmpegFrameGrabber grabber = video.getGrabber();
+            List<FrameImageInfo> frameImageList;
+            if (extract.isForwardOnly()) {
+                long[] timestamps = "停驶".equals(eventType) ? STOPPED_TIMESTAMPS : percentageTimestamps(grabber);
+                frameImageList = extract.isSnapToKeyframe()
+                        ? extractNearestKeyFrames(grabber, converter, record, imageSaveDir, timestamps)
+                        : extractForward(grabber, converter, record, imageSaveDir, timestamps, extract.getForwardMaxGapMs() * 1000);
+            } else {
+                frameImageList = "停驶".equals(eventType)
+                        ? extractByTimestamp(grabber, converter, record, imageSaveDir)
+                        : extractByPercentage(grabber, converter, record, imageSaveDir);
+            }
 
             validateFrameCount(frameImageList.size(), tblId);
             frameImageServiceImpl.saveBatch(frameImageList);
+            AlarmProcessingContext.of(record).setFrameList(frameImageList);
 
             log.info("抽帧算法处理完成, 告警记录信息：tblId:{} | alarmId:{} | imagePath:{} | videoPath:{} |  抽帧图片数量:{} | 图片存储路径:{}", tblId, alarmId, imagePath, videoPath, frameImageList.size(), imageSaveDir);
             return true;
@@ -111,90 +151,52 @@ public class ExtractFrameAlgorithm {
     }
 
     /**
-     * @desc 视频连通性&&元数据校验
+     * @desc 视频连通性&&元数据校验（单次）：开启本地视频缓存时先下载视频，打开视频会话即完成连通性校验，元数据取自已打开的容器信息，
+     *       校验通过后会话保存到处理上下文，供抽帧阶段复用同一连接；连接失败的重试由调用方调度，不在此等待
      * @param record
      * @return
      */
-    public boolean checkVideoConnectivityWithRetry(OriginalAlarmRecord record){
+    public ConnectivityResult checkVideoConnectivity(OriginalAlarmRecord record){
         long tblId = record.getTblId();
         String alarmId = record.getId();
         String imagePath = record.getImagePath();
         String videoPath = record.getVideoPath();
         String encodedUrl = encodeVideoUrl(videoPath);
 
-        for (int retry = 1; retry <= MAX_RETRY_TIMES; retry++) {
-            FFmpegFrameGrabber grabber = null;
-            try {
-                // 步骤1：检查连接性
-                if (!checkSingleConnectivity(encodedUrl)) {
-                    log.warn("第{}次连接测试失败| tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", retry, tblId, alarmId, imagePath, videoPath);
-                    if (retry < MAX_RETRY_TIMES) {
-                        Thread.sleep(RETRY_INTERVAL_MS);
-                        log.warn("等待{}ms后重试 | tblId:{} | alarmId:{} |imagePath:{} | videoPath:{}", retry, tblId, alarmId, imagePath, videoPath);
-                    }
-                    continue;
-                }
-                log.info("视频连接测试成功 | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
-
-                // 步骤2：元数据校验（失败时也重试）
-                grabber = new FFmpegFrameGrabber(encodedUrl);
-                configureGrabber(grabber); // 假设configureGrabber是当前类的方法，用于配置grabber
-                grabber.start();
-
-                boolean metaValid = VideoCheckUtil.checkVideoMetaData(grabber, record, alarmId);
-                if (metaValid) {
-                    log.info("视频元数据校验成功 | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
-                    return true;
-                } else {
-                    log.warn("视频元数据校验失败 | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
-                    return false;
-                }
-            } catch (InterruptedException e) {
-                log.error("视频连通测试and元数据校验中断 | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{} | 异常详情:{}", tblId, alarmId, imagePath, videoPath, e.getMessage());
-                Thread.currentThread().interrupt(); // 恢复中断状态
-                return false; // 中断后直接退出，不重试
-            } catch (IOException e) {
-                log.error("视频连通测试and元数据校验IO异常 | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{} | 异常详情:{}", tblId, alarmId, imagePath, videoPath, e.getMessage());
-                return false;
-            } catch (Exception e) { // 捕获其他未知异常
-                log.error("视频连通测试and元数据校验未知异常 | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{} | 异常详情:{}", tblId, alarmId, imagePath, videoPath, e.getMessage());
-                return false;
-            } finally {
-                // 确保资源释放
-                if (grabber != null) {
-                    try {
-                        grabber.stop();
-                        grabber.close();
-                    } catch (Exception e) {
-                        log.error("视频连接测试资源释放异常 | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{} | 异常详情:{}", tblId, alarmId, imagePath, videoPath, e.getMessage());
-                        return false;
-                    }
-                }
-            }
+        VideoSession session;
+        try {
+            // 步骤1：打开视频会话（下载或建立连接并读取容器信息）
+            session = openSession(videoPath, encodedUrl);
+        } catch (IOException e) {
+            log.warn("视频连接测试失败 | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{} | 异常详情:{}", tblId, alarmId, imagePath, videoPath, e.getMessage());
+            return ConnectivityResult.UNREACHABLE;
+        } catch (Exception e) { // 捕获其他未知异常
+            log.error("视频连通测试and元数据校验未知异常 | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{} | 异常详情:{}", tblId, alarmId, imagePath, videoPath, e.getMessage());
+            return ConnectivityResult.INVALID;
         }
-        log.error("有效等待时长and重试次数中，视频连通and元数据未测试成功 | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
-        return false;
-    }
+        log.info("视频连接测试成功 | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
 
-    /**
-     * @desc 视频链接单次连通性校验
-     * @param encodedUrl
-     * @return
-     * @throws IOException
-     */
-    private boolean checkSingleConnectivity(String encodedUrl) throws IOException {
-        HttpURLConnection conn = null;
+        // 步骤2：元数据校验（基于已打开的容器信息，不再重复连接）
+        boolean metaValid;
         try {
-            URL url = new URL(encodedUrl);
-            conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("HEAD");
-            conn.setConnectTimeout(5000);
-            conn.setReadTimeout(5000);
-            int code = conn.getResponseCode();
-            return code == HttpURLConnection.HTTP_OK || code == HttpURLConnection.HTTP_MOVED_TEMP;
-        } finally {
-            if (conn != null) conn.disconnect();
+            metaValid = VideoCheckUtil.checkContainerMetaData(session.getGrabber(), record, alarmId);
+        } catch (Exception e) {
+            log.error("视频连通测试and元数据校验未知异常 | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{} | 异常详情:{}", tblId, alarmId, imagePath, videoPath, e.getMessage());
+            metaValid = false;
         }
+        if (metaValid) {
+            log.info("视频元数据校验成功 | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
+            if (session.park(videoProperties.getSession().getMaxParked())) {
+                AlarmProcessingContext.of(record).attachVideoSession(session);
+            } else {
+                log.info("视频会话暂存数量已达上限，关闭会话由抽帧阶段重新打开 | tblId:{} | alarmId:{} | 暂存上限:{}", tblId, alarmId, videoProperties.getSession().getMaxParked());
+                session.close();
+            }
+            return ConnectivityResult.READY;
+        }
+        log.warn("视频元数据校验失败 | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
+        session.close();
+        return ConnectivityResult.INVALID;
     }
 
     /**
@@ -254,6 +256,127 @@ public class ExtractFrameAlgorithm {
         return list;
     }
 
+    /**
+     * @desc 百分比抽帧位置对应的时间戳
+     * @param grabber
+     * @return 微秒
+     */
+    private long[] percentageTimestamps(FFmpegFrameGrabber grabber) {
+        long lengthInTime = grabber.getLengthInTime();
+        if (lengthInTime <= 0) {
+            throw new IllegalStateException("视频时长为0");
+        }
+        long[] timestamps = new long[DEFAULT_PERCENTAGES.length];
+        for (int i = 0; i < DEFAULT_PERCENTAGES.length; i++) {
+            timestamps[i] = lengthInTime * DEFAULT_PERCENTAGES[i] / 100;
+        }
+        return timestamps;
+    }
+
+    /**
+     * @desc 目标位置按时间升序排列的图片序号
+     * @param timestamps
+     * @return
+     */
+    private static Integer[] sortedImageNos(long[] timestamps) {
+        Integer[] imageNos = new Integer[timestamps.length];
+        for (int i = 0; i < timestamps.length; i++) {
+            imageNos[i] = i;
+        }
+        Arrays.sort(imageNos, Comparator.comparingLong(i -> timestamps[i]));
+        return imageNos;
+    }
+
+    /**
+     * @desc 前向解码抽帧：目标位置排序后从首个目标seek一次，之后逐帧向前解码，越过目标位置时取帧；
+     *       相邻目标间隔超过maxGapMicros时改为seek，避免长距离逐帧解码
+     * @param grabber
+     * @param converter
+     * @param record
+     * @param saveDir
+     * @param timestamps 目标时间戳（微秒），下标即图片序号
+     * @param maxGapMicros
+     * @return
+     * @throws IOException
+     */
+    private List<FrameImageInfo> extractForward(FFmpegFrameGrabber grabber,
+                                                Java2DFrameConverter converter,
+                                                OriginalAlarmRecord record,
+                                                String saveDir,
+                                                long[] timestamps,
+                                                long maxGapMicros) throws IOException {
+        List<FrameImageInfo> list = new ArrayList<>();
+        Frame frame = null;
+        for (int imageNo : sortedImageNos(timestamps)) {
+            long target = timestamps[imageNo];
+            if (frame == null || target - grabber.getTimestamp() > maxGapMicros) {
+                grabber.setTimestamp(target);
+                frame = grabber.grabImage();
+            }
+            while (frame != null && grabber.getTimestamp() < target) {
+                frame = grabber.grabImage();
+            }
+            if (frame == null) {
+                break; // 视频已结束，后续目标位置均无帧
+            }
+            String imageUrl = generateImageUrl(saveDir, record.getId(), imageNo, record.getTblId());
+            saveFrameToFile(converter, frame, imageUrl);
+            list.add(buildFrameImageInfo(record, imageNo, imageUrl));
+        }
+        list.sort(Comparator.comparing(FrameImageInfo::getImageSortNo));
+        return list;
+    }
+
+    /**
+     * @desc 关键帧抽帧：单次前向读取，仅解码关键帧，每个目标位置取时间上最近的关键帧（相邻目标可能取到同一关键帧）
+     * @param grabber
+     * @param converter
+     * @param record
+     * @param saveDir
+     * @param timestamps 目标时间戳（微秒），下标即图片序号
+     * @return
+     * @throws IOException
+     */
+    private List<FrameImageInfo> extractNearestKeyFrames(FFmpegFrameGrabber grabber,
+                                                         Java2DFrameConverter converter,
+                                                         OriginalAlarmRecord record,
+                                                         String saveDir,
+                                                         long[] timestamps) throws IOException {
+        List<FrameImageInfo> list = new ArrayList<>();
+        Frame previous = null; //目标位置之前最近的关键帧（抓取器会复用帧缓冲，需复制保留）
+        long previousTimestamp = 0;
+        try {
+            Frame current = grabber.grabKeyFrame();
+            long currentTimestamp = grabber.getTimestamp();
+            for (int imageNo : sortedImageNos(timestamps)) {
+                long target = timestamps[imageNo];
+                while (current != null && currentTimestamp < target) {
+                    if (previous != null) {
+                        previous.close();
+                    }
+                    previous = current.clone();
+                    previousTimestamp = currentTimestamp;
+                    current = grabber.grabKeyFrame();
+                    currentTimestamp = grabber.getTimestamp();
+                }
+                Frame nearest = current == null || (previous != null && target - previousTimestamp < currentTimestamp - target)
+                        ? previous : current;
+                if (nearest == null) {
+                    break;
+                }
+                String imageUrl = generateImageUrl(saveDir, record.getId(), imageNo, record.getTblId());
+                saveFrameToFile(converter, nearest, imageUrl);
+                list.add(buildFrameImageInfo(record, imageNo, imageUrl));
+            }
+        } finally {
+            if (previous != null) {
+                previous.close();
+            }
+        }
+        list.sort(Comparator.comparing(FrameImageInfo::getImageSortNo));
+        return list;
+    }
+
     /**
      * @desc 视频url编码转换
      * @param videoPath
@@ -266,27 +389,38 @@ public class ExtractFrameAlgorithm {
     }
 
     /**
-     * @desc 抽帧图片路径逻辑
-     * @param time
+     * @desc 打开视频会话：开启本地视频缓存时读取本地文件（未缓存时下载），会话持有缓存租约至关闭，期间文件不会被淘汰；
+     *       未开启缓存或视频超过缓存容量上限时读取远程地址
+     * @param videoPath
+     * @param encodedUrl
      * @return
+     * @throws IOException 视频下载或连接失败
      */
-    private String buildImageSaveDir(LocalDateTime time) {
-        return imageBaseDir + File.separator + time.format(DATE_FORMATTER);
+    private VideoSession openSession(String videoPath, String encodedUrl) throws IOException {
+        int decodeThreads = videoProperties.getExtract().getDecodeThreads();
+        VideoFileCache.Lease lease = videoFileCache.supports(encodedUrl) ? videoFileCache.fetch(videoPath, encodedUrl) : null;
+        if (lease == null) {
+            return VideoSession.open(encodedUrl, decodeThreads);
+        }
+        try {
+            return VideoSession.open(lease.getPath().toString(), decodeThreads, lease);
+        } catch (IOException | RuntimeException e) {
+            lease.close();
+            throw e;
+        }
     }
 
     /**
-     * @desc grabber配置
-     * @param grabber
+     * @desc 抽帧图片路径逻辑
+     * @param time
+     * @return
      */
-    private void configureGrabber(FFmpegFrameGrabber grabber) {
-        grabber.setOption("timeout", "5000000");
-        grabber.setOption("reconnect", "1");
-        grabber.setOption("reconnect_streamed", "1");
-        grabber.setOption("fflags", "nobuffer");
+    private String buildImageSaveDir(LocalDateTime time) {
+        return imageBaseDir + File.separator + time.format(DATE_FORMATTER);
     }
 
     /**
-     * @desc 抽帧文件存储
+     * @desc 抽帧文件存储：优先原生编码，帧格式不支持时使用ImageIO
      * @param converter
      * @param frame
      * @param imageUrl
@@ -295,6 +429,9 @@ public class ExtractFrameAlgorithm {
     private void saveFrameToFile(Java2DFrameConverter converter, Frame frame, String imageUrl) throws IOException {
         File file = new File(imageUrl);
         if (!file.getParentFile().exists()) file.getParentFile().mkdirs();
+        if (jpegEncoder != null && jpegEncoder.write(frame, file)) {
+            return;
+        }
         ImageIO.write(converter.getBufferedImage(frame), IMAGE_FORMAT, file);
     }
 
@@ -3,6 +3,7 @@ package com.yuce.algorithm;
 import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yuce.entity.AlarmProcessingContext;
 import com.yuce.entity.ExtractWindowRecord;
 import com.yuce.entity.OriginalAlarmRecord;
 import com.yuce.service.impl.ExtractWindowServiceImpl;
@@ -63,8 +64,8 @@ public class ExtractWindowAlgorithm{
         String imagePath = record.getImagePath();
         String videoPath = record.getVideoPath();
 
-        // 重复提框校验（避免重复调用）
-        if (extractWindowServiceImpl.existsByTblId(tblId)) {
+        // 重复提框校验（避免重复调用，本次新增的告警记录无需查询）
+        if (!AlarmProcessingContext.of(record).isNewRecord() && extractWindowServiceImpl.existsByTblId(tblId)) {
             log.info("告警记录已调用提框算法,不再处理: tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
             return true;
         }
@@ -141,6 +142,7 @@ public class ExtractWindowAlgorithm{
                 extractWindowRecord.setPoint2X(point2.getIntValue("x"));
                 extractWindowRecord.setPoint2Y(point2.getIntValue("y"));
                 extractWindowServiceImpl.insertWindow(extractWindowRecord);
+                AlarmProcessingContext.of(record).setExtractWindow(extractWindowRecord);
                 log.info("提框算法调用成功, tblId:{} | alarmId:{} | imagePat:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
                 return true; // 所有流程正常，返回true
             }
@@ -58,14 +58,14 @@ public class FeatureElementAlgorithm {
         String imagePath = record.getImagePath();
         String videoPath = record.getVideoPath();
 
-        // 重复处理校验（避免重复入库）
-        if (featureElementServiceImpl.isExistByTblId(tblId)) {
+        // 重复处理校验（避免重复入库，本次新增的告警记录无需查询）
+        if (!AlarmProcessingContext.of(record).isNewRecord() && featureElementServiceImpl.isExistByTblId(tblId)) {
             log.info("告警记录完成特征要素,不再处理 | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
             return true;
         }
 
         // 填充特征要素属性值
-        CheckAlarmResult checkResult = checkAlarmResultMapper.getResultByTblId(tblId);
+        CheckAlarmResult checkResult = AlarmProcessingContext.of(record).getCheckResult(() -> checkAlarmResultMapper.getResultByTblId(tblId));
         if (checkResult == null) {
             log.info("自研算法_缺失算法初检结果，无法进行后续处理 | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
             return false;
@@ -137,8 +137,8 @@ public class FeatureElementAlgorithm {
         String imagePath = record.getImagePath();
         String videoPath = record.getVideoPath();
 
-        // 2. 重复处理校验
-        if (featureElementServiceImpl.isExistByTblId(tblId)) {
+        // 2. 重复处理校验（本次新增的告警记录无需查询）
+        if (!AlarmProcessingContext.of(record).isNewRecord() && featureElementServiceImpl.isExistByTblId(tblId)) {
             log.info("告警记录已完成特征要素,不再处理 | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
         }else{
             // 3. 初始化基础属性字段
@@ -94,7 +94,7 @@ public class PersonAlgorithm {
         String videoPath = record.getVideoPath();
 
         // 2. 重复处理校验（避免重复调用接口和入库）
-        if (isAlreadyChecked(tblId)) {
+        if (isAlreadyChecked(record)) {
             return true;
         }
 
@@ -118,7 +118,7 @@ public class PersonAlgorithm {
             }
 
             // 4.2 查询提框坐标（后续计算IOU必需）
-            ExtractWindowRecord extractRecord = getExtractWindowRecord(alarmId, imagePath, videoPath);
+            ExtractWindowRecord extractRecord = getExtractWindowRecord(record);
             if (extractRecord == null) {
                 log.error("告警记录提框失败：tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
                 return false;
@@ -148,8 +148,9 @@ public class PersonAlgorithm {
     /**
      * 检查告警是否已处理（通过初检结果判断）
      */
-    private boolean isAlreadyChecked(long tblId) {
-        CheckAlarmResult checkAlarmResult = checkAlarmResultMapper.getResultByTblId(tblId);
+    private boolean isAlreadyChecked(OriginalAlarmRecord record) {
+        CheckAlarmResult checkAlarmResult = AlarmProcessingContext.of(record)
+                .getCheckResult(() -> checkAlarmResultMapper.getResultByTblId(record.getTblId()));
         if(checkAlarmResult == null){
             return false;
         } else{
@@ -166,8 +167,8 @@ public class PersonAlgorithm {
         root.put("alarm_type", Collections.singletonList(Constant.ALARM_TYPE));
 
         // 2. 查询帧图片列表（接口需要每张图片的信息）
-        List<FrameImageInfo> frameList = frameImageService.getFrameListByKey(
-                record.getId(), record.getImagePath(), record.getVideoPath());
+        List<FrameImageInfo> frameList = AlarmProcessingContext.of(record).getFrameList(() -> frameImageService.getFrameListByKey(
+                record.getId(), record.getImagePath(), record.getVideoPath()));
         if (CollectionUtils.isEmpty(frameList)) {
             log.warn("未获取到抽帧图片, tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", record.getTblId(), record.getId(), record.getImagePath(), record.getVideoPath());
             root.put("messages", new ArrayList<>());
@@ -268,9 +269,10 @@ public class PersonAlgorithm {
     /**
      * 查询提框记录（用于计算IOU）
      */
-    private ExtractWindowRecord getExtractWindowRecord(String alarmId, String imagePath, String videoPath) {
+    private ExtractWindowRecord getExtractWindowRecord(OriginalAlarmRecord record) {
         try {
-            return extractWindowServiceImpl.getExtractWindow(alarmId, imagePath, videoPath);
+            return AlarmProcessingContext.of(record).getExtractWindow(() -> extractWindowServiceImpl.getExtractWindow(
+                    record.getId(), record.getImagePath(), record.getVideoPath()));
         } catch (Exception e) {
             return null;
         }
@@ -0,0 +1,235 @@
+package com.yuce.algorithm;
+
+import com.yuce.config.PreFilterProperties;
+import com.yuce.entity.OriginalAlarmRecord;
+import com.yuce.entity.PreFilterRule;
+import com.yuce.service.impl.PreFilterRuleServiceImpl;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 告警预筛选服务：仅依据告警记录字段匹配规则，命中后调用通用算法给出初检结果，跳过视频访问、抽帧、提框及算法调用
+ *  规则来源：配置文件（pre-filter.rules）及数据库（alarm_pre_filter_rule，开启后定时刷新），按优先级升序匹配，首条命中生效
+ */
+@Slf4j
+@Component
+public class PreFilterAlgorithm {
+
+    @Autowired
+    private PreFilterProperties preFilterProperties;
+
+    @Autowired
+    private PreFilterRuleServiceImpl preFilterRuleServiceImpl;
+
+    @Autowired
+    private GeneralAlgorithm generalAlgorithm;
+
+    private volatile List<CompiledRule> compiledRules = Collections.emptyList();
+
+    private final Map<String, AtomicLong> hitCounts = new ConcurrentHashMap<>(); //规则来源:名称 -> 命中次数，规则刷新后保留
+
+    /**
+     * 预解析后的规则：取值列表转为集合，时段转为分钟数，匹配时不再解析字符串
+     */
+    private static class CompiledRule {
+        private final PreFilterRule rule;
+        private final String source; //yaml、db
+        private final Set<String> companies;
+        private final Set<String> eventTypes;
+        private final Set<String> roadIds;
+        private final Set<String> deviceIds;
+        private final int startMinute; //-1表示不限
+        private final int endMinute;
+
+        private CompiledRule(PreFilterRule rule, String source) {
+            this.rule = rule;
+            this.source = source;
+            this.companies = split(rule.getCompanies());
+            this.eventTypes = split(rule.getEventTypes());
+            this.roadIds = split(rule.getRoadIds());
+            this.deviceIds = split(rule.getDeviceIds());
+            if (StringUtils.hasText(rule.getStartTime()) && StringUtils.hasText(rule.getEndTime())) {
+                this.startMinute = toMinute(rule.getStartTime());
+                this.endMinute = toMinute(rule.getEndTime());
+            } else {
+                this.startMinute = -1;
+                this.endMinute = -1;
+            }
+        }
+
+        private String key() {
+            return source + ":" + (rule.getId() == null ? rule.getRuleName() : rule.getId());
+        }
+
+        private boolean matches(OriginalAlarmRecord record) {
+            return contains(companies, record.getCompany())
+                    && contains(eventTypes, record.getEventType())
+                    && contains(roadIds, record.getRoadId())
+                    && contains(deviceIds, record.getDeviceId())
+                    && inWindow(record.getAlarmTime());
+        }
+
+        private boolean inWindow(LocalDateTime alarmTime) {
+            if (startMinute < 0) {
+                return true;
+            }
+            if (alarmTime == null) {
+                return false;
+            }
+            int minute = alarmTime.getHour() * 60 + alarmTime.getMinute();
+            if (startMinute <= endMinute) {
+                return minute >= startMinute && minute < endMinute;
+            }
+            // 跨天时段，如17:00~06:00
+            return minute >= startMinute || minute < endMinute;
+        }
+
+        private static boolean contains(Set<String> values, String value) {
+            return values.isEmpty() || (value != null && values.contains(value));
+        }
+
+        private static Set<String> split(String values) {
+            if (!StringUtils.hasText(values)) {
+                return Collections.emptySet();
+            }
+            Set<String> set = new HashSet<>();
+            for (String value : values.split(",")) {
+                if (StringUtils.hasText(value)) {
+                    set.add(value.trim());
+                }
+            }
+            return set;
+        }
+
+        private static int toMinute(String time) {
+            LocalTime localTime = LocalTime.parse(time.trim());
+            return localTime.getHour() * 60 + localTime.getMinute();
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        refresh();
+    }
+
+    /**
+     * @desc 定时刷新数据库规则
+     */
+    @Scheduled(initialDelayString = "${pre-filter.refresh-interval-ms:60000}", fixedDelayString = "${pre-filter.refresh-interval-ms:60000}")
+    public void scheduledRefresh() {
+        if (preFilterProperties.isDbEnabled()) {
+            refresh();
+        }
+    }
+
+    /**
+     * @desc 重新加载并预解析规则：配置错误的规则跳过；数据库查询失败时保留上次加载的数据库规则
+     * @return 生效规则数量
+     */
+    public synchronized int refresh() {
+        List<CompiledRule> rules = new ArrayList<>();
+        for (PreFilterRule rule : preFilterProperties.getRules()) {
+            compile(rule, "yaml", rules);
+        }
+        if (preFilterProperties.isDbEnabled()) {
+            try {
+                for (PreFilterRule rule : preFilterRuleServiceImpl.getEnabledRules()) {
+                    compile(rule, "db", rules);
+                }
+            } catch (Exception e) {
+                log.error("告警预筛选数据库规则加载失败，沿用上次加载的规则 | 异常详情:", e);
+                for (CompiledRule previous : compiledRules) {
+                    if ("db".equals(previous.source)) {
+                        rules.add(previous);
+                    }
+                }
+            }
+        }
+        rules.sort(Comparator.comparingInt(compiled -> compiled.rule.getPriority() == null ? 0 : compiled.rule.getPriority()));
+        compiledRules = Collections.unmodifiableList(rules);
+        log.debug("告警预筛选规则加载完成 | 生效规则数:{}", rules.size());
+        return rules.size();
+    }
+
+    private void compile(PreFilterRule rule, String source, List<CompiledRule> rules) {
+        if (Boolean.FALSE.equals(rule.getEnabled())) {
+            return;
+        }
+        if (rule.getCheckFlag() == null) {
+            log.warn("告警预筛选规则未配置初检结果，已跳过 | 来源:{} | 规则:{}", source, rule.getRuleName());
+            return;
+        }
+        try {
+            rules.add(new CompiledRule(rule, source));
+        } catch (DateTimeParseException e) {
+            log.warn("告警预筛选规则时段格式错误（应为HH:mm），已跳过 | 来源:{} | 规则:{} | 时段:{}~{}", source, rule.getRuleName(), rule.getStartTime(), rule.getEndTime());
+        }
+    }
+
+    /**
+     * @desc 按规则预筛选，命中后调用通用算法写入初检结果
+     * @param record
+     * @return 是否命中规则（命中后处理结束）
+     */
+    public boolean preFilterDeal(OriginalAlarmRecord record) {
+        CompiledRule compiled = match(record);
+        if (compiled == null) {
+            return false;
+        }
+        hitCounts.computeIfAbsent(compiled.key(), key -> new AtomicLong()).incrementAndGet();
+        PreFilterRule rule = compiled.rule;
+        String reason = rule.getReason() == null ? "" : rule.getReason();
+        log.info("告警预筛选命中规则，跳过视频及算法处理 | 规则:{} | 初检结果:{} | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", rule.getRuleName(), rule.getCheckFlag(), record.getTblId(), record.getId(), record.getImagePath(), record.getVideoPath());
+        generalAlgorithm.checkDeal(record, reason, rule.getCheckFlag());
+        return true;
+    }
+
+    /**
+     * @desc 是否命中预筛选规则（仅判断，不写入结果、不计入命中次数），用于入口处理通道分类
+     * @param record
+     * @return
+     */
+    public boolean matches(OriginalAlarmRecord record) {
+        return match(record) != null;
+    }
+
+    private CompiledRule match(OriginalAlarmRecord record) {
+        if (!preFilterProperties.isEnabled()) {
+            return null;
+        }
+        for (CompiledRule compiled : compiledRules) {
+            if (compiled.matches(record)) {
+                return compiled;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @desc 生效规则及命中次数
+     * @return
+     */
+    public List<Map<String, Object>> ruleStats() {
+        List<Map<String, Object>> stats = new ArrayList<>();
+        for (CompiledRule compiled : compiledRules) {
+            Map<String, Object> stat = new LinkedHashMap<>();
+            stat.put("source", compiled.source);
+            stat.put("rule", compiled.rule);
+            AtomicLong hitCount = hitCounts.get(compiled.key());
+            stat.put("hitCount", hitCount == null ? 0 : hitCount.get());
+            stats.add(stat);
+        }
+        return stats;
+    }
+}
@@ -1,6 +1,7 @@
 package com.yuce.algorithm;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yuce.entity.AlarmProcessingContext;
 import com.yuce.entity.CheckAlarmResult;
 import com.yuce.entity.FrameImageInfo;
 import com.yuce.entity.OriginalAlarmRecord;
@@ -89,7 +90,7 @@ public class PswAlgorithm {
         String videoPath = record.getVideoPath();
 
         // 2. 检查是否已处理（避免重复调用接口和数据冗余）
-        if (isAlreadyProcessed(tblId)) {
+        if (isAlreadyProcessed(record)) {
             log.info("抛洒物算法已处理，跳过 | tblId:{} | alarmId:{} | imagePath:{}",
                     tblId, alarmId, imagePath);
             return true;
@@ -118,12 +119,12 @@ public class PswAlgorithm {
     /**
      * 检查告警是否已处理（通过查询检测结果判断）
      */
-    private boolean isAlreadyProcessed(long tblId) {
+    private boolean isAlreadyProcessed(OriginalAlarmRecord record) {
         try {
-            CheckAlarmResult result = checkAlarmResultMapper.getResultByTblId(tblId);
+            CheckAlarmResult result = AlarmProcessingContext.of(record).getCheckResult(() -> checkAlarmResultMapper.getResultByTblId(record.getTblId()));
             return result != null;
         } catch (Exception e) {
-            log.error("查询抛洒物算法处理状态异常,默认按未处理继续 |tblId:{} | 异常详情:{}", tblId, e);
+            log.error("查询抛洒物算法处理状态异常,默认按未处理继续 |tblId:{} | 异常详情:{}", record.getTblId(), e);
             return false; // 查库异常时允许继续处理，避免阻塞流程
         }
     }
@@ -138,8 +139,8 @@ public class PswAlgorithm {
         root.put("alarm_type", Collections.singletonList(Constant.ALARM_TYPE));
 
         // 2. 查询帧图片列表（接口需要的核心数据）
-        List<FrameImageInfo> frameList = frameImageMapper.getFrameListByKey(
-                record.getId(), record.getImagePath(), record.getVideoPath());
+        List<FrameImageInfo> frameList = AlarmProcessingContext.of(record).getFrameList(() -> frameImageMapper.getFrameListByKey(
+                record.getId(), record.getImagePath(), record.getVideoPath()));
         if (CollectionUtils.isEmpty(frameList)) {
             log.error("未查询到帧图片列表,请求将包含空消息 | alarmId:{} | imagePath:{} | videoPath:{}", record.getId(), record.getImagePath(), record.getVideoPath());
             root.put("messages", new ArrayList<>());
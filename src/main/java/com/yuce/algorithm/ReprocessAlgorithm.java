@@ -0,0 +1,65 @@
+package com.yuce.algorithm;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.yuce.entity.*;
+import com.yuce.service.impl.*;
+import com.yuce.util.FlagTagUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * 告警重新处理服务：清理告警记录的派生结果（抽帧、路面检测、算法过程、初检结果、特征要素、告警组），
+ * 使告警可以重新走完整算法链路；告警集按alarmId归属更新，无需清理
+ */
+@Slf4j
+@Component
+public class ReprocessAlgorithm {
+
+    @Autowired
+    private CheckAlarmResultServiceImpl checkAlarmResultServiceImpl;
+
+    @Autowired
+    private FeatureElementServiceImpl featureElementServiceImpl;
+
+    @Autowired
+    private CollectionGroupServiceImpl collectionGroupServiceImpl;
+
+    @Autowired
+    private FrameImageServiceImpl frameImageServiceImpl;
+
+    @Autowired
+    private RoadCheckRecordServiceImpl roadCheckRecordServiceImpl;
+
+    @Autowired
+    private CheckAlarmProcessServiceImpl checkAlarmProcessServiceImpl;
+
+    @Autowired
+    private AlarmPipelineStateServiceImpl alarmPipelineStateServiceImpl;
+
+    /**
+     * @desc 当前初检结果是否为"无法判断"（或尚无初检结果），只有此类结果允许被重新处理覆盖
+     * @param tblId
+     * @return
+     */
+    public boolean isUpgradable(long tblId) {
+        CheckAlarmResult result = checkAlarmResultServiceImpl.getResultByTblId(tblId);
+        return result == null || result.getCheckFlag() == null || result.getCheckFlag() == FlagTagUtil.CHECK_RESULT_UNKNOWN;
+    }
+
+    /**
+     * @desc 清理告警记录的派生结果
+     * @param record
+     */
+    public void resetDerivedResults(OriginalAlarmRecord record) {
+        long tblId = record.getTblId();
+        frameImageServiceImpl.remove(new QueryWrapper<FrameImageInfo>().eq("tbl_id", tblId));
+        roadCheckRecordServiceImpl.remove(new QueryWrapper<RoadCheckRecord>().eq("tbl_id", tblId));
+        checkAlarmProcessServiceImpl.remove(new QueryWrapper<CheckAlarmProcess>().eq("tbl_id", tblId));
+        checkAlarmResultServiceImpl.remove(new QueryWrapper<CheckAlarmResult>().eq("tbl_id", tblId));
+        featureElementServiceImpl.remove(new QueryWrapper<FeatureElementRecord>().eq("tbl_id", tblId));
+        collectionGroupServiceImpl.remove(new QueryWrapper<CollectionGroupRecord>().eq("tbl_id", tblId));
+        alarmPipelineStateServiceImpl.clear(tblId);
+        log.info("告警记录派生结果已清理，准备重新处理 | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, record.getId(), record.getImagePath(), record.getVideoPath());
+    }
+}
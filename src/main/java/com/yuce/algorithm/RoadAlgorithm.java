@@ -65,15 +65,16 @@ public class RoadAlgorithm {
         String eventType = record.getEventType();
 
         /**
-         * 检查路面算法是否已检测
+         * 检查路面算法是否已检测（本次新增的告警记录无需查询）
          */
-        if(roadCheckRecordServiceImpl.getRecordByTblIdAndType(tblId,"road").size() > 0){
+        AlarmProcessingContext context = AlarmProcessingContext.of(record);
+        if(!context.isNewRecord() && roadCheckRecordServiceImpl.getRecordByTblIdAndType(tblId,"road").size() > 0){
             log.info("路面算法已检测：tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
             return;
         }
 
         //获取抽帧3张图的中间图片
-        FrameImageInfo frameImageInfo = frameImageServiceImpl.getFrameByKeyAndNo(alarmId, imagePath, videoPath, 1);
+        FrameImageInfo frameImageInfo = context.getFrame(1, () -> frameImageServiceImpl.getFrameListByKey(alarmId, imagePath, videoPath));
 
         String jsonBody;
         try {
@@ -101,7 +102,7 @@ public class RoadAlgorithm {
             }
 
             //获取该告警id对应的抽框坐标
-            ExtractWindowRecord extractWindowRecord = extractWindowServiceImpl.getExtractWindow(alarmId, imagePath, videoPath);
+            ExtractWindowRecord extractWindowRecord = context.getExtractWindow(() -> extractWindowServiceImpl.getExtractWindow(alarmId, imagePath, videoPath));
             int baseX1 = extractWindowRecord.getPoint1X();
             int baseY1 = extractWindowRecord.getPoint1Y();
             int baseX2 = extractWindowRecord.getPoint2X();
@@ -3,6 +3,7 @@ package com.yuce.algorithm;
 import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yuce.entity.AlarmProcessingContext;
 import com.yuce.entity.CheckAlarmProcess;
 import com.yuce.entity.ExtractWindowRecord;
 import com.yuce.entity.FrameImageInfo;
@@ -104,7 +105,7 @@ public class VehicleAlgorithm {
         log.info("开始停驶算法处理 | {}", logPrefix);
 
         // 3. 重复检测校验（避免重复调用接口）
-        if (isAlreadyProcessed(tblId)) {
+        if (isAlreadyProcessed(record)) {
             log.info("停驶算法已处理，跳过 | {}", logPrefix);
             return true;
         }
@@ -132,11 +133,11 @@ public class VehicleAlgorithm {
     /**
      * 检查是否已处理（通过查询检测结果判断）
      */
-    private boolean isAlreadyProcessed(long tblId) {
+    private boolean isAlreadyProcessed(OriginalAlarmRecord record) {
         try {
-            return checkAlarmResultMapper.getResultByTblId(tblId) != null;
+            return AlarmProcessingContext.of(record).getCheckResult(() -> checkAlarmResultMapper.getResultByTblId(record.getTblId())) != null;
         } catch (Exception e) {
-            log.error("查询停驶算法处理状态异常 | tblId:{} | 异常:{}", tblId, e.getMessage());
+            log.error("查询停驶算法处理状态异常 | tblId:{} | 异常:{}", record.getTblId(), e.getMessage());
             return false; // 查库异常时允许继续处理，避免阻塞流程
         }
     }
@@ -150,8 +151,8 @@ public class VehicleAlgorithm {
         root.put("alarm_type", Collections.singletonList(Constant.ALARM_TYPE));
 
         // 2. 查询帧图片列表（接口需要的核心数据）
-        List<FrameImageInfo> frameList = frameImageService.getFrameListByKey(
-                record.getId(), record.getImagePath(), record.getVideoPath());
+        List<FrameImageInfo> frameList = AlarmProcessingContext.of(record).getFrameList(() -> frameImageService.getFrameListByKey(
+                record.getId(), record.getImagePath(), record.getVideoPath()));
         if (CollectionUtils.isEmpty(frameList)) {
             log.warn("未查询到帧图片列表，请求将包含空消息 | {}", logPrefix);
             root.put("messages", new ArrayList<>());
@@ -278,7 +279,8 @@ public class VehicleAlgorithm {
         LocalDateTime now = LocalDateTime.now();
 
         // 1. 获取提框坐标（计算IOU必需）
-        ExtractWindowRecord extractRecord = extractWindowService.getExtractWindow(alarmId, imagePath, videoPath);
+        ExtractWindowRecord extractRecord = AlarmProcessingContext.of(record)
+                .getExtractWindow(() -> extractWindowService.getExtractWindow(alarmId, imagePath, videoPath));
         if (extractRecord == null) {
             log.error("解析响应失败 | {} | 未查询到提框记录", logPrefix);
             return false;
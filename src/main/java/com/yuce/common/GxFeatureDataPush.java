@@ -2,6 +2,7 @@ package com.yuce.common;
 
 import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
+import com.yuce.entity.AlarmProcessingContext;
 import com.yuce.entity.AlarmCollection;
 import com.yuce.entity.FeatureElementRecord;
 import com.yuce.entity.OriginalAlarmRecord;
@@ -41,7 +42,8 @@ public class GxFeatureDataPush {
     public void pushToGx(OriginalAlarmRecord record) {
         try {
             // 查询告警集
-            AlarmCollection alarmCollection = alarmCollectionServiceImpl.getCollectionByTblId(record.getTblId());
+            AlarmCollection alarmCollection = AlarmProcessingContext.of(record)
+                    .getCollection(() -> alarmCollectionServiceImpl.getCollectionByTblId(record.getTblId()));
             if (alarmCollection == null) {
                 log.warn("未找到alarmId->{},image_path->{},video_path->{}对应的告警集", record.getTblId());
                 return;
@@ -0,0 +1,26 @@
+package com.yuce.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 死信暂存配置：处理失败的告警追加写入本地文件，检测服务恢复后定时重放
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "dead-letter")
+public class DeadLetterProperties {
+    private boolean enabled = true; //是否开启死信暂存及重放
+    private String spoolDir = "/data/dead-letter"; //死信文件存储目录
+    private long baseBackoffMs = 60000; //首次重放退避时间（毫秒），之后按2的指数递增
+    private long maxBackoffMs = 3600000; //最大退避时间（毫秒）
+    private int maxAttempts = 8; //最大重放次数，超过后放弃
+    private int replayConcurrency = 4; //重放并发数
+    private int replayBatchSize = 50; //单轮最多重放条数
+    private long replayIntervalMs = 30000; //重放调度间隔（毫秒）
+    private List<String> healthCheckUrls = new ArrayList<>(); //检测服务地址，全部可连通时才进行重放
+}
@@ -0,0 +1,19 @@
+package com.yuce.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 告警幂等过滤配置：内存布隆过滤器 + 已确认联合主键LRU，仅疑似重复时才查询数据库
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "idempotency")
+public class IdempotencyProperties {
+    private boolean enabled = true; //是否开启内存幂等过滤，关闭后每条告警均查询数据库判重
+    private int expectedInsertions = 2000000; //单代布隆过滤器容量，写满后轮换，保留当前及上一代
+    private double falsePositiveRate = 0.01; //布隆过滤器误判率
+    private int lruCapacity = 200000; //已确认联合主键（含tblId）缓存数量
+    private int seedLimit = 500000; //启动时按tblId倒序加载的最近记录数量
+}
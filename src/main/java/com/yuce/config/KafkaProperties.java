@@ -21,6 +21,12 @@ public class KafkaProperties {
     private List<String> bootstrapServers;
     private Consumer consumer;
     private Topic topic;
+    private Worker worker = new Worker();
+    private Backpressure backpressure = new Backpressure();
+    private Scaling scaling = new Scaling();
+    private Shutdown shutdown = new Shutdown();
+    private Replay replay = new Replay();
+    private Journal journal = new Journal();
 
     @Data
     public static class Consumer {
@@ -36,4 +42,71 @@ public class KafkaProperties {
     public static class Topic {
         private String videoAlarmDetail;
     }
-}
\ No newline at end of file
+
+    /**
+     * 消息处理工作线程池配置：开启后拉取线程只负责分发，告警处理在按设备分片的工作线程中执行
+     */
+    @Data
+    public static class Worker {
+        private boolean enabled = false; //是否开启工作线程池处理模式
+        private int threads = 16; //工作线程（通道）数量，同一设备告警固定落在同一通道
+        private int queueCapacity = 16; //单通道排队容量（同设备等待前一告警处理结束的任务总数上限为threads*queueCapacity），满时拉取线程不阻塞，任务按分区暂存并暂停该分区拉取
+        private int fastThreads = 0; //快速通道工作线程数，为0时不区分通道；快速通道仅处理无需视频分析的告警
+        private int fastQueueCapacity = 64; //快速通道单通道排队容量
+    }
+
+    /**
+     * 分区背压配置：分区在途消息数达到高水位时暂停拉取，回落到低水位后恢复，仅工作线程池模式生效
+     */
+    @Data
+    public static class Backpressure {
+        private boolean enabled = true; //是否开启分区背压
+        private int highWatermark = 200; //单分区在途消息高水位，达到后暂停该分区
+        private int lowWatermark = 50; //单分区在途消息低水位，回落到此值后恢复该分区
+    }
+
+    /**
+     * consumer弹性伸缩配置：按消费积压在上下限之间增减consumer数量
+     */
+    @Data
+    public static class Scaling {
+        private boolean enabled = false; //是否开启按积压自动伸缩
+        private int initialConsumers = 5; //启动时consumer数量
+        private int minConsumers = 1; //consumer数量下限
+        private int maxConsumers = 10; //consumer数量上限，超过分区数的consumer不会分配到分区
+        private long scaleUpLag = 5000; //总积压达到该值时扩容
+        private long scaleDownLag = 500; //总积压低于该值时缩容
+        private int step = 1; //单次伸缩数量
+        private long checkIntervalMs = 60000; //积压检测间隔（毫秒）
+    }
+
+    /**
+     * 停机配置：应用关闭时停止拉取，等待在途告警处理完成后提交最终偏移量并关闭consumer
+     */
+    @Data
+    public static class Shutdown {
+        private long drainTimeoutMs = 30000; //等待在途消息处理完成的最长时间（毫秒），缩容停止consumer时同样适用
+    }
+
+    /**
+     * 按时间段回放配置：独立消费组按分区直接定位起止偏移量，回放处理与在线消费互不影响
+     */
+    @Data
+    public static class Replay {
+        private String groupId; //回放消费组，为空时使用 在线消费组-replay
+        private int readers = 2; //拉取consumer数量，分区在其间平均分配
+        private int threads = 16; //默认处理并行度，可由接口参数覆盖
+        private int queueCapacity = 32; //单处理通道排队容量
+    }
+
+    /**
+     * 本地消息日志配置：拉取的消息先写入内存映射分段文件并提交偏移量，处理线程按自身游标读取处理
+     */
+    @Data
+    public static class Journal {
+        private boolean enabled = false; //是否开启本地消息日志
+        private String dir = "/data/ingest-journal"; //日志目录
+        private int segmentBytes = 67108864; //单分段文件大小（字节）
+        private long maxBacklog = 500000; //未处理条目上限，达到后暂停拉取，回落到一半后恢复
+    }
+}
@@ -0,0 +1,25 @@
+package com.yuce.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * mysql历史告警回放配置：按tblId区间（keyset）分页读取备份表，筛选条件下推至SQL，多工作线程并行处理并定期记录进度
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "mysql-replay")
+public class MysqlReplayProperties {
+    private String table = "kafka_original_alarm_record_bak_20260111"; //备份表名，仅允许kafka_original_alarm_record_bak_*格式
+    private List<String> roadIds = new ArrayList<>(); //目标道路编码，为空时不按道路筛选
+    private List<String> eventTypes = new ArrayList<>(); //目标事件类型，为空时不按事件类型筛选
+    private String startTime; //告警时间下限（yyyy-MM-dd HH:mm:ss），为空时不限
+    private String endTime; //告警时间上限（yyyy-MM-dd HH:mm:ss），为空时不限
+    private int workers = 4; //并行工作线程数，tblId区间按此数量等分
+    private int pageSize = 1000; //单页读取条数
+    private String checkpointDir = "/data/mysql-replay"; //进度文件存储目录
+}
@@ -0,0 +1,99 @@
+package com.yuce.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 告警分阶段处理配置：各阶段线程数、队列容量独立配置，未配置的阶段使用默认值
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "pipeline")
+public class PipelineProperties {
+    private Stage defaults = new Stage(); //未单独配置阶段的默认值
+    private Map<String, Stage> stages = new LinkedHashMap<>(); //阶段名称 -> 阶段配置
+    private RoadDetect roadDetect = new RoadDetect(); //路面检测与算法检测并发配置
+    private Freshness freshness = new Freshness(); //时效调度配置
+    private Fairness fairness = new Fairness(); //视频分析阶段前的按厂商、路段公平调度配置
+
+    @Data
+    public static class Stage {
+        private int threads = 8; //阶段线程数
+        private int queueCapacity = 64; //阶段队列容量，满时上游阻塞等待
+    }
+
+    @Data
+    public static class RoadDetect {
+        private boolean concurrent = false; //是否并发执行路面检测与算法检测，路面外告警会多一次算法调用
+        private List<String> eventTypes = new ArrayList<>(Arrays.asList("停驶", "行人")); //并发执行的事件类型
+    }
+
+    @Data
+    public static class Freshness {
+        private boolean enabled = true; //是否开启时效调度（仅对实时来源生效，历史回放、死信重放不受影响）
+        private List<String> priorityStages = new ArrayList<>(Arrays.asList("connectivity", "extract-frame", "extract-window", "road", "detect", "road-detect")); //积压时新告警优先出队的阶段
+        private long maxAgeMinutes = 30; //告警时延超过该值且视频分析积压时不再进行视频分析，走超时降级
+        private int backlogThreshold = 32; //视频分析排队告警数（公平调度排队数+时效优先阶段排队数）达到该值时视为积压，未积压时超过时效的告警照常分析
+        private boolean deferToDeadLetter = true; //超时降级后是否记入死信暂存，由死信重放在检测服务空闲时补做完整分析
+    }
+
+    @Data
+    public static class Fairness {
+        private boolean enabled = true; //是否开启公平调度，关闭时validate阶段直接进入connectivity阶段
+        private int maxInFlight = 48; //视频分析在途告警全局上限
+        private int defaultWeight = 1; //未配置key的权重
+        private int defaultMaxInFlight = 16; //未配置key的单key在途上限
+        private List<FairnessRule> rules = new ArrayList<>(); //按厂商、路段配置的权重及在途上限
+    }
+
+    /**
+     * 公平调度规则：company、roadId均配置时精确匹配，仅配置其一时匹配该厂商或路段的全部告警，精确规则优先
+     */
+    @Data
+    public static class FairnessRule {
+        private String company; //厂商，为空时不限
+        private String roadId; //路段ID，为空时不限
+        private Integer weight; //权重，为空时使用默认值
+        private Integer maxInFlight; //单key在途上限，为空时使用默认值
+    }
+
+    /**
+     * @desc 公平调度规则匹配：厂商+路段精确规则优先，其次厂商规则，再次路段规则
+     * @param company
+     * @param roadId
+     * @return 未匹配时返回null
+     */
+    public FairnessRule fairnessRuleOf(String company, String roadId) {
+        FairnessRule companyRule = null;
+        FairnessRule roadRule = null;
+        for (FairnessRule rule : fairness.getRules()) {
+            boolean companyMatched = rule.getCompany() != null && rule.getCompany().equals(company);
+            boolean roadMatched = rule.getRoadId() != null && rule.getRoadId().equals(roadId);
+            if (companyMatched && roadMatched) {
+                return rule;
+            }
+            if (companyMatched && rule.getRoadId() == null && companyRule == null) {
+                companyRule = rule;
+            } else if (roadMatched && rule.getCompany() == null && roadRule == null) {
+                roadRule = rule;
+            }
+        }
+        return companyRule != null ? companyRule : roadRule;
+    }
+
+    /**
+     * @desc 获取阶段配置
+     * @param stageName
+     * @return
+     */
+    public Stage stageOf(String stageName) {
+        return stages.getOrDefault(stageName, defaults);
+    }
+}
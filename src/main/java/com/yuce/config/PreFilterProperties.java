@@ -0,0 +1,22 @@
+package com.yuce.config;
+
+import com.yuce.entity.PreFilterRule;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 告警预筛选配置：在视频访问及算法调用之前按规则直接给出初检结果，配置文件规则与数据库规则合并后按优先级匹配
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "pre-filter")
+public class PreFilterProperties {
+    private boolean enabled = true; //是否开启预筛选
+    private boolean dbEnabled = false; //是否加载数据库规则（alarm_pre_filter_rule）
+    private long refreshIntervalMs = 60000; //数据库规则刷新间隔（毫秒）
+    private List<PreFilterRule> rules = new ArrayList<>(); //配置文件规则
+}
@@ -21,5 +21,55 @@ public class VideoProperties {
     private int frameCount; //抽帧数量
     private int frameInterval; //帧数间隔
     private String imageBaseDir; //图片文件存储路径
-    private String videoBaseDir; //视频文件存储路径
+    private String videoBaseDir; //视频文件存储路径（本地视频缓存目录）
+    private Cache cache = new Cache(); //本地视频缓存配置
+    private ConnectRetry connectRetry = new ConnectRetry(); //视频连通性校验重试策略
+    private Extract extract = new Extract(); //抽帧解码配置
+    private Session session = new Session(); //视频会话暂存配置
+
+    /**
+     * 本地视频缓存：远程视频下载到videoBaseDir后本地读取，按总容量及最近访问时间淘汰
+     */
+    @Data
+    public static class Cache {
+        private boolean enabled = true; //是否开启，关闭时直接读取远程视频流
+        private long maxBytes = 20L << 30; //缓存总容量上限（字节）
+        private long maxAgeHours = 24; //最近访问超过该时长的文件删除
+        private long cleanIntervalMs = 60000; //定时淘汰间隔
+        private int connectTimeoutMs = 5000; //下载连接超时
+        private int readTimeoutMs = 30000; //下载读取超时
+    }
+
+    /**
+     * 视频连通性校验重试策略：连接失败的告警交由定时器在退避时间后重新进入连通性校验，不占用阶段线程等待；
+     * 单条告警处理最长延后 (maxAttempts-1)*intervalMs*(1+jitterRatio)；kafka来源告警异步等待，不占用消费通道线程
+     */
+    @Data
+    public static class ConnectRetry {
+        private int maxAttempts = 3; //最大连接次数（含首次），达到后降级为"无法判断"
+        private long intervalMs = 5000; //重试间隔
+        private double jitterRatio = 0.2; //间隔随机抖动比例，避免同一时刻失败的告警集中重试
+    }
+
+    /**
+     * 视频会话暂存：连通性校验打开的会话在抽帧队列中等待期间保持打开，数量及时长受限
+     */
+    @Data
+    public static class Session {
+        private int maxParked = 16; //全局暂存会话上限，超出时连通性校验后直接关闭，抽帧时重新打开
+        private long maxIdleMs = 5000; //暂存超过该时长的会话抽帧时关闭后重新打开，不复用可能已被服务端断开的连接
+    }
+
+    /**
+     * 抽帧解码配置
+     */
+    @Data
+    public static class Extract {
+        private boolean forwardOnly = true; //目标位置排序后单次前向解码，关闭时逐个目标位置seek（每次seek从前一关键帧重新解码）
+        private boolean snapToKeyframe = false; //取距目标位置最近的关键帧，仅解码关键帧，不要求精确帧时开启（仅前向解码模式生效）
+        private long forwardMaxGapMs = 3000; //前向解码时相邻目标间隔超过该值改为seek，避免长距离逐帧解码
+        private int decodeThreads = 0; //FFmpeg解码线程数，0表示由FFmpeg自动决定
+        private boolean nativeJpeg = true; //抽帧图片由OpenCV原生编码，关闭时使用BufferedImage+ImageIO
+        private int jpegQuality = 90; //原生编码JPEG质量（1~100）
+    }
 }
\ No newline at end of file
@@ -0,0 +1,131 @@
+package com.yuce.controller;
+
+import com.yuce.common.ApiResponse;
+import com.yuce.util.KafkaReplayUtil;
+import com.yuce.util.KafkaUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * kafka消费状态控制器
+ */
+@Slf4j
+@RestController
+@RequestMapping("/kafka")
+public class KafkaConsumerController {
+
+    @Autowired
+    private KafkaUtil kafkaUtil;
+
+    @Autowired
+    private KafkaReplayUtil kafkaReplayUtil;
+
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /**
+     * @desc 查询消费状态：背压高低水位、各分区在途深度及暂停情况
+     * @return
+     */
+    @GetMapping("/status")
+    public ApiResponse status() {
+        return ApiResponse.success(kafkaUtil.getConsumerStatus());
+    }
+
+    /**
+     * @desc 查询各分区消费积压（分区最新偏移量 - 消费组已提交偏移量）
+     * @return
+     */
+    @GetMapping("/lag")
+    public ApiResponse lag() {
+        Map<Integer, Long> partitionLag = kafkaUtil.getPartitionLag();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("totalLag", partitionLag.values().stream().mapToLong(Long::longValue).sum());
+        result.put("consumerCount", kafkaUtil.consumerCount());
+        result.put("partitionLag", partitionLag);
+        return ApiResponse.success(result);
+    }
+
+    /**
+     * @desc 手动扩容consumer，总数不超过配置上限
+     * @param count 新增数量
+     * @return
+     */
+    @PostMapping("/scaleUp")
+    public ApiResponse scaleUp(@RequestParam(value = "count", defaultValue = "1") int count) {
+        if (count <= 0) {
+            return ApiResponse.fail(400, "扩容数量必须大于0");
+        }
+        int added = kafkaUtil.scaleUp(count);
+        log.info("手动扩容kafka消费者 | 请求数量:{} | 实际新增:{}", count, added);
+        return ApiResponse.success("实际新增consumer数量:" + added + "，当前数量:" + kafkaUtil.consumerCount());
+    }
+
+    /**
+     * @desc 手动缩容consumer，总数不低于配置下限
+     * @param count 减少数量
+     * @return
+     */
+    @PostMapping("/scaleDown")
+    public ApiResponse scaleDown(@RequestParam(value = "count", defaultValue = "1") int count) {
+        if (count <= 0) {
+            return ApiResponse.fail(400, "缩容数量必须大于0");
+        }
+        int removed = kafkaUtil.scaleDown(count);
+        log.info("手动缩容kafka消费者 | 请求数量:{} | 实际减少:{}", count, removed);
+        return ApiResponse.success("实际减少consumer数量:" + removed + "，当前数量:" + kafkaUtil.consumerCount());
+    }
+
+    /**
+     * @desc 按时间段回放kafka消息：独立消费组定位到起始时间，处理至结束时间后自动停止
+     * @param startTime 起始时间（yyyy-MM-dd HH:mm:ss，含）
+     * @param endTime 结束时间（yyyy-MM-dd HH:mm:ss，不含）
+     * @param threads 处理并行度，不传时使用配置值
+     * @return
+     */
+    @PostMapping("/replay/start")
+    public ApiResponse startReplay(@RequestParam("startTime") String startTime,
+                                   @RequestParam("endTime") String endTime,
+                                   @RequestParam(value = "threads", defaultValue = "0") int threads) {
+        try {
+            Map<String, Object> status = kafkaReplayUtil.start(LocalDateTime.parse(startTime, TIME_FORMATTER), LocalDateTime.parse(endTime, TIME_FORMATTER), threads);
+            log.info("手动启动kafka回放 | 起始时间:{} | 结束时间:{} | 并行度:{}", startTime, endTime, threads);
+            return ApiResponse.success(status);
+        } catch (DateTimeParseException e) {
+            return ApiResponse.fail(400, "时间格式错误，需符合 yyyy-MM-dd HH:mm:ss 格式");
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return ApiResponse.fail(400, e.getMessage());
+        }
+    }
+
+    /**
+     * @desc 停止回放：停止拉取，已分发的消息继续处理完成
+     * @return
+     */
+    @PostMapping("/replay/stop")
+    public ApiResponse stopReplay() {
+        if (!kafkaReplayUtil.stop()) {
+            return ApiResponse.fail(400, "当前没有正在执行的回放任务");
+        }
+        return ApiResponse.success(kafkaReplayUtil.status());
+    }
+
+    /**
+     * @desc 查询回放进度：已处理消息数、处理速率及预计剩余时间
+     * @return
+     */
+    @GetMapping("/replay/status")
+    public ApiResponse replayStatus() {
+        return ApiResponse.success(kafkaReplayUtil.status());
+    }
+}
@@ -0,0 +1,176 @@
+package com.yuce.controller;
+
+import com.yuce.algorithm.AlarmAnalysisPipeline;
+import com.yuce.algorithm.PreFilterAlgorithm;
+import com.yuce.common.ApiResponse;
+import com.yuce.service.impl.AlarmPipelineStateServiceImpl;
+import com.yuce.task.JsonlFetchTask;
+import com.yuce.task.MysqlFetchTask;
+import com.yuce.util.VideoFileCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.nio.file.Paths;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+
+/**
+ * 告警分阶段处理状态控制器
+ */
+@RestController
+@RequestMapping("/pipeline")
+public class PipelineController {
+
+    @Autowired
+    private AlarmAnalysisPipeline alarmAnalysisPipeline;
+
+    @Autowired
+    private JsonlFetchTask jsonlFetchTask;
+
+    @Autowired
+    private MysqlFetchTask mysqlFetchTask;
+
+    @Autowired
+    private AlarmPipelineStateServiceImpl alarmPipelineStateServiceImpl;
+
+    @Autowired
+    private PreFilterAlgorithm preFilterAlgorithm;
+
+    @Autowired
+    private VideoFileCache videoFileCache;
+
+    /**
+     * @desc 查询各处理阶段状态：线程数、队列容量、排队数、执行中数量、完成数、异常数、平均耗时、排队耗时分位数
+     * @return
+     */
+    @GetMapping("/stages")
+    public ApiResponse stages() {
+        return ApiResponse.success(alarmAnalysisPipeline.stageStats());
+    }
+
+    /**
+     * @desc 查询时效调度状态：时效配置、实时告警进入视频分析时的告警时延分位数、超时降级数量
+     * @return
+     */
+    @GetMapping("/freshness")
+    public ApiResponse freshness() {
+        return ApiResponse.success(alarmAnalysisPipeline.freshnessStats());
+    }
+
+    /**
+     * @desc 查询公平调度状态：全局在途数及各厂商+路段的权重、在途上限、排队数、在途数、累计放行数、排队耗时分位数
+     * @return
+     */
+    @GetMapping("/fairness")
+    public ApiResponse fairness() {
+        Map<String, Object> stats = alarmAnalysisPipeline.fairnessStats();
+        if (stats == null) {
+            return ApiResponse.fail(400, "公平调度未开启");
+        }
+        return ApiResponse.success(stats);
+    }
+
+    /**
+     * @desc 查询本地视频缓存状态：文件数、占用、命中、下载、共享下载、淘汰次数
+     * @return
+     */
+    @GetMapping("/video-cache")
+    public ApiResponse videoCache() {
+        return ApiResponse.success(videoFileCache.stats());
+    }
+
+    /**
+     * @desc 查询单条告警的处理阶段状态：已完成阶段位掩码、各阶段完成时间、最近失败阶段及原因
+     * @param tblId
+     * @return
+     */
+    @GetMapping("/state")
+    public ApiResponse state(@RequestParam("tblId") long tblId) {
+        return ApiResponse.success(alarmPipelineStateServiceImpl.getState(tblId));
+    }
+
+    /**
+     * @desc 查询生效的预筛选规则及命中次数
+     * @return
+     */
+    @GetMapping("/pre-filter/rules")
+    public ApiResponse preFilterRules() {
+        return ApiResponse.success(preFilterAlgorithm.ruleStats());
+    }
+
+    /**
+     * @desc 立即重新加载预筛选规则（数据库规则修改后无需等待定时刷新）
+     * @return 生效规则数量
+     */
+    @PostMapping("/pre-filter/refresh")
+    public ApiResponse refreshPreFilter() {
+        return ApiResponse.success(preFilterAlgorithm.refresh());
+    }
+
+    /**
+     * @desc 启动JSONL文件告警处理，每行一条告警记录
+     * @param path 服务器本地文件路径
+     * @param threads 处理并行度
+     * @return
+     */
+    @PostMapping("/jsonl/start")
+    public ApiResponse startJsonl(@RequestParam("path") String path,
+                                  @RequestParam(value = "threads", defaultValue = "4") int threads) {
+        try {
+            jsonlFetchTask.start(Paths.get(path), threads);
+            return ApiResponse.success(jsonlFetchTask.status());
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return ApiResponse.fail(400, e.getMessage());
+        }
+    }
+
+    /**
+     * @desc 查询JSONL文件处理进度
+     * @return
+     */
+    @GetMapping("/jsonl/status")
+    public ApiResponse jsonlStatus() {
+        return ApiResponse.success(jsonlFetchTask.status());
+    }
+
+    /**
+     * @desc 启动mysql历史告警回放，默认从上次中断的进度继续
+     * @param restart 是否忽略已有进度重新开始
+     * @return
+     */
+    @PostMapping("/mysql/start")
+    public ApiResponse startMysql(@RequestParam(value = "restart", defaultValue = "false") boolean restart) {
+        try {
+            return ApiResponse.success(mysqlFetchTask.start(restart));
+        } catch (DateTimeParseException e) {
+            return ApiResponse.fail(400, "回放时间格式错误，需符合 yyyy-MM-dd HH:mm:ss 格式");
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return ApiResponse.fail(400, e.getMessage());
+        }
+    }
+
+    /**
+     * @desc 停止mysql历史告警回放，进度保留
+     * @return
+     */
+    @PostMapping("/mysql/stop")
+    public ApiResponse stopMysql() {
+        if (!mysqlFetchTask.stop()) {
+            return ApiResponse.fail(400, "当前没有正在执行的回放任务");
+        }
+        return ApiResponse.success(mysqlFetchTask.status());
+    }
+
+    /**
+     * @desc 查询mysql历史告警回放进度
+     * @return
+     */
+    @GetMapping("/mysql/status")
+    public ApiResponse mysqlStatus() {
+        return ApiResponse.success(mysqlFetchTask.status());
+    }
+}
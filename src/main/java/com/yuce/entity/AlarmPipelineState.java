@@ -0,0 +1,41 @@
+package com.yuce.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 告警处理阶段状态：每条告警一行，记录已完成阶段位掩码、各阶段完成时间及最近失败信息
+ */
+@Data
+@TableName("alarm_pipeline_state")
+public class AlarmPipelineState {
+
+    @TableId(value = "tbl_id", type = IdType.INPUT)
+    private Long tblId;
+
+    @TableField("stage_mask")
+    private Integer stageMask; //已完成阶段位掩码
+
+    @TableField("stage_times")
+    private String stageTimes; //各阶段完成时间（JSON对象）
+
+    @TableField("last_stage")
+    private String lastStage;
+
+    @TableField("last_error_stage")
+    private String lastErrorStage;
+
+    @TableField("last_error")
+    private String lastError;
+
+    @TableField("create_time")
+    private LocalDateTime createTime;
+
+    @TableField("update_time")
+    private LocalDateTime updateTime;
+}
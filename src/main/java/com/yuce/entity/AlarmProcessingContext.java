@@ -0,0 +1,175 @@
+package com.yuce.entity;
+
+import com.yuce.util.VideoSession;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 单条告警处理上下文：随告警记录在各算法间传递，缓存处理过程中读取或产生的关联记录
+ * （检测结果、提框记录、抽帧图片列表、所属告警集），同一条告警仅首次读取访问数据库，写入后同步更新缓存；
+ * 另持有连通性校验阶段打开的视频会话，供抽帧阶段复用
+ */
+public class AlarmProcessingContext {
+
+    private final Slot<CheckAlarmResult> checkResult = new Slot<>(); //算法初检结果
+    private final Slot<ExtractWindowRecord> extractWindow = new Slot<>(); //提框记录
+    private final Slot<List<FrameImageInfo>> frameList = new Slot<>(); //抽帧图片列表
+    private final Slot<AlarmCollection> collection = new Slot<>(); //所属告警集
+
+    private VideoSession videoSession; //已打开的视频会话，抽帧阶段取走后负责关闭
+
+    private volatile boolean newRecord; //是否为本次新增的告警记录（尚无任何派生结果）
+    private int loadCount; //访问数据库次数
+    private int hitCount; //缓存命中次数
+
+    /**
+     * @desc 获取告警记录的处理上下文，不存在时创建并绑定到告警记录
+     * @param record
+     * @return
+     */
+    public static AlarmProcessingContext of(OriginalAlarmRecord record) {
+        synchronized (record) {
+            AlarmProcessingContext context = record.getProcessingContext();
+            if (context == null) {
+                context = new AlarmProcessingContext();
+                record.setProcessingContext(context);
+            }
+            return context;
+        }
+    }
+
+    /**
+     * @desc 标记为本次新增的告警记录：按tblId关联的派生记录必然不存在，直接置为已加载的空值，免去首次查询
+     *       （告警集可能按alarmId归并已有记录，仍按需查询）
+     */
+    public void markNewRecord() {
+        newRecord = true;
+        checkResult.set(null);
+        extractWindow.set(null);
+        frameList.set(Collections.emptyList());
+    }
+
+    /**
+     * @desc 是否为本次新增的告警记录，为true时各阶段可跳过派生结果存在性校验
+     * @return
+     */
+    public boolean isNewRecord() {
+        return newRecord;
+    }
+
+    public CheckAlarmResult getCheckResult(Supplier<CheckAlarmResult> loader) {
+        return get(checkResult, loader);
+    }
+
+    public void setCheckResult(CheckAlarmResult value) {
+        checkResult.set(value);
+    }
+
+    public ExtractWindowRecord getExtractWindow(Supplier<ExtractWindowRecord> loader) {
+        return get(extractWindow, loader);
+    }
+
+    public void setExtractWindow(ExtractWindowRecord value) {
+        extractWindow.set(value);
+    }
+
+    public List<FrameImageInfo> getFrameList(Supplier<List<FrameImageInfo>> loader) {
+        List<FrameImageInfo> frames = get(frameList, loader);
+        return frames == null ? Collections.emptyList() : frames;
+    }
+
+    public void setFrameList(List<FrameImageInfo> value) {
+        frameList.set(value == null ? null : Collections.unmodifiableList(value));
+    }
+
+    /**
+     * @desc 按图片序号获取抽帧图片，复用抽帧图片列表
+     * @param imageSortNo
+     * @param loader 抽帧图片列表加载方法
+     * @return 不存在时返回null
+     */
+    public FrameImageInfo getFrame(int imageSortNo, Supplier<List<FrameImageInfo>> loader) {
+        for (FrameImageInfo frame : getFrameList(loader)) {
+            if (frame.getImageSortNo() != null && frame.getImageSortNo() == imageSortNo) {
+                return frame;
+            }
+        }
+        return null;
+    }
+
+    public AlarmCollection getCollection(Supplier<AlarmCollection> loader) {
+        return get(collection, loader);
+    }
+
+    public void setCollection(AlarmCollection value) {
+        collection.set(value);
+    }
+
+    /**
+     * @desc 保存已打开的视频会话，已有会话时关闭旧会话
+     * @param session
+     */
+    public void attachVideoSession(VideoSession session) {
+        VideoSession previous;
+        synchronized (this) {
+            previous = videoSession;
+            videoSession = session;
+        }
+        if (previous != null && previous != session) {
+            previous.close();
+        }
+    }
+
+    /**
+     * @desc 取走视频会话，调用方负责关闭
+     * @return 不存在时返回null
+     */
+    public synchronized VideoSession takeVideoSession() {
+        VideoSession session = videoSession;
+        videoSession = null;
+        return session;
+    }
+
+    /**
+     * @desc 关闭未被取走的视频会话（降级、异常等提前结束的处理路径）
+     */
+    public void closeVideoSession() {
+        VideoSession session = takeVideoSession();
+        if (session != null) {
+            session.close();
+        }
+    }
+
+    public synchronized int getLoadCount() {
+        return loadCount;
+    }
+
+    public synchronized int getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @desc 读取缓存，未加载时调用loader查询并缓存结果（包括null结果）
+     */
+    private synchronized <T> T get(Slot<T> slot, Supplier<T> loader) {
+        if (slot.loaded) {
+            hitCount++;
+            return slot.value;
+        }
+        loadCount++;
+        slot.set(loader.get());
+        return slot.value;
+    }
+
+    private static class Slot<T> {
+        private volatile boolean loaded;
+        private volatile T value;
+
+        void set(T value) {
+            this.value = value;
+            this.loaded = true;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.yuce.entity;
+
+import lombok.Data;
+
+/**
+ * 死信暂存记录：处理失败的告警及失败阶段、原因，按行追加写入本地死信文件
+ */
+@Data
+public class DeadLetterEntry {
+
+    public static final String STATUS_PENDING = "PENDING"; //待重放
+    public static final String STATUS_DONE = "DONE"; //重放成功或无需重放
+    public static final String STATUS_GAVE_UP = "GAVE_UP"; //超过最大重放次数，放弃
+
+    private String id; //死信唯一标识
+    private String status; //状态
+    private String stage; //失败阶段
+    private String cause; //失败原因
+
+    private Long tblId; //告警记录主键，入库前失败时为空
+    private String alarmId;
+    private String imagePath;
+    private String videoPath;
+
+    private String topic; //入库前失败时记录原始消息来源
+    private Integer partition;
+    private Long offset;
+    private String payload; //入库前失败时记录原始消息内容
+
+    private int attempts; //已重放次数
+    private long createTime; //首次失败时间（毫秒）
+    private long nextRetryTime; //下次重放时间（毫秒）
+    private long updateTime; //最近更新时间（毫秒）
+}
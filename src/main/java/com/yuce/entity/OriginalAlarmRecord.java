@@ -1,7 +1,11 @@
 package com.yuce.entity;
 
+import com.alibaba.fastjson.annotation.JSONField;
 import com.baomidou.mybatisplus.annotation.*;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 
 import java.io.Serializable;
 import java.time.LocalDateTime;
@@ -190,4 +194,11 @@ public class OriginalAlarmRecord implements Serializable {
 
     @TableField(value = "db_update_time", fill = FieldFill.INSERT_UPDATE)
     private LocalDateTime dbUpdateTime;
-}
\ No newline at end of file
+
+    @TableField(exist = false)
+    @JSONField(serialize = false, deserialize = false)
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private transient AlarmProcessingContext processingContext; // 处理上下文，仅在内存中随告警记录传递
+}
@@ -0,0 +1,57 @@
+package com.yuce.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 告警预筛选规则：仅依据告警记录字段（厂商、事件类型、路段、设备、告警时段）判定，命中后直接给出初检结果，
+ * 不再进行视频访问及算法调用；规则可来自配置文件（pre-filter.yml）或数据库（alarm_pre_filter_rule）
+ */
+@Data
+@TableName("alarm_pre_filter_rule")
+public class PreFilterRule {
+
+    @TableId(type = IdType.AUTO)
+    private Integer id; // 主键ID，配置文件规则为空
+
+    @TableField("rule_name")
+    private String ruleName; // 规则名称
+
+    @TableField("companies")
+    private String companies; // 匹配厂商，多个以逗号分隔，为空时不限
+
+    @TableField("event_types")
+    private String eventTypes; // 匹配事件类型，多个以逗号分隔，为空时不限
+
+    @TableField("road_ids")
+    private String roadIds; // 匹配路段ID，多个以逗号分隔，为空时不限
+
+    @TableField("device_ids")
+    private String deviceIds; // 匹配设备ID，多个以逗号分隔，为空时不限
+
+    @TableField("start_time")
+    private String startTime; // 告警时段开始（HH:mm，含），为空时不限
+
+    @TableField("end_time")
+    private String endTime; // 告警时段结束（HH:mm，不含），早于开始时间时跨天
+
+    @TableField("check_flag")
+    private Integer checkFlag; // 命中后的初检结果
+
+    @TableField("reason")
+    private String reason; // 命中原因
+
+    @TableField("priority")
+    private Integer priority = 0; // 优先级，数值小的先匹配
+
+    @TableField("enabled")
+    private Boolean enabled = true; // 是否启用
+
+    @TableField(value = "create_time", fill = FieldFill.INSERT)
+    private LocalDateTime createTime; // 创建时间
+
+    @TableField(value = "modify_time", fill = FieldFill.INSERT_UPDATE)
+    private LocalDateTime modifyTime; // 更新时间
+}
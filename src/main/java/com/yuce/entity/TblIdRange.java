@@ -0,0 +1,12 @@
+package com.yuce.entity;
+
+import lombok.Data;
+
+/**
+ * tblId区间（最小值、最大值）
+ */
+@Data
+public class TblIdRange {
+    private Long minTblId;
+    private Long maxTblId;
+}
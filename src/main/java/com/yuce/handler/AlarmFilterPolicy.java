@@ -0,0 +1,57 @@
+package com.yuce.handler;
+
+import com.yuce.entity.OriginalAlarmRecord;
+
+/**
+ * 告警来源筛选策略：不同来源（kafka、mysql、jsonl文件）共用同一处理链路，仅筛选条件及处理选项不同
+ */
+public interface AlarmFilterPolicy {
+
+    /**
+     * @desc 来源名称，用于日志
+     * @return
+     */
+    String name();
+
+    /**
+     * @desc 入库前筛选
+     * @param record
+     * @return 剔除原因，通过时返回null
+     */
+    default String rejectBeforeSave(OriginalAlarmRecord record) {
+        return null;
+    }
+
+    /**
+     * @desc 入库后、算法处理前筛选（记录仍入库，仅不进行算法处理）
+     * @param record
+     * @return 剔除原因，通过时返回null
+     */
+    default String rejectBeforeAnalyze(OriginalAlarmRecord record) {
+        return null;
+    }
+
+    /**
+     * @desc 是否推送原始告警记录
+     * @return
+     */
+    default boolean notifyUpstream() {
+        return false;
+    }
+
+    /**
+     * @desc 是否按告警时效调度：积压时新告警优先，超过时效的告警不做视频分析直接超时降级（仅实时来源开启）
+     * @return
+     */
+    default boolean deadlineAware() {
+        return false;
+    }
+
+    /**
+     * @desc 处理失败降级为"无法判断"时是否记入死信暂存
+     * @return
+     */
+    default boolean spoolOnFailure() {
+        return false;
+    }
+}
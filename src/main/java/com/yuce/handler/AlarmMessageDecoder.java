@@ -0,0 +1,253 @@
+package com.yuce.handler;
+
+import com.alibaba.fastjson.JSON;
+import com.yuce.entity.OriginalAlarmRecord;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+
+/**
+ * 原始告警消息字节级解码器
+ * kafka消息体为转义后的JSON字符串（首尾带引号、内部引号带反斜杠），解码流程：
+ *  1、直接在原始字节上扫描roadId、eventType、alarmTime，不解转义、不创建对象，剔除非目标道路及过期数据
+ *  2、仅对通过预筛选的消息单次遍历去除首尾引号及反斜杠，再绑定完整的OriginalAlarmRecord
+ */
+public class AlarmMessageDecoder {
+
+    private static final byte QUOTE = '"';
+    private static final byte BACKSLASH = '\\';
+
+    private static final byte[] ROAD_ID_KEY = "roadId".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] EVENT_TYPE_KEY = "eventType".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ALARM_TIME_KEY = "alarmTime".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] DEVICE_ID_KEY = "deviceId".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * 预筛选结果
+     */
+    public enum Verdict {
+        ACCEPT, //通过预筛选
+        OFF_ROAD, //非目标道路
+        OFF_TYPE, //非目标事件类型
+        STALE //告警时间早于起始时间
+    }
+
+    private final byte[][] roadIds; //目标道路编码
+    private final byte[][] eventTypes; //目标事件类型，为null时不按事件类型筛选
+    private final long startTimeKey; //起始时间（yyyyMMddHHmmss数值形式）
+    private final long startTimeMillis; //起始时间（毫秒时间戳形式）
+
+    /**
+     * @param roadIds 目标道路编码
+     * @param eventTypes 目标事件类型，为null时不按事件类型筛选
+     * @param startTime 起始时间，早于该时间的告警被剔除
+     */
+    public AlarmMessageDecoder(Collection<String> roadIds, Collection<String> eventTypes, LocalDateTime startTime) {
+        this.roadIds = toBytes(roadIds);
+        this.eventTypes = eventTypes == null ? null : toBytes(eventTypes);
+        this.startTimeKey = startTime.getYear() * 10000000000L + startTime.getMonthValue() * 100000000L
+                + startTime.getDayOfMonth() * 1000000L + startTime.getHour() * 10000L
+                + startTime.getMinute() * 100L + startTime.getSecond();
+        this.startTimeMillis = startTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * @desc 原始字节预筛选：仅扫描roadId、eventType、alarmTime，不分配对象
+     * @param raw kafka原始消息字节
+     * @return
+     */
+    public Verdict prefilter(byte[] raw) {
+        int roadStart = findValue(raw, ROAD_ID_KEY);
+        if (roadStart < 0 || !matchesAny(raw, roadStart, valueEnd(raw, roadStart), roadIds)) {
+            return Verdict.OFF_ROAD;
+        }
+
+        if (eventTypes != null) {
+            int typeStart = findValue(raw, EVENT_TYPE_KEY);
+            if (typeStart < 0 || !matchesAny(raw, typeStart, valueEnd(raw, typeStart), eventTypes)) {
+                return Verdict.OFF_TYPE;
+            }
+        }
+
+        // 告警时间无法识别时不在此处剔除，交由完整绑定后的校验处理
+        int timeStart = findValue(raw, ALARM_TIME_KEY);
+        if (timeStart >= 0 && isBeforeStart(raw, timeStart, valueEnd(raw, timeStart))) {
+            return Verdict.STALE;
+        }
+        return Verdict.ACCEPT;
+    }
+
+    /**
+     * @desc 单次遍历解转义后绑定完整告警记录：去除首尾引号及所有反斜杠
+     * @param raw kafka原始消息字节
+     * @return
+     */
+    public OriginalAlarmRecord bind(byte[] raw) {
+        int from = 0;
+        int to = raw.length;
+        if (to > 0 && raw[0] == QUOTE) {
+            from++;
+        }
+        if (to > from && raw[to - 1] == QUOTE) {
+            to--;
+        }
+        byte[] json = new byte[to - from];
+        int len = 0;
+        for (int i = from; i < to; i++) {
+            if (raw[i] != BACKSLASH) {
+                json[len++] = raw[i];
+            }
+        }
+        return JSON.parseObject(json, 0, len, StandardCharsets.UTF_8, OriginalAlarmRecord.class);
+    }
+
+    /**
+     * @desc 扫描设备ID，用于消息分发
+     * @param raw kafka原始消息字节
+     * @return 设备ID，不存在时返回null
+     */
+    public String scanDeviceId(byte[] raw) {
+        if (raw == null) {
+            return null;
+        }
+        int start = findValue(raw, DEVICE_ID_KEY);
+        if (start < 0) {
+            return null;
+        }
+        int end = valueEnd(raw, start);
+        return end > start ? new String(raw, start, end - start, StandardCharsets.UTF_8) : null;
+    }
+
+    /**
+     * @desc 定位字段值起始位置：匹配 "key" 后跳过转义符、引号、冒号及空白
+     * @return 字段值起始下标，不存在返回-1
+     */
+    private static int findValue(byte[] buf, byte[] key) {
+        int last = buf.length - key.length;
+        for (int i = 1; i <= last; i++) {
+            if (buf[i - 1] != QUOTE || !regionMatches(buf, i, key)) {
+                continue;
+            }
+            int j = i + key.length;
+            while (j < buf.length && buf[j] == BACKSLASH) {
+                j++;
+            }
+            if (j >= buf.length || buf[j] != QUOTE) {
+                continue;
+            }
+            j++;
+            while (j < buf.length && (buf[j] == ' ' || buf[j] == BACKSLASH)) {
+                j++;
+            }
+            if (j >= buf.length || buf[j] != ':') {
+                continue;
+            }
+            j++;
+            while (j < buf.length && (buf[j] == ' ' || buf[j] == BACKSLASH || buf[j] == QUOTE)) {
+                j++;
+            }
+            return j;
+        }
+        return -1;
+    }
+
+    /**
+     * @desc 字段值结束位置（不含）
+     */
+    private static int valueEnd(byte[] buf, int start) {
+        int i = start;
+        while (i < buf.length) {
+            byte b = buf[i];
+            if (b == QUOTE || b == BACKSLASH || b == ',' || b == '}') {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean regionMatches(byte[] buf, int offset, byte[] target) {
+        if (offset + target.length > buf.length) {
+            return false;
+        }
+        for (int k = 0; k < target.length; k++) {
+            if (buf[offset + k] != target[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matchesAny(byte[] buf, int start, int end, byte[][] candidates) {
+        for (byte[] candidate : candidates) {
+            if (candidate.length == end - start && regionMatches(buf, start, candidate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @desc 判断告警时间是否早于起始时间，支持 yyyy-MM-dd HH:mm:ss（含T分隔、毫秒后缀）及毫秒时间戳
+     * @return 可识别且早于起始时间返回true，无法识别返回false
+     */
+    private boolean isBeforeStart(byte[] buf, int start, int end) {
+        int len = end - start;
+        if (len <= 0) {
+            return false;
+        }
+
+        boolean allDigits = true;
+        for (int i = start; i < end; i++) {
+            if (buf[i] < '0' || buf[i] > '9') {
+                allDigits = false;
+                break;
+            }
+        }
+        if (allDigits) {
+            return len >= 12 && digits(buf, start, end) < startTimeMillis;
+        }
+
+        if (len < 10 || buf[start + 4] != '-' || buf[start + 7] != '-') {
+            return false;
+        }
+        long year = digits(buf, start, start + 4);
+        long month = digits(buf, start + 5, start + 7);
+        long day = digits(buf, start + 8, start + 10);
+        long hour = len >= 19 ? digits(buf, start + 11, start + 13) : 0;
+        long minute = len >= 19 ? digits(buf, start + 14, start + 16) : 0;
+        long second = len >= 19 ? digits(buf, start + 17, start + 19) : 0;
+        if (year < 0 || month < 0 || day < 0 || hour < 0 || minute < 0 || second < 0) {
+            return false;
+        }
+        long key = year * 10000000000L + month * 100000000L + day * 1000000L + hour * 10000L + minute * 100L + second;
+        return key < startTimeKey;
+    }
+
+    /**
+     * @desc 解析数字片段
+     * @return 数值，含非数字字符时返回-1
+     */
+    private static long digits(byte[] buf, int start, int end) {
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int d = buf[i] - '0';
+            if (d < 0 || d > 9) {
+                return -1;
+            }
+            value = value * 10 + d;
+        }
+        return value;
+    }
+
+    private static byte[][] toBytes(Collection<String> values) {
+        byte[][] result = new byte[values.size()][];
+        int i = 0;
+        for (String value : values) {
+            result[i++] = value.getBytes(StandardCharsets.UTF_8);
+        }
+        return result;
+    }
+}
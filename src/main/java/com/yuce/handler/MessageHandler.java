@@ -2,6 +2,33 @@ package com.yuce.handler;
 
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public interface MessageHandler {
-    void handleMessage(ConsumerRecord<String, String> record) throws Exception;
+    void handleMessage(ConsumerRecord<String, byte[]> record) throws Exception;
+
+    /**
+     * @desc 批量预处理一次poll拉取到的消息（过滤、批内去重、批量入库等），返回需逐条处理的任务；
+     *       未出现在返回结果中的消息视为已处理完成，默认逐条调用handleMessage
+     * @param records
+     * @return
+     * @throws Exception
+     */
+    default List<MessageTask> handleBatch(List<ConsumerRecord<String, byte[]>> records) throws Exception {
+        List<MessageTask> tasks = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, byte[]> record : records) {
+            tasks.add(new MessageTask(record, dispatchKey(record), () -> handleMessage(record)));
+        }
+        return tasks;
+    }
+
+    /**
+     * @desc 消息分发键：相同分发键的消息在工作线程池中串行处理，默认使用消息key
+     * @param record
+     * @return 分发键，为null时按分区分发
+     */
+    default String dispatchKey(ConsumerRecord<String, byte[]> record) {
+        return record.key();
+    }
 }
@@ -0,0 +1,9 @@
+package com.yuce.handler;
+
+/**
+ * 消息处理通道：按处理代价在入口分类，两类通道使用独立工作线程与并发上限，互不排队
+ */
+public enum MessageLane {
+    FAST, //仅需数据库写入及告警集、告警组处理（路径为空、非目标事件类型、命中预筛选规则等）
+    HEAVY //需要视频访问、抽帧及算法推理
+}
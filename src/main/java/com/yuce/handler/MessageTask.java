@@ -0,0 +1,81 @@
+package com.yuce.handler;
+
+import lombok.Getter;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 批量预处理后待分发的单条消息处理任务
+ */
+@Getter
+public class MessageTask {
+
+    private final ConsumerRecord<String, byte[]> record; //来源消息
+    private final String dispatchKey; //分发键，为null时按分区分发
+    private final AsyncAction action; //单条处理逻辑，处理结束时完成
+    private final MessageLane lane; //处理通道
+
+    public MessageTask(ConsumerRecord<String, byte[]> record, String dispatchKey, Action action) {
+        this(record, dispatchKey, MessageLane.HEAVY, action);
+    }
+
+    public MessageTask(ConsumerRecord<String, byte[]> record, String dispatchKey, MessageLane lane, Action action) {
+        this(record, dispatchKey, lane, (AsyncAction) () -> {
+            action.run();
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+
+    private MessageTask(ConsumerRecord<String, byte[]> record, String dispatchKey, MessageLane lane, AsyncAction action) {
+        this.record = record;
+        this.dispatchKey = dispatchKey;
+        this.lane = lane;
+        this.action = action;
+    }
+
+    /**
+     * @desc 异步处理任务：启动后立即返回，处理结束时完成，处理线程不等待处理结束
+     */
+    public static MessageTask async(ConsumerRecord<String, byte[]> record, String dispatchKey, MessageLane lane, AsyncAction action) {
+        return new MessageTask(record, dispatchKey, lane, action);
+    }
+
+    /**
+     * @desc 启动处理
+     * @return 处理结束时完成；启动或处理异常时以异常完成
+     */
+    public CompletableFuture<?> start() {
+        try {
+            CompletableFuture<?> future = action.start();
+            return future != null ? future : CompletableFuture.completedFuture(null);
+        } catch (Exception e) {
+            CompletableFuture<Object> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    /**
+     * @desc 同步处理，等待处理结束
+     */
+    public void run() throws Exception {
+        try {
+            action.start().get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+    }
+
+    @FunctionalInterface
+    public interface Action {
+        void run() throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface AsyncAction {
+        CompletableFuture<?> start() throws Exception;
+    }
+}
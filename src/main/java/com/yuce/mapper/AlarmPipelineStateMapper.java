@@ -0,0 +1,59 @@
+package com.yuce.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.yuce.entity.AlarmPipelineState;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * 告警处理阶段状态表数据库操作mapper
+ */
+@Mapper
+public interface AlarmPipelineStateMapper extends BaseMapper<AlarmPipelineState> {
+
+    /**
+     * @desc 阶段状态单条upsert：合并已完成阶段位掩码、写入阶段时间，失败信息非空时覆盖最近失败信息
+     * @param tblId
+     * @param stageMask 本次完成的阶段位（可为0，仅记录失败）
+     * @param stage 阶段名称
+     * @param stageTime 阶段时间
+     * @param error 失败原因，成功时为null
+     * @return
+     */
+    @Insert("INSERT INTO alarm_pipeline_state (tbl_id, stage_mask, stage_times, last_stage, last_error_stage, last_error) " +
+            "VALUES (#{tblId}, #{stageMask}, JSON_OBJECT(#{stage}, #{stageTime}), #{stage}, " +
+            "IF(#{error} IS NULL, NULL, #{stage}), #{error}) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "stage_mask = stage_mask | VALUES(stage_mask), " +
+            "stage_times = JSON_SET(COALESCE(stage_times, JSON_OBJECT()), CONCAT('$.\"', #{stage}, '\"'), #{stageTime}), " +
+            "last_stage = VALUES(last_stage), " +
+            "last_error_stage = COALESCE(VALUES(last_error_stage), last_error_stage), " +
+            "last_error = COALESCE(VALUES(last_error), last_error)")
+    int upsert(@Param("tblId") long tblId,
+               @Param("stageMask") int stageMask,
+               @Param("stage") String stage,
+               @Param("stageTime") String stageTime,
+               @Param("error") String error);
+
+    /**
+     * @desc 批量写入初始阶段状态（无已完成阶段），已存在的状态不覆盖
+     * @param tblIdList
+     * @param stage 阶段名称
+     * @param stageTime 阶段时间
+     * @return
+     */
+    @Insert({
+            "<script>",
+            "INSERT IGNORE INTO alarm_pipeline_state (tbl_id, stage_mask, stage_times, last_stage) VALUES",
+            "<foreach collection='tblIdList' item='tblId' separator=','>",
+            "(#{tblId}, 0, JSON_OBJECT(#{stage}, #{stageTime}), #{stage})",
+            "</foreach>",
+            "</script>"
+    })
+    int insertInitial(@Param("tblIdList") List<Long> tblIdList,
+                      @Param("stage") String stage,
+                      @Param("stageTime") String stageTime);
+}
@@ -1,14 +1,9 @@
 package com.yuce.mapper;
 
-import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
-import com.baomidou.mybatisplus.core.metadata.IPage;
-import com.baomidou.mybatisplus.core.toolkit.Constants;
-import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
-import com.yuce.entity.AlarmTimeRange;
 import com.yuce.entity.OriginalAlarmRecord;
 import com.yuce.entity.OriginalAlarmRecordBak;
-import com.yuce.entity.QueryResultCheckRecord;
+import com.yuce.entity.TblIdRange;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
@@ -28,4 +23,76 @@ import java.util.List;
 @Mapper
 public interface OriginalAlarmBakMapper extends BaseMapper<OriginalAlarmRecordBak> {
 
-}
\ No newline at end of file
+    /**
+     * @desc 查询备份表中符合筛选条件的tblId区间
+     * @param table 备份表名（调用方校验表名格式）
+     * @param roadIds 目标道路编码，为空时不筛选
+     * @param eventTypes 目标事件类型，为空时不筛选
+     * @param startTime 告警时间下限，为null时不限
+     * @param endTime 告警时间上限，为null时不限
+     * @return
+     */
+    @Select({
+            "<script>",
+            "SELECT MIN(tbl_id) AS minTblId, MAX(tbl_id) AS maxTblId",
+            "FROM ${table}",
+            "<where>",
+            "<if test='roadIds != null and roadIds.size() > 0'>",
+            "AND road_id IN",
+            "<foreach collection='roadIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>",
+            "</if>",
+            "<if test='eventTypes != null and eventTypes.size() > 0'>",
+            "AND event_type IN",
+            "<foreach collection='eventTypes' item='type' open='(' separator=',' close=')'>#{type}</foreach>",
+            "</if>",
+            "<if test='startTime != null'>AND alarm_time &gt;= #{startTime}</if>",
+            "<if test='endTime != null'>AND alarm_time &lt;= #{endTime}</if>",
+            "</where>",
+            "</script>"
+    })
+    TblIdRange getTblIdRange(@Param("table") String table,
+                             @Param("roadIds") List<String> roadIds,
+                             @Param("eventTypes") List<String> eventTypes,
+                             @Param("startTime") LocalDateTime startTime,
+                             @Param("endTime") LocalDateTime endTime);
+
+    /**
+     * @desc keyset分页：读取 (afterTblId, toTblId] 区间内符合筛选条件的记录，按tblId升序，直接映射为原始告警记录
+     * @param table 备份表名（调用方校验表名格式）
+     * @param afterTblId 游标（不含）
+     * @param toTblId 区间上限（含）
+     * @param roadIds 目标道路编码，为空时不筛选
+     * @param eventTypes 目标事件类型，为空时不筛选
+     * @param startTime 告警时间下限，为null时不限
+     * @param endTime 告警时间上限，为null时不限
+     * @param limit 单页条数
+     * @return
+     */
+    @Select({
+            "<script>",
+            "SELECT *, alarm_id AS id",
+            "FROM ${table}",
+            "WHERE tbl_id &gt; #{afterTblId} AND tbl_id &lt;= #{toTblId}",
+            "<if test='roadIds != null and roadIds.size() > 0'>",
+            "AND road_id IN",
+            "<foreach collection='roadIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>",
+            "</if>",
+            "<if test='eventTypes != null and eventTypes.size() > 0'>",
+            "AND event_type IN",
+            "<foreach collection='eventTypes' item='type' open='(' separator=',' close=')'>#{type}</foreach>",
+            "</if>",
+            "<if test='startTime != null'>AND alarm_time &gt;= #{startTime}</if>",
+            "<if test='endTime != null'>AND alarm_time &lt;= #{endTime}</if>",
+            "ORDER BY tbl_id",
+            "LIMIT #{limit}",
+            "</script>"
+    })
+    List<OriginalAlarmRecord> getPageAfter(@Param("table") String table,
+                                           @Param("afterTblId") long afterTblId,
+                                           @Param("toTblId") long toTblId,
+                                           @Param("roadIds") List<String> roadIds,
+                                           @Param("eventTypes") List<String> eventTypes,
+                                           @Param("startTime") LocalDateTime startTime,
+                                           @Param("endTime") LocalDateTime endTime,
+                                           @Param("limit") int limit);
+}
@@ -9,7 +9,9 @@ import com.yuce.entity.AlarmTimeRange;
 import com.yuce.entity.CheckAlarmResult;
 import com.yuce.entity.OriginalAlarmRecord;
 import com.yuce.entity.QueryResultCheckRecord;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 
@@ -98,4 +100,69 @@ public interface OriginalAlarmMapper extends BaseMapper<OriginalAlarmRecord> {
             @Param("tblIdList") List<String> tblIdList,
             @Param("checkFlag") Integer checkFlag
     );
-}
\ No newline at end of file
+
+    /**
+     * @desc 根据告警id列表批量查询联合主键信息（tblId、告警id、图片路径、视频路径），用于批量判重
+     * @param alarmIdList
+     * @return
+     */
+    @Select({
+            "<script>",
+            "SELECT tbl_id, alarm_id AS id, image_path, video_path",
+            "FROM kafka_original_alarm_record",
+            "WHERE alarm_id IN",
+            "<foreach collection='alarmIdList' item='id' open='(' separator=',' close=')'>",
+            "    #{id}",
+            "</foreach>",
+            "</script>"
+    })
+    List<OriginalAlarmRecord> getKeyListByAlarmIdList(@Param("alarmIdList") List<String> alarmIdList);
+
+    /**
+     * @desc 按tblId倒序查询最近记录的联合主键信息（tblId、告警id、图片路径、视频路径），用于预热内存幂等过滤器
+     * @param limit
+     * @return
+     */
+    @Select("SELECT tbl_id, alarm_id AS id, image_path, video_path " +
+            "FROM kafka_original_alarm_record " +
+            "ORDER BY tbl_id DESC LIMIT #{limit}")
+    List<OriginalAlarmRecord> getRecentKeyList(@Param("limit") int limit);
+
+    /**
+     * @desc 多行插入原始告警记录，插入后回填自增主键tblId
+     * @param records
+     * @return
+     */
+    @Insert({
+            "<script>",
+            "INSERT INTO kafka_original_alarm_record (",
+            "    alarm_id, image_path, video_path, event_id, name_inp, direction,",
+            "    direction_type, alarm_time, milestone, end_milestone, road_id, organization_id,",
+            "    alert_level, latitude, longitude, event_type, event_type_id, content,",
+            "    content_custom, source, source_id, company, company_id, direction_des,",
+            "    source_event_id, jam_speed, long_time, jam_dist, weather, deal_flag,",
+            "    deal_time, read_flag, read_time, voice_url, user_id, suspend_time,",
+            "    server_ip, client_ip, popup_flag, voice_flag, phone, frame_flag,",
+            "    destroy_time, alarm_place, lane_index, device_id, countermeasures, supplement,",
+            "    rel_alarm_id, uuid, situational_list, redundance, ramp_id, toll_id,",
+            "    create_time, create_time_sys, modify_time_sys, db_create_time, db_update_time",
+            ") VALUES",
+            "<foreach collection='records' item='r' separator=','>",
+            "(",
+            "    #{r.id}, #{r.imagePath}, #{r.videoPath}, #{r.eventId}, #{r.nameInp}, #{r.direction},",
+            "    #{r.directionType}, #{r.alarmTime}, #{r.milestone}, #{r.endMilestone}, #{r.roadId}, #{r.organizationId},",
+            "    #{r.alertLevel}, #{r.latitude}, #{r.longitude}, #{r.eventType}, #{r.eventTypeId}, #{r.content},",
+            "    #{r.contentCustom}, #{r.source}, #{r.sourceId}, #{r.company}, #{r.companyId}, #{r.directionDes},",
+            "    #{r.sourceEventId}, #{r.jamSpeed}, #{r.longTime}, #{r.jamDist}, #{r.weather}, #{r.dealFlag},",
+            "    #{r.dealTime}, #{r.readFlag}, #{r.readTime}, #{r.voiceUrl}, #{r.userId}, #{r.suspendTime},",
+            "    #{r.serverIp}, #{r.clientIp}, #{r.popupFlag}, #{r.voiceFlag}, #{r.phone}, #{r.frameFlag},",
+            "    #{r.destroyTime}, #{r.alarmPlace}, #{r.laneIndex}, #{r.deviceId}, #{r.countermeasures}, #{r.supplement},",
+            "    #{r.relAlarmId}, #{r.uuid}, #{r.situationalList}, #{r.redundance}, #{r.rampId}, #{r.tollId},",
+            "    #{r.createTime}, #{r.createTimeSys}, #{r.modifyTimeSys}, #{r.dbCreateTime}, #{r.dbUpdateTime}",
+            ")",
+            "</foreach>",
+            "</script>"
+    })
+    @Options(useGeneratedKeys = true, keyProperty = "tblId", keyColumn = "tbl_id")
+    int insertBatch(@Param("records") List<OriginalAlarmRecord> records);
+}
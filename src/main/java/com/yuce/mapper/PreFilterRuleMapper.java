@@ -0,0 +1,12 @@
+package com.yuce.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.yuce.entity.PreFilterRule;
+import org.apache.ibatis.annotations.Mapper;
+
+/**
+ * 告警预筛选规则数据访问
+ */
+@Mapper
+public interface PreFilterRuleMapper extends BaseMapper<PreFilterRule> {
+}
@@ -0,0 +1,56 @@
+package com.yuce.service;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import com.yuce.entity.AlarmPipelineState;
+
+import java.util.List;
+
+/**
+ * 告警处理阶段状态业务操作接口
+ */
+public interface AlarmPipelineStateService extends IService<AlarmPipelineState> {
+
+    /**
+     * @desc 查询告警处理阶段状态
+     * @param tblId
+     * @return 不存在时返回null
+     */
+    AlarmPipelineState getState(long tblId);
+
+    /**
+     * @desc 批量查询告警处理阶段状态
+     * @param tblIdList
+     * @return 存在状态的记录
+     */
+    List<AlarmPipelineState> getStateList(List<Long> tblIdList);
+
+    /**
+     * @desc 新增告警记录写入初始阶段状态：入库后尚未完成任何阶段时中断的告警可续跑
+     * @param tblIdList
+     * @param stage 阶段名称
+     */
+    void markSaved(List<Long> tblIdList, String stage);
+
+    /**
+     * @desc 记录阶段完成
+     * @param tblId
+     * @param stage 阶段名称
+     * @param stageMask 完成的阶段位
+     */
+    void markCompleted(long tblId, String stage, int stageMask);
+
+    /**
+     * @desc 记录阶段失败
+     * @param tblId
+     * @param stage 阶段名称
+     * @param stageMask 同时记为完成的阶段位（如处理结束标记），无则为0
+     * @param error 失败原因
+     */
+    void markFailed(long tblId, String stage, int stageMask, String error);
+
+    /**
+     * @desc 清除告警处理阶段状态，重新处理前调用
+     * @param tblId
+     */
+    void clear(long tblId);
+}
@@ -0,0 +1,18 @@
+package com.yuce.service;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import com.yuce.entity.PreFilterRule;
+
+import java.util.List;
+
+/**
+ * 告警预筛选规则业务操作
+ */
+public interface PreFilterRuleService extends IService<PreFilterRule> {
+
+    /**
+     * @desc 查询启用的规则，按优先级升序
+     * @return
+     */
+    List<PreFilterRule> getEnabledRules();
+}
@@ -0,0 +1,73 @@
+package com.yuce.service.impl;
+
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.yuce.entity.AlarmPipelineState;
+import com.yuce.mapper.AlarmPipelineStateMapper;
+import com.yuce.service.AlarmPipelineStateService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 告警处理阶段状态业务操作实现类：状态写入失败仅记录日志，不影响告警处理
+ */
+@Service
+@Slf4j
+public class AlarmPipelineStateServiceImpl extends ServiceImpl<AlarmPipelineStateMapper, AlarmPipelineState> implements AlarmPipelineStateService {
+
+    private static final DateTimeFormatter STAGE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    @Override
+    public AlarmPipelineState getState(long tblId) {
+        return this.getById(tblId);
+    }
+
+    @Override
+    public List<AlarmPipelineState> getStateList(List<Long> tblIdList) {
+        if (tblIdList == null || tblIdList.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return this.listByIds(tblIdList);
+    }
+
+    @Override
+    public void markSaved(List<Long> tblIdList, String stage) {
+        if (tblIdList == null || tblIdList.isEmpty()) {
+            return;
+        }
+        try {
+            baseMapper.insertInitial(tblIdList, stage, LocalDateTime.now().format(STAGE_TIME_FORMATTER));
+        } catch (Exception e) {
+            log.warn("告警处理初始阶段状态写入失败 | 数量:{} | stage:{} | 异常:{}", tblIdList.size(), stage, e.getMessage());
+        }
+    }
+
+    @Override
+    public void markCompleted(long tblId, String stage, int stageMask) {
+        upsert(tblId, stage, stageMask, null);
+    }
+
+    @Override
+    public void markFailed(long tblId, String stage, int stageMask, String error) {
+        String cause = error == null ? "unknown" : error;
+        upsert(tblId, stage, stageMask, cause.length() > MAX_ERROR_LENGTH ? cause.substring(0, MAX_ERROR_LENGTH) : cause);
+    }
+
+    @Override
+    public void clear(long tblId) {
+        this.removeById(tblId);
+    }
+
+    private void upsert(long tblId, String stage, int stageMask, String error) {
+        try {
+            baseMapper.upsert(tblId, stageMask, stage, LocalDateTime.now().format(STAGE_TIME_FORMATTER), error);
+        } catch (Exception e) {
+            log.warn("告警处理阶段状态写入失败 | tblId:{} | stage:{} | 异常:{}", tblId, stage, e.getMessage());
+        }
+    }
+}
@@ -77,8 +77,9 @@ public class CheckAlarmResultServiceImpl extends ServiceImpl<CheckAlarmResultMap
      * @param checkReason
      * @param sourceType
      * @param name
+     * @return 新增的检测结果
      */
-    public void insert(OriginalAlarmRecord record, int checkFlag, String checkReason, String sourceType, String name) {
+    public CheckAlarmResult insert(OriginalAlarmRecord record, int checkFlag, String checkReason, String sourceType, String name) {
         CheckAlarmResult result = new CheckAlarmResult();
         result.setTblId(record.getTblId());
         result.setAlarmId(record.getId());
@@ -90,5 +91,6 @@ public class CheckAlarmResultServiceImpl extends ServiceImpl<CheckAlarmResultMap
         result.setCheckReason(checkReason);
         result.setCheckTime(LocalDateTime.now());
         checkAlarmResultMapper.insert(result);
+        return result;
     }
 }
\ No newline at end of file
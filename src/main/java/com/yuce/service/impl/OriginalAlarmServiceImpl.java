@@ -10,8 +10,10 @@ import com.yuce.entity.OriginalAlarmRecord;
 import com.yuce.entity.QueryResultCheckRecord;
 import com.yuce.mapper.OriginalAlarmMapper;
 import com.yuce.service.OriginalAlarmService;
+import com.yuce.util.AlarmIdempotencyFilter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
@@ -19,7 +21,12 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 /**
  * @ClassName OriginalAlarmServiceImpl
@@ -36,6 +43,9 @@ public class OriginalAlarmServiceImpl extends ServiceImpl<OriginalAlarmMapper, O
     @Autowired
     private OriginalAlarmMapper originalAlarmMapper;
 
+    @Autowired
+    private AlarmIdempotencyFilter alarmIdempotencyFilter;
+
     // 常量抽取：避免硬编码，统一维护
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
     private static final int DEAL_FLAG_EVENT = 1; // 1：被确定为事件
@@ -97,38 +107,200 @@ public class OriginalAlarmServiceImpl extends ServiceImpl<OriginalAlarmMapper, O
 
     /**
      * 插入或更新记录（存在则更新，不存在则插入）
-     * @param record 告警记录（非空，且需包含联合主键字段）
+     * @remark 先经内存幂等过滤判重：一定不存在的直接插入，已缓存tblId的直接更新，仅疑似重复时查询数据库；
+     *         过滤器未覆盖的已有记录（早于预热窗口、已轮换代）插入时违反联合唯一键，按联合主键查询后更新
+     * @param record 告警记录（非空，且需包含联合主键字段），新增后回填tblId
      */
     public boolean saveOrUpdateRecord(OriginalAlarmRecord record) {
 
         String alarmId = record.getId();
         String imagePath = record.getImagePath();
         String videoPath = record.getVideoPath();
+        long keyHash = alarmIdempotencyFilter.hash(alarmId, imagePath, videoPath);
 
         //查询记录是否存在
-        OriginalAlarmRecord existingRecord = getRecordByKey(alarmId, imagePath, videoPath);
-
-        if(existingRecord != null) {
-            //更新告警记录
-            record.setTblId(existingRecord.getTblId());
-            record.setDbUpdateTime(LocalDateTime.now()); // 强制更新时间戳，确保数据一致性
-            boolean flag = this.updateById(record);
-            if(flag){
-                log.info("告警记录已存在，更新成功 | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", existingRecord.getTblId(), alarmId, imagePath, videoPath);
-            }else{
-                log.info("告警记录已存在，更新失败 | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", existingRecord.getTblId(), alarmId, imagePath, videoPath);
-            }
+        Long existingTblId = null;
+        switch (alarmIdempotencyFilter.probe(keyHash)) {
+            case CONFIRMED:
+                existingTblId = alarmIdempotencyFilter.cachedTblId(keyHash);
+                break;
+            case PROBABLE:
+                OriginalAlarmRecord existingRecord = getRecordByKey(alarmId, imagePath, videoPath);
+                existingTblId = existingRecord == null ? null : existingRecord.getTblId();
+                break;
+            default:
+                break;
+        }
+
+        if(existingTblId != null) {
+            updateExisting(record, existingTblId, keyHash);
             return true;
         }else{
             //新增告警记录
             record.setDbCreateTime(LocalDateTime.now());
             record.setDbUpdateTime(LocalDateTime.now());
-            this.save(record);
-            log.info("告警记录新增成功 | alarmId:{} | imagePath:{} | videoPath:{}", alarmId, imagePath, videoPath);
+            try {
+                this.save(record);
+            } catch (DuplicateKeyException e) {
+                OriginalAlarmRecord existingRecord = getRecordByKey(alarmId, imagePath, videoPath);
+                if (existingRecord == null) {
+                    throw e;
+                }
+                log.info("告警记录未命中幂等过滤但已存在，转为更新 | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", existingRecord.getTblId(), alarmId, imagePath, videoPath);
+                record.setDbCreateTime(null);
+                updateExisting(record, existingRecord.getTblId(), keyHash);
+                return true;
+            }
+            alarmIdempotencyFilter.confirm(keyHash, record.getTblId());
+            log.info("告警记录新增成功 | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", record.getTblId(), alarmId, imagePath, videoPath);
             return false;
         }
     }
 
+    /**
+     * @desc 更新已存在的告警记录并记入幂等过滤
+     */
+    private void updateExisting(OriginalAlarmRecord record, long existingTblId, long keyHash) {
+        record.setTblId(existingTblId);
+        record.setDbUpdateTime(LocalDateTime.now()); // 强制更新时间戳，确保数据一致性
+        boolean flag = this.updateById(record);
+        if(flag){
+            log.info("告警记录已存在，更新成功 | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", existingTblId, record.getId(), record.getImagePath(), record.getVideoPath());
+        }else{
+            log.info("告警记录已存在，更新失败 | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", existingTblId, record.getId(), record.getImagePath(), record.getVideoPath());
+        }
+        alarmIdempotencyFilter.confirm(keyHash, existingTblId);
+    }
+
+    /**
+     * 批量插入或更新记录：批内按 告警ID+图片路径+视频路径 去重，一次IN查询判断已存在记录，
+     * 已存在记录批量更新，新记录多行插入并回填tblId；多行插入违反联合唯一键时（幂等过滤未覆盖的已有记录），
+     * 待插入记录整体改走IN查询判重后重新拆分
+     * @remark 更新先于插入执行，多行插入为单条语句（整体成功或整体失败），插入作为最后一步：
+     *         方法抛出异常时本批未新增任何记录，调用方退化为逐条处理时新记录仍按新增处理，不会误判为已存在而跳过算法处理
+     * @param records 告警记录列表（同一联合主键以批内最后一条为准）
+     * @param existingList 输出：本批已存在并完成更新的告警记录（已回填tblId）
+     * @return 本批新增的告警记录（已回填tblId），已存在记录不返回
+     */
+    public List<OriginalAlarmRecord> saveOrUpdateBatch(List<OriginalAlarmRecord> records, List<OriginalAlarmRecord> existingList) {
+        if (records == null || records.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // 1. 批内去重：同一联合主键保留最后一条
+        Map<String, OriginalAlarmRecord> uniqueMap = new LinkedHashMap<>();
+        for (OriginalAlarmRecord record : records) {
+            uniqueMap.put(buildKey(record.getId(), record.getImagePath(), record.getVideoPath()), record);
+        }
+
+        // 2. 内存幂等过滤判重：一定不存在的直接插入，已缓存tblId的直接更新，仅疑似重复的通过一次IN查询获取tblId
+        Map<String, Long> keyHashMap = new LinkedHashMap<>();
+        Map<String, Long> existingMap = new LinkedHashMap<>();
+        List<OriginalAlarmRecord> probableList = new ArrayList<>();
+        uniqueMap.forEach((key, record) -> {
+            long keyHash = alarmIdempotencyFilter.hash(record.getId(), record.getImagePath(), record.getVideoPath());
+            keyHashMap.put(key, keyHash);
+            switch (alarmIdempotencyFilter.probe(keyHash)) {
+                case CONFIRMED:
+                    existingMap.put(key, alarmIdempotencyFilter.cachedTblId(keyHash));
+                    break;
+                case PROBABLE:
+                    probableList.add(record);
+                    break;
+                default:
+                    break;
+            }
+        });
+        List<String> alarmIdList = probableList.stream().map(OriginalAlarmRecord::getId).filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        lookupExisting(alarmIdList, existingMap);
+
+        // 3. 拆分已存在与新增记录
+        LocalDateTime now = LocalDateTime.now();
+        List<OriginalAlarmRecord> updateList = new ArrayList<>();
+        List<OriginalAlarmRecord> insertList = new ArrayList<>();
+        split(uniqueMap, existingMap, now, updateList, insertList);
+
+        // 4. 已存在记录批量更新
+        updateBatchExisting(updateList);
+        existingList.addAll(updateList);
+
+        // 5. 新记录多行插入，违反联合唯一键时待插入记录全部经IN查询判重后重新拆分，新识别的已存在记录更新后再插入其余记录
+        if (!insertList.isEmpty()) {
+            try {
+                originalAlarmMapper.insertBatch(insertList);
+            } catch (DuplicateKeyException e) {
+                List<String> insertAlarmIdList = insertList.stream().map(OriginalAlarmRecord::getId).filter(Objects::nonNull).distinct().collect(Collectors.toList());
+                log.info("告警记录批量新增违反联合唯一键，按数据库判重后重新拆分 | 待新增数量:{}", insertList.size());
+                lookupExisting(insertAlarmIdList, existingMap);
+                Map<String, OriginalAlarmRecord> insertMap = new LinkedHashMap<>();
+                for (OriginalAlarmRecord record : insertList) {
+                    insertMap.put(buildKey(record.getId(), record.getImagePath(), record.getVideoPath()), record);
+                }
+                List<OriginalAlarmRecord> duplicateList = new ArrayList<>();
+                insertList.clear();
+                split(insertMap, existingMap, now, duplicateList, insertList);
+                updateBatchExisting(duplicateList);
+                existingList.addAll(duplicateList);
+                if (!insertList.isEmpty()) {
+                    originalAlarmMapper.insertBatch(insertList);
+                }
+            }
+            if (!insertList.isEmpty()) {
+                log.info("告警记录批量新增成功 | 数量:{} | 批内去重前:{} | 数据库判重数量:{}", insertList.size(), records.size(), probableList.size());
+            }
+        }
+        uniqueMap.forEach((key, record) -> alarmIdempotencyFilter.confirm(keyHashMap.get(key), record.getTblId()));
+        return insertList;
+    }
+
+    /**
+     * @desc 已存在记录批量更新
+     */
+    private void updateBatchExisting(List<OriginalAlarmRecord> updateList) {
+        if (!updateList.isEmpty()) {
+            this.updateBatchById(updateList);
+            log.info("告警记录已存在，批量更新完成 | 数量:{}", updateList.size());
+        }
+    }
+
+    /**
+     * @desc 按告警ID一次IN查询已存在记录，写入 联合主键 -> tblId
+     */
+    private void lookupExisting(List<String> alarmIdList, Map<String, Long> existingMap) {
+        if (alarmIdList.isEmpty()) {
+            return;
+        }
+        for (OriginalAlarmRecord existing : originalAlarmMapper.getKeyListByAlarmIdList(alarmIdList)) {
+            existingMap.put(buildKey(existing.getId(), existing.getImagePath(), existing.getVideoPath()), existing.getTblId());
+        }
+    }
+
+    /**
+     * @desc 按已存在记录拆分待更新与待新增记录
+     */
+    private void split(Map<String, OriginalAlarmRecord> uniqueMap, Map<String, Long> existingMap, LocalDateTime now,
+                       List<OriginalAlarmRecord> updateList, List<OriginalAlarmRecord> insertList) {
+        uniqueMap.forEach((key, record) -> {
+            Long tblId = existingMap.get(key);
+            record.setDbUpdateTime(now);
+            if (tblId != null) {
+                record.setTblId(tblId);
+                record.setDbCreateTime(null);
+                updateList.add(record);
+            } else {
+                record.setDbCreateTime(now);
+                insertList.add(record);
+            }
+        });
+    }
+
+    /**
+     * @desc 联合主键拼接
+     */
+    private String buildKey(String alarmId, String imagePath, String videoPath) {
+        return alarmId + "|" + imagePath + "|" + videoPath;
+    }
+
     /**
      * 根据关联 tblId 列表查询所有告警记录（按告警时间倒序）
      * @param relatedTblIdList tblId 列表（非空且非空列表）
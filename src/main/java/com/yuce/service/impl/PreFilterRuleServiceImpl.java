@@ -0,0 +1,25 @@
+package com.yuce.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.yuce.entity.PreFilterRule;
+import com.yuce.mapper.PreFilterRuleMapper;
+import com.yuce.service.PreFilterRuleService;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * 告警预筛选规则业务操作实现类
+ */
+@Service
+public class PreFilterRuleServiceImpl extends ServiceImpl<PreFilterRuleMapper, PreFilterRule> implements PreFilterRuleService {
+
+    @Override
+    public List<PreFilterRule> getEnabledRules() {
+        QueryWrapper<PreFilterRule> queryWrapper = new QueryWrapper<>();
+        queryWrapper.eq("enabled", 1);
+        queryWrapper.orderByAsc("priority", "id");
+        return this.list(queryWrapper);
+    }
+}
@@ -0,0 +1,193 @@
+package com.yuce.task;
+
+import com.yuce.algorithm.ReprocessAlgorithm;
+import com.yuce.config.DeadLetterProperties;
+import com.yuce.entity.DeadLetterEntry;
+import com.yuce.entity.OriginalAlarmRecord;
+import com.yuce.service.impl.OriginalAlarmServiceImpl;
+import com.yuce.util.DeadLetterSpool;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 死信重放定时任务：检测服务全部可连通后，以有限并发重放已到重放时间的死信记录；
+ * 重放仅覆盖"无法判断"的初检结果，已得到明确结果的告警直接标记完成
+ * 每轮重放在独立线程中执行，不占用Spring定时任务线程（上一轮未结束时跳过本轮）
+ */
+@Component
+@Slf4j
+public class DeadLetterReplayTask {
+
+    private static final int HEALTH_CHECK_TIMEOUT_MS = 3000;
+
+    @Autowired
+    private DeadLetterProperties deadLetterProperties;
+
+    @Autowired
+    private DeadLetterSpool deadLetterSpool;
+
+    @Autowired
+    private EventFetchTask eventFetchTask;
+
+    @Autowired
+    private OriginalAlarmServiceImpl originalAlarmServiceImpl;
+
+    @Autowired
+    private ReprocessAlgorithm reprocessAlgorithm;
+
+    private ExecutorService replayExecutor;
+
+    private ExecutorService roundExecutor; //执行重放轮次的单线程
+
+    private final AtomicBoolean roundRunning = new AtomicBoolean(false);
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger counter = new AtomicInteger(0);
+        replayExecutor = Executors.newFixedThreadPool(Math.max(1, deadLetterProperties.getReplayConcurrency()),
+                r -> new Thread(r, "DeadLetterReplayThread-" + counter.incrementAndGet()));
+        roundExecutor = Executors.newSingleThreadExecutor(r -> new Thread(r, "DeadLetterReplayRound"));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        roundExecutor.shutdownNow();
+        replayExecutor.shutdownNow();
+    }
+
+    @Scheduled(initialDelayString = "${dead-letter.replay-interval-ms:30000}", fixedDelayString = "${dead-letter.replay-interval-ms:30000}")
+    public void replay() {
+        if (!deadLetterProperties.isEnabled() || !roundRunning.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            roundExecutor.execute(() -> {
+                try {
+                    replayRound();
+                } finally {
+                    roundRunning.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            roundRunning.set(false);
+        }
+    }
+
+    /**
+     * @desc 单轮重放：健康检查通过后并发重放已到期记录，等待本轮全部结束
+     */
+    private void replayRound() {
+        try {
+            List<DeadLetterEntry> dueEntries = deadLetterSpool.pollDue(deadLetterProperties.getReplayBatchSize());
+            if (!dueEntries.isEmpty()) {
+                if (!isServiceHealthy()) {
+                    log.info("检测服务暂不可用，本轮不重放死信 | 待重放数量:{}", deadLetterSpool.pendingCount());
+                    return;
+                }
+                log.info("开始重放死信 | 本轮数量:{} | 待重放数量:{}", dueEntries.size(), deadLetterSpool.pendingCount());
+                List<Callable<Void>> jobs = dueEntries.stream()
+                        .map(entry -> (Callable<Void>) () -> {
+                            replayEntry(entry);
+                            return null;
+                        })
+                        .collect(Collectors.toList());
+                replayExecutor.invokeAll(jobs);
+            }
+            deadLetterSpool.compactIfNeeded();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("死信重放异常", e);
+        }
+    }
+
+    /**
+     * @desc 重放单条死信：入库前失败的重新解析入库，新增记录执行完整处理链路；
+     *       已入库（含原始消息重放时发现记录已存在）且仍为"无法判断"的清理派生结果后重新执行算法链路
+     * @param entry
+     */
+    private void replayEntry(DeadLetterEntry entry) {
+        try {
+            OriginalAlarmRecord record;
+            if (entry.getTblId() == null) {
+                byte[] payload = entry.getPayload() == null ? new byte[0] : entry.getPayload().getBytes(StandardCharsets.UTF_8);
+                record = eventFetchTask.decodeForReplay(new ConsumerRecord<>(entry.getTopic(), entry.getPartition(), entry.getOffset(), null, payload));
+                if (record == null) {
+                    deadLetterSpool.markDone(entry, "原始消息已被筛选剔除");
+                    return;
+                }
+                if (!originalAlarmServiceImpl.saveOrUpdateRecord(record)) {
+                    // 新增记录：执行完整处理链路，仍无法判断时下次按已入库记录重放
+                    if (eventFetchTask.analyzeReplayed(record)) {
+                        deadLetterSpool.markDone(entry, "原始消息重放完成");
+                    } else {
+                        deadLetterSpool.markRetry(entry, "原始消息重放后仍无法判断");
+                    }
+                    return;
+                }
+                // 告警记录已存在（仅更新了原始字段），按入库后失败的记录判断是否需要重新处理
+            } else {
+                record = originalAlarmServiceImpl.getRecordByTblId(entry.getTblId());
+                if (record == null) {
+                    deadLetterSpool.markDone(entry, "告警记录不存在");
+                    return;
+                }
+            }
+            if (!reprocessAlgorithm.isUpgradable(record.getTblId())) {
+                deadLetterSpool.markDone(entry, "告警记录已有明确初检结果");
+                return;
+            }
+
+            reprocessAlgorithm.resetDerivedResults(record);
+            if (eventFetchTask.reprocess(record)) {
+                deadLetterSpool.markDone(entry, "重放完成");
+                log.info("死信重放成功 | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{} | 原失败阶段:{}", record.getTblId(), record.getId(), record.getImagePath(), record.getVideoPath(), entry.getStage());
+            } else {
+                deadLetterSpool.markRetry(entry, "重放后仍无法判断");
+            }
+        } catch (Exception e) {
+            log.error("死信重放失败 | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", entry.getTblId(), entry.getAlarmId(), entry.getImagePath(), entry.getVideoPath(), e);
+            deadLetterSpool.markRetry(entry, String.valueOf(e));
+        }
+    }
+
+    /**
+     * @desc 检测服务健康检查：所有配置的服务地址均可建立TCP连接
+     * @return
+     */
+    private boolean isServiceHealthy() {
+        List<String> urls = deadLetterProperties.getHealthCheckUrls();
+        if (urls == null) {
+            return true;
+        }
+        for (String url : urls) {
+            try (Socket socket = new Socket()) {
+                URI uri = URI.create(url);
+                int port = uri.getPort() > 0 ? uri.getPort() : ("https".equals(uri.getScheme()) ? 443 : 80);
+                socket.connect(new InetSocketAddress(uri.getHost(), port), HEALTH_CHECK_TIMEOUT_MS);
+            } catch (Exception e) {
+                log.warn("检测服务连通性检查失败 | 地址:{} | 原因:{}", url, e.getMessage());
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,21 +1,22 @@
 package com.yuce.task;
 
-import com.alibaba.fastjson.JSONObject;
 import com.yuce.algorithm.*;
-import com.yuce.common.GxDealTagDataPush;
-import com.yuce.entity.CheckAlarmResult;
 import com.yuce.entity.OriginalAlarmRecord;
+import com.yuce.handler.AlarmFilterPolicy;
+import com.yuce.handler.AlarmMessageDecoder;
 import com.yuce.handler.MessageHandler;
+import com.yuce.handler.MessageTask;
 import com.yuce.service.impl.*;
-import com.yuce.util.FlagTagUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
-import org.springframework.util.StringUtils;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 多消费者并行处理事件捕获任务
@@ -29,54 +30,55 @@ public class EventFetchTask implements MessageHandler {
     private OriginalAlarmServiceImpl originalAlarmServiceImpl;
 
     @Autowired
-    private RoadCheckRecordServiceImpl roadCheckRecordServiceImpl;
+    private AlarmPipeline alarmPipeline;//告警统一处理入口
 
     @Autowired
-    private CloudEyesDeviceServiceImpl cloudEyesDeviceServiceImpl;
+    private AlarmAnalysisPipeline alarmAnalysisPipeline;//告警分阶段处理链路
 
     @Autowired
-    private CheckAlarmResultServiceImpl checkAlarmResultServiceImpl;
+    private ReprocessAlgorithm reprocessAlgorithm;//告警重新处理服务
 
-    @Autowired
-    private GeneralAlgorithm generalAlgorithm; //通用算法服务
-
-    @Autowired
-    private ExtractFrameAlgorithm extractFrameAlgorithm;//抽帧算法服务
-
-    @Autowired
-    private ExtractWindowAlgorithm extractWindowAlgorithm;//提框算法服务
-
-    @Autowired
-    private PswAlgorithm pswAlgorithm;//抛洒物算法服务
-
-    @Autowired
-    private PersonAlgorithm personAlgorithm;//行人算法服务
-
-    @Autowired
-    private VehicleAlgorithm vehicleAlgorithm;//停驶算法服务(目前停驶算法与行人算法基本保持一致，为了扩展性，两者独立)
-
-    @Autowired
-    private CheckResultAlgorithm checkResultAlgorithm;
-
-    @Autowired
-    private FeatureElementAlgorithm featureElementAlgorithm;//特征要素填充服务
+    //33112杭金衢G60,33141杭甬G92
+    private static final List<String> ROAD_LIST = Arrays.asList("33141", "33112");//接受道路编码列表
+    private static final LocalDateTime startTime = LocalDateTime.of(2026, 01, 19, 06, 0, 0);
+    //非目标事件类型仍需入库并按通用规则打标，预筛选不按事件类型剔除
+    private static final AlarmMessageDecoder MESSAGE_DECODER = new AlarmMessageDecoder(ROAD_LIST, null, startTime);
 
-    @Autowired
-    private AlarmCollectionAlgorithm alarmCollectionAlgorithm;//告警集填充服务
+    /**
+     * kafka来源筛选策略：仅抽取G33141、G33112，剔除起始时间之前的数据；推送原始告警记录，按告警时效调度，处理失败记入死信暂存
+     */
+    private static final AlarmFilterPolicy KAFKA_POLICY = new AlarmFilterPolicy() {
+        @Override
+        public String name() {
+            return "kafka";
+        }
 
-    @Autowired
-    private CollectionGroupAlgorithm collectionGroupAlgorithm;//告警组填充服务
+        @Override
+        public String rejectBeforeSave(OriginalAlarmRecord record) {
+            if (!ROAD_LIST.contains(record.getRoadId())) {
+                return "告警记录不在判定道路范围内";
+            }
+            if (record.getAlarmTime() == null || record.getAlarmTime().isBefore(startTime)) {
+                return "告警时间早于起始时间";
+            }
+            return null;
+        }
 
-    @Autowired
-    private RoadAlgorithm roadAlgorithm;//路面检测算法服务
+        @Override
+        public boolean notifyUpstream() {
+            return true;
+        }
 
-    @Autowired
-    private GxDealTagDataPush gxDealTagDataPush;
+        @Override
+        public boolean deadlineAware() {
+            return true;
+        }
 
-    //33112杭金衢G60,33141杭甬G92
-    private static final List<String> ROAD_LIST = Arrays.asList("33141", "33112");//接受道路编码列表
-    private static final List<String> EVENT_TYPE_LIST = Arrays.asList("停驶", "行人", "抛洒物");//接受事件类型列表
-    private static final LocalDateTime startTime = LocalDateTime.of(2026, 01, 19, 06, 0, 0);
+        @Override
+        public boolean spoolOnFailure() {
+            return true;
+        }
+    };
 
     /**
      * 业务核心处理方法：
@@ -93,257 +95,127 @@ public class EventFetchTask implements MessageHandler {
      *  10、调用告警集服务补充告警集信息
      *  11、调用告警组服务补充告警组信息
      */
-    public void handleMessage(ConsumerRecord<String, String> record) {
+    public void handleMessage(ConsumerRecord<String, byte[]> record) {
 
         //kafka原始数据格式化处理
-        OriginalAlarmRecord alarmRecord = JSONObject.parseObject(record.value().replaceAll("^\"|\"$|\\\\", ""), OriginalAlarmRecord.class);//
-
-        //获取基础告警记录字段信息
-        String eventType = alarmRecord.getEventType();
-        String alarmId = alarmRecord.getId();
-        String roadId = alarmRecord.getRoadId();
-        String imagePath = alarmRecord.getImagePath();
-        String videoPath = alarmRecord.getVideoPath();
-        String companyName = alarmRecord.getCompany();
-        log.info("接收原始告警记录 | 分区:{} | 偏移量:{} | 道路ID:{} | 告警类型:{} | 告警ID:{} | 公司:{} | 图片路径:{} | 视频路径:{}", record.partition(), record.offset(), roadId, eventType, alarmId, companyName, imagePath, videoPath);
-
-        /**
-         * @desc 目标道路筛选过滤
-         * @remark 仅抽取G33141、G33112
-         */
-        if (!ROAD_LIST.contains(roadId)) {
-            log.info("告警记录不在判定道路范围内：alarmId:{} | imagePath:{} | videoPath:{} | roadId:{}", alarmId, imagePath, videoPath, roadId);
-            return;
-        }
-
-        /**
-         * @desc 数据时间范围校验
-         * @remark 剔除2025-11-21之前的数据
-         */
-        if (alarmRecord.getAlarmTime().isBefore(startTime)) {//判断告警时间是否在起始时间之后
-            return;
-        }
-
-        /**
-         * @desc 原始告警记录存储&&更新
-         * @remark 记录已存在返回true，已存在记录仅更新，不做后续处理
-         */
-        if(originalAlarmServiceImpl.saveOrUpdateRecord(alarmRecord)){
-            return;
-        };
-
-        //获取当前告警记录的主键id
-        alarmRecord = originalAlarmServiceImpl.getRecordByKey(alarmId, imagePath, videoPath);//查询tblId,原始告警记录不携带tblId
-        long tblId = alarmRecord.getTblId();
-
-        //推送原始告警记录
-        gxDealTagDataPush.pushToGx(alarmRecord);
-
-        /**
-         * @desc 视频路径、图片路径为空告警记录直接剔除
-         */
-        if(!StringUtils.hasText(imagePath) || !StringUtils.hasText(videoPath)){
-            log.info("图品/视频路径为空，调用通用算法检测 | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
-            return;
-        }
-
-        /**
-         * @desc 非停驶、行人、抛洒物告警默认正检
-         */
-        if(!EVENT_TYPE_LIST.contains(eventType)){
-            generalAlgorithm.checkDeal(alarmRecord,"", FlagTagUtil.CHECK_RESULT_RIGHT);
-            return;
-        }
-
-        /**
-         * @desc 视频连通性&&元数据校验
-         * @remark 校验成功进行后续算法处理；校验失败调用通用算法处理
-         */
-        if (!extractFrameAlgorithm.checkVideoConnectivityWithRetry(alarmRecord)) {
-            generalAlgorithm.checkDeal(alarmRecord,"视频资源访问异常，初检为无法判断", FlagTagUtil.CHECK_RESULT_UNKNOWN);
-            return;
-        }
-
-        /**
-         * @desc 视频抽帧服务
-         * @remark 校验成功进行后续算法处理；校验失败调用通用算法处理
-         */
-        if(!extractFrameAlgorithm.extractFrame(alarmRecord)){
-            generalAlgorithm.checkDeal(alarmRecord,"视频抽帧异常，初检为无法判断", FlagTagUtil.CHECK_RESULT_UNKNOWN);
+        OriginalAlarmRecord alarmRecord = decode(record);
+        if (alarmRecord == null) {
             return;
         }
 
-        /**
-         * @desc 图片提框异常
-         * @remark 校验成功进行后续算法处理；校验失败调用通用算法处理
-         */
-        if(!extractWindowAlgorithm.extractWindow(alarmRecord)){
-            generalAlgorithm.checkDeal(alarmRecord,"图片提框异常，初检为无法判断", FlagTagUtil.CHECK_RESULT_UNKNOWN);
-            return;
-        }
-
-        /**
-         * @desc 之江智能夜间检测逻辑：
-         * 夜间时段（17:00~次日06:00）的之江智能记录，默认标记为"正检"（
-         */
-        int alarmHour = alarmRecord.getAlarmTime().getHour();
-        boolean isZhijiang = "之江智能".equals(companyName);
-        boolean isNightTime = alarmHour >= 17 || alarmHour < 6;
-        if (isZhijiang && isNightTime) {
-            generalAlgorithm.checkDeal(alarmRecord, "之江智能夜间检测，初检为正检", FlagTagUtil.CHECK_RESULT_RIGHT);
-            return;
-        }
-
-        /**
-         * 场景1：误检
-         *      物体在路面外（路面内无记录，路面外有记录）→ 标记误检，调用通用算法处理
-         * 场景2：正检
-         *      检测类型非停驶、行人、抛洒物，通用算法处理
-         *      检测类型为停驶、行人、抛洒物，调用后续算法处理
-         */
-        try{
-            // 执行路面检测核心逻辑
-            roadAlgorithm.roadCheckDeal(alarmRecord);
-            // 查询路面检测结果（内/外记录数）
-            int onRoadCount = roadCheckRecordServiceImpl.getRecordByTblIdAndTypeAndFlag(tblId,"road", 1).size();
-            int outRoadCount = roadCheckRecordServiceImpl.getRecordByTblIdAndTypeAndFlag(tblId,"road", 2).size();
-            log.info("路面检测结果统计：tblId:{} | alarmId:{} | imagePath:{} | videoPath:{} | 路面内:{}条 | 路面外:{}条 ", tblId, alarmId, imagePath, videoPath, onRoadCount, outRoadCount);
-
-            if (onRoadCount == 0 && outRoadCount > 0) {
-                generalAlgorithm.checkDeal(alarmRecord, "非路面物体,初检为误检", FlagTagUtil.CHECK_RESULT_ERROR);
-                log.info("路面检测：物体在路面外，标记为误检：tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
-                return;
-            }
-
-            if (!EVENT_TYPE_LIST.contains(eventType)) {
-                log.info("路面检测：物体在路面内，但检测类型非停驶、行人、抛洒物，默认正检 | alarmId:{} | eventType:{} | imagePath:{} | videoPath:{} | roadId:{}", alarmId, eventType, imagePath, videoPath, roadId);
-                generalAlgorithm.checkDeal(alarmRecord, "", FlagTagUtil.CHECK_RESULT_RIGHT);
-                return;
-            }else{
-                log.info("路面检测：物体在路面内且事件类型需后续处理 | alarmId:{} | eventType:{} | imagePath:{} | videoPath:{}", alarmId, eventType, imagePath, videoPath);
-            }
-        } catch (Exception e) {
-            log.error("路面检测发生异常，默认继续后续处理：tblId:{} | alarmId:{} | imagePath:{} | videoPath:{} | 异常详情:{}", tblId, alarmId, imagePath, videoPath, e);
-        }
+        //目标范围筛选、存储及算法处理
+        alarmPipeline.process(alarmRecord, KAFKA_POLICY);
+    }
 
-        /**
-         * 抛洒物算法检验：调用抛洒物专属算法，失败时兜底通用算法
-         */
-        if ("抛洒物".equals(eventType)) {
+    /**
+     * @desc 批量处理一次拉取的消息：
+     *  1、逐条解析并筛选目标道路、时间范围
+     *  2、批内按 告警ID+图片路径+视频路径 去重，一次IN查询判断已存在记录
+     *  3、新记录多行插入并回填tblId，已存在记录仅更新
+     *  4、新增记录生成后续算法处理任务，已存在且上次处理中断（阶段状态未结束）的记录生成续跑任务，
+     *     按设备ID分发；无需视频分析的告警进入快速通道
+     */
+    @Override
+    public List<MessageTask> handleBatch(List<ConsumerRecord<String, byte[]>> records) {
+        Map<OriginalAlarmRecord, ConsumerRecord<String, byte[]>> sourceMap = new IdentityHashMap<>();
+        List<OriginalAlarmRecord> alarmRecords = new ArrayList<>();
+        for (ConsumerRecord<String, byte[]> record : records) {
             try {
-                boolean isPswSuccess = pswAlgorithm.pswDeal(alarmRecord);
-                if (!isPswSuccess) {
-                    // 3. 处理失败：日志明确原因，调用通用算法兜底
-                    generalAlgorithm.checkDeal(alarmRecord, "抛洒物算法处理失败,初检为无法判断", FlagTagUtil.CHECK_RESULT_UNKNOWN);
-                    log.info("抛洒物算法处理失败,兜底调用通用算法：tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
+                OriginalAlarmRecord alarmRecord = decode(record);
+                if (alarmRecord != null) {
+                    sourceMap.put(alarmRecord, record);
+                    alarmRecords.add(alarmRecord);
                 }
             } catch (Exception e) {
-                generalAlgorithm.checkDeal(alarmRecord, "抛洒物算法执行异常，初检为无法判断", FlagTagUtil.CHECK_RESULT_UNKNOWN);
-                log.error("抛洒物算法处理异常,兜底调用通用算法：tblId:{} | alarmId:{} | imagePath:{} | videoPath:{} | 异常详情:{}",tblId, alarmId, imagePath, videoPath, e);
+                log.error("原始告警记录解析异常 | 分区:{} | 偏移量:{}", record.partition(), record.offset(), e);
             }
-            return;
         }
 
-        /**
-         * 行人算法检验：调用行人专属算法，成功后执行系列后续处理，失败时兜底通用算法
-         */
-        if ("行人".equals(eventType)) {
-            try {
-                boolean isPersonDealSuccess = personAlgorithm.personDeal(alarmRecord);
-                if (!isPersonDealSuccess) {
-                    // 算法处理失败：日志说明原因，调用通用算法兜底
-                    log.info("行人算法处理失败,兜底调用通用算法:tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
-                    generalAlgorithm.checkDeal(alarmRecord, "行人算法处理失败,初检为无法判断", FlagTagUtil.CHECK_RESULT_UNKNOWN);
-                } else {
-                    checkResultAlgorithm.checkResultDealByAlgo(alarmRecord); // 1. 获取算法检测结果
-                    log.debug("行人后续流程：图片数量校验完成： tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
-
-                    featureElementAlgorithm.featureElementDealByAlgo(alarmRecord); // 3. 特征要素判定
-                    log.debug("行人后续流程：特征要素判定完成: tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
-
-                    alarmCollectionAlgorithm.collectionDeal(alarmRecord); // 4. 告警集判定
-                    log.debug("行人后续流程：告警集判定完成:tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
-
-                    collectionGroupAlgorithm.groupDeal(alarmRecord);// 5. 告警组判定
-                    log.info("行人后续流程：全部完成: tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
-                }
-            } catch (Exception e) {
-                log.error("行人算法处理异常 | 兜底调用通用算法 | alarmId:{} | imagePath:{} | videoPath:{} | 异常详情:", alarmId, imagePath, videoPath, e);
-                generalAlgorithm.checkDeal(alarmRecord, "行人算法执行异常,初检为无法判断", FlagTagUtil.CHECK_RESULT_UNKNOWN);
-            }
-            return;
+        List<MessageTask> tasks = new ArrayList<>();
+        List<OriginalAlarmRecord> resumeList = new ArrayList<>();
+        for (OriginalAlarmRecord alarmRecord : alarmPipeline.saveBatch(alarmRecords, KAFKA_POLICY, resumeList)) {
+            tasks.add(MessageTask.async(sourceMap.get(alarmRecord), alarmRecord.getDeviceId(), alarmPipeline.laneOf(alarmRecord), () -> alarmPipeline.analyzeAsync(alarmRecord, KAFKA_POLICY)));
         }
+        for (OriginalAlarmRecord alarmRecord : resumeList) {
+            tasks.add(MessageTask.async(sourceMap.get(alarmRecord), alarmRecord.getDeviceId(), alarmPipeline.laneOf(alarmRecord), () -> alarmPipeline.resumeAsync(alarmRecord, KAFKA_POLICY)));
+        }
+        return tasks;
+    }
 
-        /**
-         * 停驶算法检验：调用停驶专属算法，成功后执行系列后续处理，失败时兜底通用算法
-         */
-        if ("停驶".equals(eventType)) {
-            try {
-                // 执行停驶核心算法，用变量名清晰表达执行结果
-                boolean isVehicleDealSuccess = vehicleAlgorithm.vehicleDeal(alarmRecord);
-
-                if (!isVehicleDealSuccess) {
-                    log.info("停驶算法处理失败 | 兜底调用通用算法, tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
-                    generalAlgorithm.checkDeal(alarmRecord, "停驶算法处理失败,初检为无法判断", FlagTagUtil.CHECK_RESULT_UNKNOWN);
-                } else {
-                    log.info("停驶算法处理成功 | 开始执行后续业务流程 | tblId:{} | alarmId:{}", alarmId);
-
-                    checkResultAlgorithm.checkResultDealByAlgo(alarmRecord);// 1. 获取算法检测结果
-                    log.debug("停驶后续流程：IOU校验完成（阈值0.2): tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
+    /**
+     * @desc 解析kafka原始数据
+     * @remark 先在原始字节上预筛选道路及告警时间，仅通过预筛选的消息才解转义并绑定完整告警记录
+     * @param record
+     * @return 告警记录，预筛选剔除时返回null
+     */
+    private OriginalAlarmRecord decode(ConsumerRecord<String, byte[]> record) {
 
-                    featureElementAlgorithm.featureElementDealByAlgo(alarmRecord); // 3. 特征要素判定
-                    log.debug("停驶后续流程：特征要素判定完成: tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
+        //原始字节预筛选，剔除非目标道路、过期数据
+        AlarmMessageDecoder.Verdict verdict = MESSAGE_DECODER.prefilter(record.value());
+        if (verdict != AlarmMessageDecoder.Verdict.ACCEPT) {
+            log.debug("告警记录预筛选剔除 | 分区:{} | 偏移量:{} | 原因:{}", record.partition(), record.offset(), verdict);
+            return null;
+        }
 
-                    alarmCollectionAlgorithm.collectionDeal(alarmRecord);// 4. 告警集判定
-                    log.debug("停驶后续流程：告警集判定完成: tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
+        //kafka原始数据格式化处理
+        OriginalAlarmRecord alarmRecord = MESSAGE_DECODER.bind(record.value());
+        log.info("接收原始告警记录 | 分区:{} | 偏移量:{} | 道路ID:{} | 告警类型:{} | 告警ID:{} | 公司:{} | 图片路径:{} | 视频路径:{}", record.partition(), record.offset(), alarmRecord.getRoadId(), alarmRecord.getEventType(), alarmRecord.getId(), alarmRecord.getCompany(), alarmRecord.getImagePath(), alarmRecord.getVideoPath());
+        return alarmRecord;
+    }
 
-                    collectionGroupAlgorithm.groupDeal(alarmRecord); // 5. 告警组判定
-                    log.info("停驶后续流程：全部处理完成: tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
-                }
-            } catch (Exception e) {
-                log.error("停驶算法处理异常 | 兜底调用通用算法 | alarmId:{} | imagePath:{} | videoPath:{} | 异常详情:", alarmId, imagePath, videoPath, e);
-                generalAlgorithm.checkDeal(alarmRecord, "停驶算法执行异常,初检为无法判断", FlagTagUtil.CHECK_RESULT_UNKNOWN);
-            }
+    /**
+     * @desc kafka回放：解析筛选后存储原始告警记录，已存在的告警清理派生结果后重新执行算法处理链路，
+     *       新告警直接执行算法处理链路（回放不推送原始告警记录、不记入死信）
+     * @param record
+     */
+    public void replayMessage(ConsumerRecord<String, byte[]> record) throws Exception {
+        OriginalAlarmRecord alarmRecord = decode(record);
+        if (alarmRecord == null || !alarmPipeline.admit(alarmRecord, KAFKA_POLICY)) {
             return;
         }
-
-        /**
-         * 误检点位推送逻辑：
-         * 1. 查询当前告警的检测结果
-         * 2. 若为误检（checkFlag=2），获取最近50条误检记录的设备ID并推送刷新
-         */
-        // 1. 查询当前告警的检测结果（明确变量含义，避免歧义）
-        CheckAlarmResult currentCheckResult = checkAlarmResultServiceImpl.getResultByTblId(tblId);
-        log.info("开始误检点位推送处理 | 查询当前告警检测结果 | alarmId:{} | imagePath:{} | videoPath:{} | 检测结果是否存在:{}", alarmId, imagePath, videoPath, currentCheckResult != null);
-
-        // 2. 处理检测结果不存在的场景
-        if (currentCheckResult == null) {
-            log.error("误检点位推送失败 | 未查询到当前告警的正误检标签 | roadId:{} | alarmId:{} | eventType:{} | imagePath:{} | videoPath:{}", roadId, alarmId, eventType, imagePath, videoPath);
-            return; // 无检测结果，终止后续逻辑
+        if (originalAlarmServiceImpl.saveOrUpdateRecord(alarmRecord)) {
+            reprocessAlgorithm.resetDerivedResults(alarmRecord);
         }
+        reprocess(alarmRecord);
+    }
 
-        // 3. 仅处理误检场景（checkFlag=2）
-        if (currentCheckResult.getCheckFlag() != 2) {
-            log.debug("当前告警非误检，无需推送点位 | checkFlag:{} | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", currentCheckResult.getCheckFlag(), tblId, alarmId, imagePath, videoPath);
-            return;
+    /**
+     * @desc 死信重放原始消息：解析并执行入库前筛选
+     * @param record
+     * @return 告警记录，解析预筛选或入库前筛选剔除时返回null
+     */
+    public OriginalAlarmRecord decodeForReplay(ConsumerRecord<String, byte[]> record) {
+        OriginalAlarmRecord alarmRecord = decode(record);
+        if (alarmRecord == null || !alarmPipeline.admit(alarmRecord, KAFKA_POLICY)) {
+            return null;
         }
+        return alarmRecord;
+    }
 
-        try {
-            // 4. 获取最近50条误检记录的设备ID列表
-            List<String> recentFalseDeviceIds = checkAlarmResultServiceImpl.getRecentFalseCheckList(currentCheckResult.getId());
-            log.info("查询到最近50条误检记录的设备ID | 数量:{} | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{} | 设备ID列表:{}", recentFalseDeviceIds.size(), tblId, alarmId, imagePath, videoPath, recentFalseDeviceIds);
+    /**
+     * @desc 死信重放原始消息入库后的新增记录：执行完整算法处理链路（入库前失败未推送过，推送原始告警记录；不再记入死信）
+     * @param alarmRecord 已回填tblId的新增告警记录
+     * @return 是否得到算法结果，仍降级为"无法判断"时返回false
+     */
+    public boolean analyzeReplayed(OriginalAlarmRecord alarmRecord) throws Exception {
+        return alarmAnalysisPipeline.analyzeNew(alarmRecord, true, false);
+    }
 
-            // 5. 处理空列表场景（避免无效调用）
-            if (recentFalseDeviceIds.isEmpty()) {
-                log.warn("误检点位推送：最近50条误检记录的设备ID列表为空 | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
-                return;
-            }
+    /**
+     * @desc 死信重放：重新执行算法处理链路（不再推送原始告警记录、不再记入死信）
+     * @param alarmRecord 已清理派生结果的告警记录
+     * @return 是否得到算法结果，仍降级为"无法判断"时返回false
+     */
+    public boolean reprocess(OriginalAlarmRecord alarmRecord) throws Exception {
+        return alarmAnalysisPipeline.analyze(alarmRecord, false, false);
+    }
 
-            // 6. 推送设备ID列表刷新
-            cloudEyesDeviceServiceImpl.refreshDevices(recentFalseDeviceIds);
-            log.info("误检点位推送成功 | 设备ID数量:{} tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", recentFalseDeviceIds.size(), tblId, alarmId, imagePath, videoPath);
-        } catch (Exception e) {
-            log.error("误检点位推送异常 | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{} | 异常详情:", tblId, alarmId, imagePath, videoPath, e);
-        }
+    /**
+     * @desc 按设备ID分发：同一设备的告警串行处理，避免同设备告警并发写入告警集、告警组
+     * @remark 直接在原始字节中扫描deviceId字段，不做完整JSON解析
+     */
+    @Override
+    public String dispatchKey(ConsumerRecord<String, byte[]> record) {
+        return MESSAGE_DECODER.scanDeviceId(record.value());
     }
-}
\ No newline at end of file
+}
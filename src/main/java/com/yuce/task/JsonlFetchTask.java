@@ -0,0 +1,142 @@
+package com.yuce.task;
+
+import com.alibaba.fastjson.JSON;
+import com.yuce.algorithm.AlarmPipeline;
+import com.yuce.entity.OriginalAlarmRecord;
+import com.yuce.handler.AlarmFilterPolicy;
+import com.yuce.util.KeyedWorkerPool;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * JSONL文件告警来源：逐行读取告警记录（普通JSON或kafka转义后的JSON字符串）送入统一处理入口，
+ * 用于离线重放及处理链路压测；不推送原始告警记录、不记入死信
+ */
+@Slf4j
+@Component
+public class JsonlFetchTask {
+
+    private static final int QUEUE_CAPACITY = 64;
+
+    /**
+     * jsonl来源筛选策略：不做来源筛选，全部入库并进行算法处理
+     */
+    private static final AlarmFilterPolicy JSONL_POLICY = () -> "jsonl";
+
+    @Autowired
+    private AlarmPipeline alarmPipeline;//告警统一处理入口
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicLong lines = new AtomicLong();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile String currentFile;
+    private volatile long startTimeMillis;
+    private volatile long finishTimeMillis;
+
+    /**
+     * @desc 后台启动文件处理，同一时间仅处理一个文件
+     * @param file JSONL文件
+     * @param threads 处理并行度（按设备ID分片）
+     */
+    public void start(Path file, int threads) {
+        if (!Files.isRegularFile(file)) {
+            throw new IllegalArgumentException("文件不存在：" + file);
+        }
+        if (threads <= 0) {
+            throw new IllegalArgumentException("处理并行度必须大于0");
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("已有文件正在处理：" + currentFile);
+        }
+        lines.set(0);
+        processed.set(0);
+        failed.set(0);
+        currentFile = file.toString();
+        startTimeMillis = System.currentTimeMillis();
+        finishTimeMillis = 0;
+        Thread reader = new Thread(() -> process(file, threads), "JsonlFetchThread");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * @desc 处理进度
+     * @return
+     */
+    public Map<String, Object> status() {
+        long end = finishTimeMillis > 0 ? finishTimeMillis : System.currentTimeMillis();
+        double elapsedSeconds = startTimeMillis == 0 ? 0 : Math.max(1, end - startTimeMillis) / 1000.0;
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("running", running.get());
+        status.put("file", currentFile);
+        status.put("lines", lines.get());
+        status.put("processed", processed.get());
+        status.put("failed", failed.get());
+        status.put("elapsedSeconds", (long) elapsedSeconds);
+        status.put("ratePerSecond", elapsedSeconds == 0 ? 0 : Math.round(processed.get() / elapsedSeconds * 100) / 100.0);
+        return status;
+    }
+
+    private void process(Path file, int threads) {
+        log.info("开始处理JSONL告警文件 | 文件:{} | 并行度:{}", file, threads);
+        KeyedWorkerPool workerPool = new KeyedWorkerPool("JsonlWorkerThread", threads, QUEUE_CAPACITY);
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                long lineNo = lines.incrementAndGet();
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                OriginalAlarmRecord alarmRecord;
+                try {
+                    alarmRecord = parse(line.trim());
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                    log.warn("JSONL告警记录解析失败 | 文件:{} | 行号:{}", file, lineNo);
+                    continue;
+                }
+                workerPool.submit(alarmRecord.getDeviceId(), () -> {
+                    try {
+                        alarmPipeline.process(alarmRecord, JSONL_POLICY);
+                    } catch (Exception e) {
+                        failed.incrementAndGet();
+                        log.error("JSONL告警记录处理失败 | 文件:{} | 行号:{} | alarmId:{}", file, lineNo, alarmRecord.getId(), e);
+                    } finally {
+                        processed.incrementAndGet();
+                    }
+                });
+            }
+            workerPool.shutdown();
+            workerPool.awaitTermination(Long.MAX_VALUE / 2, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("JSONL告警文件处理异常 | 文件:{}", file, e);
+        } finally {
+            workerPool.shutdown();
+            finishTimeMillis = System.currentTimeMillis();
+            running.set(false);
+            log.info("JSONL告警文件处理结束 | 文件:{} | 行数:{} | 已处理:{} | 失败:{}", file, lines.get(), processed.get(), failed.get());
+        }
+    }
+
+    /**
+     * @desc 解析单行告警记录：kafka转义格式（首尾带引号）先还原为JSON字符串，其余按普通JSON解析
+     */
+    private static OriginalAlarmRecord parse(String line) {
+        String json = line.charAt(0) == '"' ? JSON.parseObject(line, String.class) : line;
+        return JSON.parseObject(json, OriginalAlarmRecord.class);
+    }
+}
@@ -0,0 +1,47 @@
+package com.yuce.task;
+
+import com.yuce.config.KafkaProperties;
+import com.yuce.util.KafkaUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * kafka消费者弹性伸缩定时任务：按消费组总积压在上下限之间增减consumer数量
+ */
+@Component
+@Slf4j
+public class KafkaScalingTask {
+
+    @Autowired
+    private KafkaUtil kafkaUtil;
+
+    @Autowired
+    private KafkaProperties kafkaProperties;
+
+    @Scheduled(initialDelayString = "${kafka.scaling.check-interval-ms:60000}", fixedDelayString = "${kafka.scaling.check-interval-ms:60000}")
+    public void scaleByLag() {
+        KafkaProperties.Scaling scaling = kafkaProperties.getScaling();
+        if (!scaling.isEnabled() || kafkaUtil.consumerCount() == 0) {
+            return;
+        }
+
+        try {
+            Map<Integer, Long> partitionLag = kafkaUtil.getPartitionLag();
+            long totalLag = partitionLag.values().stream().mapToLong(Long::longValue).sum();
+            int current = kafkaUtil.consumerCount();
+            log.info("kafka消费积压检测 | 总积压:{} | consumer数量:{} | 扩容阈值:{} | 缩容阈值:{}", totalLag, current, scaling.getScaleUpLag(), scaling.getScaleDownLag());
+
+            if (totalLag >= scaling.getScaleUpLag() && current < scaling.getMaxConsumers()) {
+                kafkaUtil.scaleUp(scaling.getStep());
+            } else if (totalLag < scaling.getScaleDownLag() && current > scaling.getMinConsumers()) {
+                kafkaUtil.scaleDown(scaling.getStep());
+            }
+        } catch (Exception e) {
+            log.error("kafka消费积压检测异常", e);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.yuce.task;
+
+import com.yuce.util.KafkaUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * 应用关闭时优雅停止kafka消费：在容器销毁数据源、检测服务客户端等bean之前排空在途告警并提交偏移量
+ */
+@Component
+public class KafkaShutdownTask implements ApplicationListener<ContextClosedEvent> {
+
+    @Autowired
+    private KafkaUtil kafkaUtil;
+
+    @Override
+    public void onApplicationEvent(ContextClosedEvent event) {
+        kafkaUtil.shutdown();
+    }
+}
@@ -1,5 +1,6 @@
 package com.yuce.task;
 
+import com.yuce.config.KafkaProperties;
 import com.yuce.util.KafkaUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
@@ -27,9 +28,12 @@ public class MainLineTask implements ApplicationListener<ApplicationReadyEvent>
     @Autowired
     private MysqlFetchTask mysqlFetchTask;
 
+    @Autowired
+    private KafkaProperties kafkaProperties;
+
     @Override
     public void onApplicationEvent(ApplicationReadyEvent event) {
-        //mysqlFetchTask.totalProcess();
-        kafkaUtil.startConsumers(5, eventFetchTask);
+        //mysqlFetchTask.start(false);
+        kafkaUtil.startConsumers(kafkaProperties.getScaling().getInitialConsumers(), eventFetchTask);
     }
 }
\ No newline at end of file
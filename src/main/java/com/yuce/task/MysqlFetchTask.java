@@ -1,385 +1,383 @@
 package com.yuce.task;
 
-import com.baomidou.mybatisplus.core.metadata.IPage;
-import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
-import com.yuce.algorithm.*;
-import com.yuce.common.GxDealTagDataPush;
-import com.yuce.entity.CheckAlarmResult;
+import com.alibaba.fastjson.JSON;
+import com.yuce.algorithm.AlarmPipeline;
+import com.yuce.config.MysqlReplayProperties;
 import com.yuce.entity.OriginalAlarmRecord;
-import com.yuce.entity.OriginalAlarmRecordBak;
+import com.yuce.entity.TblIdRange;
+import com.yuce.handler.AlarmFilterPolicy;
 import com.yuce.mapper.OriginalAlarmBakMapper;
-import com.yuce.service.impl.*;
-import com.yuce.util.FlagTagUtil;
+import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
-import java.util.Arrays;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
 
 /**
- * 多消费者并行处理事件捕获任务
- * 支持按配置数量启动消费者，每个消费者独立处理消息并管理偏移量
+ * mysql历史告警回放任务
+ *  1、按筛选条件（道路、事件类型、告警时间，均下推至SQL）查询备份表tblId区间，按工作线程数等分
+ *  2、各工作线程以 tbl_id > 游标 ORDER BY tbl_id LIMIT 方式分页读取，不使用OFFSET，记录直接映射为原始告警记录
+ *  3、每页处理完成后将各区间游标写入进度文件，中断后按相同筛选条件启动时从游标处继续
  */
 @Slf4j
 @Component
 public class MysqlFetchTask{
 
-    // 分批读取大小（可调整，3万条数据建议1000-2000条/批，平衡性能和内存）
-    private static final int PAGE_SIZE = 1000;
+    private static final Pattern TABLE_PATTERN = Pattern.compile("kafka_original_alarm_record_bak_\\w+");
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final long STOP_TIMEOUT_SECONDS = 60;
 
     @Autowired
     private OriginalAlarmBakMapper originalAlarmBakMapper;
 
     @Autowired
-    private OriginalAlarmServiceImpl originalAlarmServiceImpl;
-
-    @Autowired
-    private RoadCheckRecordServiceImpl roadCheckRecordServiceImpl;
-
-    @Autowired
-    private CloudEyesDeviceServiceImpl cloudEyesDeviceServiceImpl;
-
-    @Autowired
-    private CheckAlarmResultServiceImpl checkAlarmResultServiceImpl;
-
-    @Autowired
-    private GeneralAlgorithm generalAlgorithm; //通用算法服务
-
-    @Autowired
-    private ExtractFrameAlgorithm extractFrameAlgorithm;//抽帧算法服务
-
-    @Autowired
-    private ExtractWindowAlgorithm extractWindowAlgorithm;//提框算法服务
-
-    @Autowired
-    private PswAlgorithm pswAlgorithm;//抛洒物算法服务
+    private AlarmPipeline alarmPipeline;//告警统一处理入口
 
     @Autowired
-    private PersonAlgorithm personAlgorithm;//行人算法服务
-
-    @Autowired
-    private VehicleAlgorithm vehicleAlgorithm;//停驶算法服务(目前停驶算法与行人算法基本保持一致，为了扩展性，两者独立)
-
-    @Autowired
-    private CheckResultAlgorithm checkResultAlgorithm;
-
-    @Autowired
-    private FeatureElementAlgorithm featureElementAlgorithm;//特征要素填充服务
-
-    @Autowired
-    private AlarmCollectionAlgorithm alarmCollectionAlgorithm;//告警集填充服务
-
-    @Autowired
-    private CollectionGroupAlgorithm collectionGroupAlgorithm;//告警组填充服务
-
-    @Autowired
-    private RoadAlgorithm roadAlgorithm;//路面检测算法服务
-
-    @Autowired
-    private GxDealTagDataPush gxDealTagDataPush;
-
-    private static final List<String> EVENT_TYPE_LIST = Arrays.asList("停驶", "行人", "抛洒物");//接受事件类型列表
-    private static final LocalDateTime startTime = LocalDateTime.of(2025, 11, 21, 0, 0, 0);
-    private static final LocalDateTime endTime = LocalDateTime.of(2025, 11, 22, 23, 59, 59);
+    private MysqlReplayProperties mysqlReplayProperties;
 
+    private volatile ReplayJob currentJob;
 
     /**
-     * 业务核心处理方法：
-     *  1、解析kafka topic原始数据，获取告警记录字段信息
-     *  2、筛选目标道路
-     *  3、筛选目标时间范围数据
-     *  3、剔除图片、视频字段异常数据
-     *  4、存储符合条件的原始告警数据
-     *  5、根据视频进行抽帧逻辑处理(路面识别、算法识别均需要用到抽帧逻辑)
-     *  6、根据图片进行提框逻辑处理(后续业务会用到提框逻辑)
-     *  7、调用路面算法检测服务，剔除路面外物体
-     *  8、调用算法服务进行业务逻辑处理
-     *  9、调用特征要素服务补充字段信息
-     *  10、调用告警集服务补充告警集信息
-     *  11、调用告警组服务补充告警组信息
+     * mysql来源筛选策略：道路、事件类型、时间已在SQL中筛选，记录全部入库；仅图片、视频路径齐全的非高德记录进行算法处理，不推送原始告警记录
      */
+    private static final AlarmFilterPolicy MYSQL_POLICY = new AlarmFilterPolicy() {
+        @Override
+        public String name() {
+            return "mysql";
+        }
 
-    public void totalProcess(){
-
-        log.info("开始读取数据表：kafka_original_alarm_record_bak_20260111");
+        @Override
+        public String rejectBeforeAnalyze(OriginalAlarmRecord record) {
+            if (!StringUtils.hasText(record.getImagePath()) || !StringUtils.hasText(record.getVideoPath())) {
+                return "图品/视频路径为空";
+            }
+            if ("高德".equals(record.getCompany())) {
+                return "告警记录为高德数据，忽略处理";
+            }
+            return null;
+        }
+    };
 
-        int currentPage = 1; // 当前页码（从1开始）
-        IPage<OriginalAlarmRecordBak> page = null; // 显式初始化，避免未赋值警告
-        int totalPages = 0; // 总页数（单独存储，避免无数据时NPE）
+    /**
+     * @desc 启动回放：存在筛选条件一致的进度文件时从游标处继续，否则重新划分tblId区间
+     * @param restart 是否忽略已有进度重新开始
+     * @return 回放状态
+     */
+    public synchronized Map<String, Object> start(boolean restart) {
+        ReplayJob running = currentJob;
+        if (running != null && running.isRunning()) {
+            throw new IllegalStateException("已有回放任务正在执行：" + running.checkpoint.getTable());
+        }
 
-        do {
-            // 构建分页条件：第currentPage页，每页PAGE_SIZE条
-            Page<OriginalAlarmRecordBak> pagination = new Page<>(currentPage, PAGE_SIZE);
-            // 分页查询（MyBatis-Plus自动生成count和limit语句）
-            page = originalAlarmBakMapper.selectPage(pagination, null);
+        String table = mysqlReplayProperties.getTable();
+        if (table == null || !TABLE_PATTERN.matcher(table).matches()) {
+            throw new IllegalArgumentException("备份表名不合法：" + table);
+        }
+        if (mysqlReplayProperties.getWorkers() <= 0 || mysqlReplayProperties.getPageSize() <= 0) {
+            throw new IllegalArgumentException("工作线程数与分页大小必须大于0");
+        }
+        LocalDateTime startTime = parseTime(mysqlReplayProperties.getStartTime());
+        LocalDateTime endTime = parseTime(mysqlReplayProperties.getEndTime());
+        String fingerprint = fingerprint(table, startTime, endTime);
+
+        Path checkpointFile = Paths.get(mysqlReplayProperties.getCheckpointDir(), table + ".checkpoint");
+        Checkpoint checkpoint = restart ? null : loadCheckpoint(checkpointFile, fingerprint);
+        if (checkpoint == null) {
+            checkpoint = newCheckpoint(table, fingerprint, startTime, endTime);
+        }
 
-            // 第一次查询时获取总页数（避免重复获取）
-            if (currentPage == 1) {
-                totalPages = (int) page.getPages();
-                log.info("数据表总条数：{}，总页数：{}，每页条数：{}",
-                        page.getTotal(), totalPages, PAGE_SIZE);
-            }
+        ReplayJob job = new ReplayJob(checkpoint, checkpointFile, startTime, endTime);
+        currentJob = job;
+        job.launch();
+        return job.status();
+    }
 
-            // 获取当前页数据（MyBatis-Plus的Page.getRecords()永远不为null，无需判空null）
-            if (!page.getRecords().isEmpty()) {
-                log.info("正在处理第{}页数据，当前页条数：{}，累计处理条数：{}",
-                        currentPage, page.getRecords().size(),
-                        Math.min(currentPage * PAGE_SIZE, page.getTotal())); // 修复累计条数计算（避免最后一页超总条数）
-
-                // 遍历当前页数据，执行后续处理（核心业务逻辑）
-                for (OriginalAlarmRecordBak record : page.getRecords()) {
-                    OriginalAlarmRecord original = new OriginalAlarmRecord();
-                    BeanUtils.copyProperties(record, original);
-                    log.info(original.toString());
-                    handleMessage(original);
-                }
-            } else {
-                log.info("第{}页无数据，跳过", currentPage);
+    /**
+     * @desc 停止回放：各工作线程处理完当前记录后记录进度并退出
+     * @return 是否存在正在执行的回放任务
+     */
+    public boolean stop() {
+        ReplayJob job = currentJob;
+        if (job == null || !job.isRunning()) {
+            return false;
+        }
+        job.stopRequested = true;
+        job.executor.shutdown();
+        try {
+            if (!job.executor.awaitTermination(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("mysql回放任务停止超时 | 表:{}", job.checkpoint.getTable());
             }
-
-            currentPage++; // 页码自增，查询下一页
-        } while (currentPage <= page.getPages()); // 直到页码超过总页数
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return true;
     }
-    public void handleMessage(OriginalAlarmRecord alarmRecord ) {
 
-        //获取基础告警记录字段信息
-        long tblId = alarmRecord.getTblId();
-        String eventType = alarmRecord.getEventType();
-        String alarmId = alarmRecord.getId();
-        String roadId = alarmRecord.getRoadId();
-        String imagePath = alarmRecord.getImagePath();
-        String videoPath = alarmRecord.getVideoPath();
-        String companyName = alarmRecord.getCompany();
+    /**
+     * @desc 回放状态：各区间游标、已处理数量、失败数量及处理速率
+     * @return
+     */
+    public Map<String, Object> status() {
+        ReplayJob job = currentJob;
+        if (job == null) {
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("running", false);
+            return status;
+        }
+        return job.status();
+    }
 
-        /**
-         * @desc 数据时间范围校验
-         * @remark
-         */
-//        if (alarmRecord.getAlarmTime().isBefore(startTime) || alarmRecord.getAlarmTime().isAfter(endTime)) {//判断告警时间是否在起始时间之后
-//            return;
-//        }
+    @PreDestroy
+    public void destroy() {
+        stop();
+    }
 
-        /**
-         * @desc 原始告警记录存储&&更新
-         * @remark 记录已存在返回true，已存在记录仅更新，不做后续处理
-         */
-        if(originalAlarmServiceImpl.saveOrUpdateRecord(alarmRecord)){
-            return;
-        };
+    public void handleMessage(OriginalAlarmRecord alarmRecord) {
+        alarmPipeline.process(alarmRecord, MYSQL_POLICY);
+    }
 
-        /**
-         * @desc 视频路径、图片路径为空告警记录直接剔除
-         */
-        if(!StringUtils.hasText(imagePath) || !StringUtils.hasText(videoPath) || !roadId.equals("33112")){
-            log.info("图品/视频路径为空，调用通用算法检测 | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
-            return;
+    /**
+     * @desc 查询符合筛选条件的tblId区间并按工作线程数等分
+     */
+    private Checkpoint newCheckpoint(String table, String fingerprint, LocalDateTime startTime, LocalDateTime endTime) {
+        TblIdRange range = originalAlarmBakMapper.getTblIdRange(table, mysqlReplayProperties.getRoadIds(),
+                mysqlReplayProperties.getEventTypes(), startTime, endTime);
+        Checkpoint checkpoint = new Checkpoint();
+        checkpoint.setTable(table);
+        checkpoint.setFingerprint(fingerprint);
+        List<Segment> segments = new ArrayList<>();
+        if (range != null && range.getMinTblId() != null) {
+            long min = range.getMinTblId();
+            long max = range.getMaxTblId();
+            int workers = mysqlReplayProperties.getWorkers();
+            long size = Math.max(1, (max - min + workers) / workers);
+            for (long from = min - 1; from < max; from += size) {
+                Segment segment = new Segment();
+                segment.setFromTblId(from);
+                segment.setToTblId(Math.min(max, from + size));
+                segment.setCursor(from);
+                segments.add(segment);
+            }
+            log.info("mysql回放区间划分完成 | 表:{} | tblId区间:[{}, {}] | 区间数:{}", table, min, max, segments.size());
+        } else {
+            log.info("mysql回放无符合条件的数据 | 表:{}", table);
         }
+        checkpoint.setSegments(segments);
+        return checkpoint;
+    }
 
-        if(alarmRecord.getCompany().equals("高德")){
-            log.info("告警记录为高德数据，忽略处理 | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
-            return;
+    private Checkpoint loadCheckpoint(Path file, String fingerprint) {
+        if (!Files.isRegularFile(file)) {
+            return null;
         }
-
-        /**
-         * @desc 非停驶、行人、抛洒物告警默认正检
-         */
-        if(!EVENT_TYPE_LIST.contains(eventType)){
-            generalAlgorithm.checkDeal(alarmRecord,"", FlagTagUtil.CHECK_RESULT_RIGHT);
-            return;
+        try {
+            Checkpoint checkpoint = JSON.parseObject(new String(Files.readAllBytes(file), StandardCharsets.UTF_8), Checkpoint.class);
+            if (checkpoint == null || !fingerprint.equals(checkpoint.getFingerprint())) {
+                log.info("mysql回放筛选条件已变更，忽略已有进度 | 进度文件:{}", file);
+                return null;
+            }
+            log.info("mysql回放从已有进度继续 | 进度文件:{} | 更新时间:{}", file, checkpoint.getUpdateTime());
+            return checkpoint;
+        } catch (Exception e) {
+            log.warn("mysql回放进度文件读取失败，重新开始 | 进度文件:{}", file, e);
+            return null;
         }
+    }
 
-        /**
-         * @desc 视频连通性&&元数据校验
-         * @remark 校验成功进行后续算法处理；校验失败调用通用算法处理
-         */
-        if (!extractFrameAlgorithm.checkVideoConnectivityWithRetry(alarmRecord)) {
-            generalAlgorithm.checkDeal(alarmRecord,"视频资源访问异常，初检为无法判断", FlagTagUtil.CHECK_RESULT_UNKNOWN);
-            return;
-        }
+    private String fingerprint(String table, LocalDateTime startTime, LocalDateTime endTime) {
+        return table + "|" + mysqlReplayProperties.getRoadIds() + "|" + mysqlReplayProperties.getEventTypes()
+                + "|" + startTime + "|" + endTime;
+    }
 
-        /**
-         * @desc 视频抽帧服务
-         * @remark 校验成功进行后续算法处理；校验失败调用通用算法处理
-         */
-        if(!extractFrameAlgorithm.extractFrame(alarmRecord)){
-            generalAlgorithm.checkDeal(alarmRecord,"视频抽帧异常，初检为无法判断", FlagTagUtil.CHECK_RESULT_UNKNOWN);
-            return;
-        }
+    private static LocalDateTime parseTime(String value) {
+        return StringUtils.hasText(value) ? LocalDateTime.parse(value.trim(), TIME_FORMATTER) : null;
+    }
 
-        /**
-         * @desc 图片提框异常
-         * @remark 校验成功进行后续算法处理；校验失败调用通用算法处理
-         */
-        if(!extractWindowAlgorithm.extractWindow(alarmRecord)){
-            generalAlgorithm.checkDeal(alarmRecord,"图片提框异常，初检为无法判断", FlagTagUtil.CHECK_RESULT_UNKNOWN);
-            return;
+    /**
+     * 回放进度（进度文件内容）
+     */
+    @Data
+    public static class Checkpoint {
+        private String table;
+        private String fingerprint; //筛选条件，变更后进度失效
+        private List<Segment> segments;
+        private String updateTime;
+    }
+
+    /**
+     * tblId区间 (fromTblId, toTblId]，由单个工作线程处理
+     */
+    @Data
+    public static class Segment {
+        private long fromTblId;
+        private long toTblId;
+        private volatile long cursor; //已处理的最大tblId
+        private volatile long processed;
+        private volatile long failed;
+
+        boolean finished() {
+            return cursor >= toTblId;
         }
+    }
 
-        /**
-         * @desc 之江智能夜间检测逻辑：
-         * 夜间时段（17:00~次日06:00）的之江智能记录，默认标记为"正检"（
-         */
-        int alarmHour = alarmRecord.getAlarmTime().getHour();
-        boolean isZhijiang = "之江智能".equals(companyName);
-        boolean isNightTime = alarmHour >= 17 || alarmHour < 6;
-        if (isZhijiang && isNightTime) {
-            generalAlgorithm.checkDeal(alarmRecord, "之江智能夜间检测，初检为正检", FlagTagUtil.CHECK_RESULT_RIGHT);
-            return;
+    private class ReplayJob {
+        private final Checkpoint checkpoint;
+        private final Path checkpointFile;
+        private final LocalDateTime startTime;
+        private final LocalDateTime endTime;
+        private final ExecutorService executor;
+        private final long launchTime = System.currentTimeMillis();
+        private final long initialProcessed;
+        private final AtomicLong processed = new AtomicLong();
+        private final AtomicInteger activeWorkers = new AtomicInteger();
+        private volatile boolean stopRequested;
+        private volatile long finishTime;
+
+        ReplayJob(Checkpoint checkpoint, Path checkpointFile, LocalDateTime startTime, LocalDateTime endTime) {
+            this.checkpoint = checkpoint;
+            this.checkpointFile = checkpointFile;
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.initialProcessed = checkpoint.getSegments().stream().mapToLong(Segment::getProcessed).sum();
+            AtomicInteger index = new AtomicInteger();
+            this.executor = Executors.newFixedThreadPool(Math.max(1, checkpoint.getSegments().size()),
+                    r -> new Thread(r, "MysqlReplayThread-" + index.getAndIncrement()));
         }
 
-        /**
-         * 场景1：误检
-         *      物体在路面外（路面内无记录，路面外有记录）→ 标记误检，调用通用算法处理
-         * 场景2：正检
-         *      检测类型非停驶、行人、抛洒物，通用算法处理
-         *      检测类型为停驶、行人、抛洒物，调用后续算法处理
-         */
-        try{
-            // 执行路面检测核心逻辑
-            roadAlgorithm.roadCheckDeal(alarmRecord);
-            // 查询路面检测结果（内/外记录数）
-            int onRoadCount = roadCheckRecordServiceImpl.getRecordByTblIdAndTypeAndFlag(tblId,"road", 1).size();
-            int outRoadCount = roadCheckRecordServiceImpl.getRecordByTblIdAndTypeAndFlag(tblId,"road", 2).size();
-            log.info("路面检测结果统计：tblId:{} | alarmId:{} | imagePath:{} | videoPath:{} | 路面内:{}条 | 路面外:{}条 ", tblId, alarmId, imagePath, videoPath, onRoadCount, outRoadCount);
-
-            if (onRoadCount == 0 && outRoadCount > 0) {
-                generalAlgorithm.checkDeal(alarmRecord, "非路面物体,初检为误检", FlagTagUtil.CHECK_RESULT_ERROR);
-                log.info("路面检测：物体在路面外，标记为误检：tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
-                return;
+        void launch() {
+            for (Segment segment : checkpoint.getSegments()) {
+                if (!segment.finished()) {
+                    activeWorkers.incrementAndGet();
+                    executor.execute(() -> runSegment(segment));
+                }
             }
-
-            if (!EVENT_TYPE_LIST.contains(eventType)) {
-                log.info("路面检测：物体在路面内，但检测类型非停驶、行人、抛洒物，默认正检 | alarmId:{} | eventType:{} | imagePath:{} | videoPath:{} | roadId:{}", alarmId, eventType, imagePath, videoPath, roadId);
-                generalAlgorithm.checkDeal(alarmRecord, "", FlagTagUtil.CHECK_RESULT_RIGHT);
-                return;
-            }else{
-                log.info("路面检测：物体在路面内且事件类型需后续处理 | alarmId:{} | eventType:{} | imagePath:{} | videoPath:{}", alarmId, eventType, imagePath, videoPath);
+            executor.shutdown();
+            if (activeWorkers.get() == 0) {
+                finishTime = System.currentTimeMillis();
+                log.info("mysql回放无待处理区间 | 表:{}", checkpoint.getTable());
             }
-        } catch (Exception e) {
-            log.error("路面检测发生异常，默认继续后续处理：tblId:{} | alarmId:{} | imagePath:{} | videoPath:{} | 异常详情:{}", tblId, alarmId, imagePath, videoPath, e);
         }
 
-        /**
-         * 抛洒物算法检验：调用抛洒物专属算法，失败时兜底通用算法
-         */
-        if ("抛洒物".equals(eventType)) {
-            try {
-                boolean isPswSuccess = pswAlgorithm.pswDeal(alarmRecord);
-                if (!isPswSuccess) {
-                    // 3. 处理失败：日志明确原因，调用通用算法兜底
-                    generalAlgorithm.checkDeal(alarmRecord, "抛洒物算法处理失败,初检为无法判断", FlagTagUtil.CHECK_RESULT_UNKNOWN);
-                    log.info("抛洒物算法处理失败,兜底调用通用算法：tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
-                }
-            } catch (Exception e) {
-                generalAlgorithm.checkDeal(alarmRecord, "抛洒物算法执行异常，初检为无法判断", FlagTagUtil.CHECK_RESULT_UNKNOWN);
-                log.error("抛洒物算法处理异常,兜底调用通用算法：tblId:{} | alarmId:{} | imagePath:{} | videoPath:{} | 异常详情:{}",tblId, alarmId, imagePath, videoPath, e);
-            }
-            return;
+        boolean isRunning() {
+            return activeWorkers.get() > 0;
         }
 
         /**
-         * 行人算法检验：调用行人专属算法，成功后执行系列后续处理，失败时兜底通用算法
+         * @desc 单区间keyset分页处理，每页结束后记录进度
          */
-        if ("行人".equals(eventType)) {
+        private void runSegment(Segment segment) {
+            String table = checkpoint.getTable();
+            log.info("mysql回放区间开始处理 | 表:{} | 区间:({}, {}] | 游标:{}", table, segment.getFromTblId(), segment.getToTblId(), segment.getCursor());
             try {
-                boolean isPersonDealSuccess = personAlgorithm.personDeal(alarmRecord);
-                if (!isPersonDealSuccess) {
-                    // 算法处理失败：日志说明原因，调用通用算法兜底
-                    log.info("行人算法处理失败,兜底调用通用算法:tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
-                    generalAlgorithm.checkDeal(alarmRecord, "行人算法处理失败,初检为无法判断", FlagTagUtil.CHECK_RESULT_UNKNOWN);
-                } else {
-                    checkResultAlgorithm.checkResultDealByAlgo(alarmRecord); // 1. 获取算法检测结果
-                    log.debug("行人后续流程：图片数量校验完成： tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
-
-                    featureElementAlgorithm.featureElementDealByAlgo(alarmRecord); // 3. 特征要素判定
-                    log.debug("行人后续流程：特征要素判定完成: tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
-
-                    alarmCollectionAlgorithm.collectionDeal(alarmRecord); // 4. 告警集判定
-                    log.debug("行人后续流程：告警集判定完成:tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
-
-                    collectionGroupAlgorithm.groupDeal(alarmRecord);// 5. 告警组判定
-                    log.info("行人后续流程：全部完成: tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
+                while (!stopRequested && !segment.finished()) {
+                    List<OriginalAlarmRecord> page = originalAlarmBakMapper.getPageAfter(table, segment.getCursor(), segment.getToTblId(),
+                            mysqlReplayProperties.getRoadIds(), mysqlReplayProperties.getEventTypes(), startTime, endTime,
+                            mysqlReplayProperties.getPageSize());
+                    if (page.isEmpty()) {
+                        segment.setCursor(segment.getToTblId());
+                        break;
+                    }
+                    for (OriginalAlarmRecord alarmRecord : page) {
+                        if (stopRequested) {
+                            break;
+                        }
+                        long tblId = alarmRecord.getTblId();
+                        alarmRecord.setTblId(null); //备份表主键不沿用至原始告警表
+                        try {
+                            handleMessage(alarmRecord);
+                        } catch (Exception e) {
+                            segment.setFailed(segment.getFailed() + 1);
+                            log.error("mysql回放告警处理失败 | 备份表tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}",
+                                    tblId, alarmRecord.getId(), alarmRecord.getImagePath(), alarmRecord.getVideoPath(), e);
+                        }
+                        segment.setProcessed(segment.getProcessed() + 1);
+                        segment.setCursor(tblId);
+                        processed.incrementAndGet();
+                    }
+                    if (page.size() < mysqlReplayProperties.getPageSize() && !stopRequested) {
+                        segment.setCursor(segment.getToTblId());
+                    }
+                    saveCheckpoint();
                 }
             } catch (Exception e) {
-                log.error("行人算法处理异常 | 兜底调用通用算法 | alarmId:{} | imagePath:{} | videoPath:{} | 异常详情:", alarmId, imagePath, videoPath, e);
-                generalAlgorithm.checkDeal(alarmRecord, "行人算法执行异常,初检为无法判断", FlagTagUtil.CHECK_RESULT_UNKNOWN);
+                log.error("mysql回放区间处理异常 | 表:{} | 区间:({}, {}] | 游标:{}", table, segment.getFromTblId(), segment.getToTblId(), segment.getCursor(), e);
+            } finally {
+                saveCheckpoint();
+                if (activeWorkers.decrementAndGet() == 0) {
+                    finishTime = System.currentTimeMillis();
+                    log.info("mysql回放任务结束 | 表:{} | 本次处理:{} | 是否中途停止:{}", table, processed.get(), stopRequested);
+                }
+                log.info("mysql回放区间结束 | 表:{} | 区间:({}, {}] | 游标:{} | 已处理:{} | 失败:{}", table,
+                        segment.getFromTblId(), segment.getToTblId(), segment.getCursor(), segment.getProcessed(), segment.getFailed());
             }
-            return;
         }
 
         /**
-         * 停驶算法检验：调用停驶专属算法，成功后执行系列后续处理，失败时兜底通用算法
+         * @desc 写入进度文件：先写临时文件再原子替换，避免中断时留下残缺进度
          */
-        if ("停驶".equals(eventType)) {
+        private synchronized void saveCheckpoint() {
             try {
-                // 执行停驶核心算法，用变量名清晰表达执行结果
-                boolean isVehicleDealSuccess = vehicleAlgorithm.vehicleDeal(alarmRecord);
-
-                if (!isVehicleDealSuccess) {
-                    log.info("停驶算法处理失败 | 兜底调用通用算法, tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
-                    generalAlgorithm.checkDeal(alarmRecord, "停驶算法处理失败,初检为无法判断", FlagTagUtil.CHECK_RESULT_UNKNOWN);
-                } else {
-                    log.info("停驶算法处理成功 | 开始执行后续业务流程 | tblId:{} | alarmId:{}", alarmId);
-
-                    checkResultAlgorithm.checkResultDealByAlgo(alarmRecord);// 1. 获取算法检测结果
-                    log.debug("停驶后续流程：IOU校验完成（阈值0.2): tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
-
-                    featureElementAlgorithm.featureElementDealByAlgo(alarmRecord); // 3. 特征要素判定
-                    log.debug("停驶后续流程：特征要素判定完成: tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
-
-                    alarmCollectionAlgorithm.collectionDeal(alarmRecord);// 4. 告警集判定
-                    log.debug("停驶后续流程：告警集判定完成: tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
-
-                    collectionGroupAlgorithm.groupDeal(alarmRecord); // 5. 告警组判定
-                    log.info("停驶后续流程：全部处理完成: tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
-                }
-            } catch (Exception e) {
-                log.error("停驶算法处理异常 | 兜底调用通用算法 | alarmId:{} | imagePath:{} | videoPath:{} | 异常详情:", alarmId, imagePath, videoPath, e);
-                generalAlgorithm.checkDeal(alarmRecord, "停驶算法执行异常,初检为无法判断", FlagTagUtil.CHECK_RESULT_UNKNOWN);
+                checkpoint.setUpdateTime(LocalDateTime.now().format(TIME_FORMATTER));
+                Files.createDirectories(checkpointFile.getParent());
+                Path tmp = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+                Files.write(tmp, JSON.toJSONString(checkpoint).getBytes(StandardCharsets.UTF_8));
+                Files.move(tmp, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                log.warn("mysql回放进度写入失败 | 进度文件:{}", checkpointFile, e);
             }
-            return;
         }
 
-        /**
-         * 误检点位推送逻辑：
-         * 1. 查询当前告警的检测结果
-         * 2. 若为误检（checkFlag=2），获取最近50条误检记录的设备ID并推送刷新
-         */
-        // 1. 查询当前告警的检测结果（明确变量含义，避免歧义）
-        CheckAlarmResult currentCheckResult = checkAlarmResultServiceImpl.getResultByTblId(tblId);
-        log.info("开始误检点位推送处理 | 查询当前告警检测结果 | alarmId:{} | imagePath:{} | videoPath:{} | 检测结果是否存在:{}", alarmId, imagePath, videoPath, currentCheckResult != null);
-
-        // 2. 处理检测结果不存在的场景
-        if (currentCheckResult == null) {
-            log.error("误检点位推送失败 | 未查询到当前告警的正误检标签 | roadId:{} | alarmId:{} | eventType:{} | imagePath:{} | videoPath:{}", roadId, alarmId, eventType, imagePath, videoPath);
-            return; // 无检测结果，终止后续逻辑
-        }
-
-        // 3. 仅处理误检场景（checkFlag=2）
-        if (currentCheckResult.getCheckFlag() != 2) {
-            log.debug("当前告警非误检，无需推送点位 | checkFlag:{} | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", currentCheckResult.getCheckFlag(), tblId, alarmId, imagePath, videoPath);
-            return;
-        }
-
-        try {
-            // 4. 获取最近50条误检记录的设备ID列表
-            List<String> recentFalseDeviceIds = checkAlarmResultServiceImpl.getRecentFalseCheckList(currentCheckResult.getId());
-            log.info("查询到最近50条误检记录的设备ID | 数量:{} | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{} | 设备ID列表:{}", recentFalseDeviceIds.size(), tblId, alarmId, imagePath, videoPath, recentFalseDeviceIds);
-
-            // 5. 处理空列表场景（避免无效调用）
-            if (recentFalseDeviceIds.isEmpty()) {
-                log.warn("误检点位推送：最近50条误检记录的设备ID列表为空 | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", tblId, alarmId, imagePath, videoPath);
-                return;
+        Map<String, Object> status() {
+            long now = finishTime > 0 ? finishTime : System.currentTimeMillis();
+            double elapsedSeconds = Math.max(1, now - launchTime) / 1000.0;
+            List<Map<String, Object>> segments = new ArrayList<>();
+            long done = 0;
+            long failed = 0;
+            for (Segment segment : checkpoint.getSegments()) {
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("fromTblId", segment.getFromTblId());
+                item.put("toTblId", segment.getToTblId());
+                item.put("cursor", segment.getCursor());
+                item.put("processed", segment.getProcessed());
+                item.put("failed", segment.getFailed());
+                item.put("finished", segment.finished());
+                segments.add(item);
+                done += segment.getProcessed();
+                failed += segment.getFailed();
             }
-
-            // 6. 推送设备ID列表刷新
-            cloudEyesDeviceServiceImpl.refreshDevices(recentFalseDeviceIds);
-            log.info("误检点位推送成功 | 设备ID数量:{} tblId:{} | alarmId:{} | imagePath:{} | videoPath:{}", recentFalseDeviceIds.size(), tblId, alarmId, imagePath, videoPath);
-        } catch (Exception e) {
-            log.error("误检点位推送异常 | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{} | 异常详情:", tblId, alarmId, imagePath, videoPath, e);
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("running", isRunning());
+            status.put("stopRequested", stopRequested);
+            status.put("table", checkpoint.getTable());
+            status.put("filter", checkpoint.getFingerprint());
+            status.put("resumedFrom", initialProcessed);
+            status.put("processed", done);
+            status.put("failed", failed);
+            status.put("ratePerSecond", Math.round(processed.get() / elapsedSeconds * 100) / 100.0);
+            status.put("checkpointTime", checkpoint.getUpdateTime());
+            status.put("segments", segments);
+            return status;
         }
     }
-}
\ No newline at end of file
+}
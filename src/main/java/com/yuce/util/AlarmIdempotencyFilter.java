@@ -0,0 +1,168 @@
+package com.yuce.util;
+
+import com.yuce.config.IdempotencyProperties;
+import com.yuce.entity.OriginalAlarmRecord;
+import com.yuce.mapper.OriginalAlarmMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 原始告警内存幂等过滤：以 告警ID+图片路径+视频路径 的64位哈希为键
+ *  1、布隆过滤器判定一定未出现过的告警，直接插入，无需查询数据库
+ *  2、LRU缓存已确认存在的联合主键及其tblId，命中后直接按tblId更新
+ *  3、仅布隆过滤器疑似命中且LRU未命中时才查询数据库
+ * 布隆过滤器按代轮换（保留当前及上一代），启动时加载最近记录预热；预热完成前所有告警均查询数据库
+ */
+@Slf4j
+@Component
+public class AlarmIdempotencyFilter {
+
+    /**
+     * 判重结果
+     */
+    public enum Probe {
+        ABSENT, //一定不存在
+        CONFIRMED, //已确认存在，tblId可从缓存获取
+        PROBABLE //疑似存在（或过滤器不可用），需查询数据库确认
+    }
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    @Autowired
+    private IdempotencyProperties idempotencyProperties;
+
+    @Autowired
+    private OriginalAlarmMapper originalAlarmMapper;
+
+    private volatile boolean ready = false; //预热完成标识
+    private volatile BloomFilter current; //当前代布隆过滤器
+    private volatile BloomFilter previous; //上一代布隆过滤器
+    private long currentInsertions; //当前代已写入数量
+    private Map<Long, Long> confirmed; //已确认联合主键哈希 -> tblId
+
+    @PostConstruct
+    public void init() {
+        if (!idempotencyProperties.isEnabled()) {
+            return;
+        }
+        int lruCapacity = idempotencyProperties.getLruCapacity();
+        confirmed = new LinkedHashMap<Long, Long>(Math.min(lruCapacity, 1 << 16), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+                return size() > lruCapacity;
+            }
+        };
+        current = newGeneration();
+
+        try {
+            long start = System.currentTimeMillis();
+            List<OriginalAlarmRecord> recentKeys = originalAlarmMapper.getRecentKeyList(idempotencyProperties.getSeedLimit());
+            // 倒序加载，先写入较旧的记录，使最近的记录留在LRU中
+            for (int i = recentKeys.size() - 1; i >= 0; i--) {
+                OriginalAlarmRecord record = recentKeys.get(i);
+                confirm(hash(record.getId(), record.getImagePath(), record.getVideoPath()), record.getTblId());
+            }
+            ready = true;
+            log.info("告警幂等过滤器预热完成 | 加载记录数:{} | 耗时:{}ms", recentKeys.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("告警幂等过滤器预热失败，所有告警将查询数据库判重", e);
+        }
+    }
+
+    /**
+     * @desc 计算联合主键64位哈希（FNV-1a，字段间以分隔符区分null与空串）
+     * @param alarmId
+     * @param imagePath
+     * @param videoPath
+     * @return
+     */
+    public long hash(String alarmId, String imagePath, String videoPath) {
+        long h = FNV_OFFSET_BASIS;
+        h = mix(h, alarmId);
+        h = mix(h, imagePath);
+        h = mix(h, videoPath);
+        // 末尾再做一次扩散，保证高低32位均匀，供布隆过滤器双重哈希使用
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * @desc 判重
+     * @param hash 联合主键哈希
+     * @return
+     */
+    public Probe probe(long hash) {
+        if (!ready) {
+            return Probe.PROBABLE;
+        }
+        if (cachedTblId(hash) != null) {
+            return Probe.CONFIRMED;
+        }
+        BloomFilter previousGeneration = previous;
+        if (current.mightContain(hash) || (previousGeneration != null && previousGeneration.mightContain(hash))) {
+            return Probe.PROBABLE;
+        }
+        return Probe.ABSENT;
+    }
+
+    /**
+     * @desc 获取缓存的tblId
+     * @param hash 联合主键哈希
+     * @return 未缓存时返回null
+     */
+    public synchronized Long cachedTblId(long hash) {
+        return confirmed == null ? null : confirmed.get(hash);
+    }
+
+    /**
+     * @desc 记录已确认存在的联合主键（新增或数据库确认后调用）
+     * @param hash 联合主键哈希
+     * @param tblId
+     */
+    public synchronized void confirm(long hash, Long tblId) {
+        if (confirmed == null) {
+            return;
+        }
+        if (tblId != null) {
+            confirmed.put(hash, tblId);
+        }
+        if (!current.mightContain(hash)) {
+            current.put(hash);
+            if (++currentInsertions >= idempotencyProperties.getExpectedInsertions()) {
+                previous = current;
+                current = newGeneration();
+                currentInsertions = 0;
+                log.info("告警幂等过滤器写满，轮换布隆过滤器 | 单代容量:{}", idempotencyProperties.getExpectedInsertions());
+            }
+        }
+    }
+
+    private BloomFilter newGeneration() {
+        return new BloomFilter(idempotencyProperties.getExpectedInsertions(), idempotencyProperties.getFalsePositiveRate());
+    }
+
+    private static long mix(long h, String value) {
+        if (value != null) {
+            for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+                h ^= (b & 0xff);
+                h *= FNV_PRIME;
+            }
+        } else {
+            h ^= 0xfe; // null与空串区分
+            h *= FNV_PRIME;
+        }
+        h ^= 0xff; // 字段分隔
+        h *= FNV_PRIME;
+        return h;
+    }
+}
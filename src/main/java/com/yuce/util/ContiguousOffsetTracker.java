@@ -0,0 +1,70 @@
+package com.yuce.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 单分区连续偏移量跟踪器
+ * 记录已分发的消息偏移量及其完成状态，只返回"最大连续完成偏移量+1"作为可提交位置，
+ * 保证乱序完成时不会跳过未处理完的消息（at-least-once）
+ * 约定：track/pollCommittable 仅由拉取线程调用，complete 可由任意工作线程调用
+ */
+public class ContiguousOffsetTracker {
+
+    /** 已分发未提交的偏移量 -> 是否处理完成 */
+    private final ConcurrentSkipListMap<Long, Boolean> pending = new ConcurrentSkipListMap<>();
+
+    /** 在途（已分发未完成）消息数量 */
+    private final AtomicInteger inFlight = new AtomicInteger(0);
+
+    /**
+     * @desc 登记已分发的偏移量
+     * @param offset
+     */
+    public void track(long offset) {
+        if (pending.putIfAbsent(offset, Boolean.FALSE) == null) {
+            inFlight.incrementAndGet();
+        }
+    }
+
+    /**
+     * @desc 标记偏移量处理完成
+     * @param offset
+     */
+    public void complete(long offset) {
+        if (pending.replace(offset, Boolean.FALSE, Boolean.TRUE)) {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * @desc 取出可提交位置：从最小偏移量开始弹出连续已完成的记录
+     * @return 下一条待消费偏移量（即提交值），无新进展时返回-1
+     */
+    public long pollCommittable() {
+        long next = -1;
+        Map.Entry<Long, Boolean> first;
+        while ((first = pending.firstEntry()) != null && first.getValue()) {
+            pending.pollFirstEntry();
+            next = first.getKey() + 1;
+        }
+        return next;
+    }
+
+    /**
+     * @desc 在途消息数量
+     * @return
+     */
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @desc 已分发未提交的消息数量（含已完成但被前序阻塞的记录）
+     * @return
+     */
+    public int uncommitted() {
+        return pending.size();
+    }
+}
@@ -0,0 +1,265 @@
+package com.yuce.util;
+
+import com.alibaba.fastjson.JSON;
+import com.yuce.config.DeadLetterProperties;
+import com.yuce.entity.DeadLetterEntry;
+import com.yuce.entity.OriginalAlarmRecord;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * 本地死信暂存：处理失败的告警以JSON行追加写入死信文件，状态变更同样以追加方式记录，
+ * 启动时按死信标识回放文件得到最新状态；已结束记录占比过高时重写文件仅保留待重放记录
+ */
+@Slf4j
+@Component
+public class DeadLetterSpool {
+
+    private static final String SPOOL_FILE_NAME = "dead-letter.log";
+    private static final int MAX_CAUSE_LENGTH = 500;
+    private static final int COMPACT_MIN_LINES = 1000;
+
+    @Autowired
+    private DeadLetterProperties deadLetterProperties;
+
+    private final Map<String, DeadLetterEntry> pending = new LinkedHashMap<>(); //待重放记录
+    private Path spoolFile;
+    private FileChannel channel;
+    private int lineCount; //当前文件行数
+
+    @PostConstruct
+    public synchronized void init() throws IOException {
+        if (!deadLetterProperties.isEnabled()) {
+            return;
+        }
+        Path dir = Paths.get(deadLetterProperties.getSpoolDir());
+        Files.createDirectories(dir);
+        spoolFile = dir.resolve(SPOOL_FILE_NAME);
+        load();
+        channel = FileChannel.open(spoolFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        log.info("死信暂存初始化完成 | 文件:{} | 待重放数量:{}", spoolFile, pending.size());
+    }
+
+    /**
+     * @desc 记录入库后处理失败的告警
+     * @param record 告警记录
+     * @param stage 失败阶段
+     * @param cause 失败原因
+     */
+    public void record(OriginalAlarmRecord record, String stage, String cause) {
+        DeadLetterEntry entry = newEntry(stage, cause);
+        entry.setTblId(record.getTblId());
+        entry.setAlarmId(record.getId());
+        entry.setImagePath(record.getImagePath());
+        entry.setVideoPath(record.getVideoPath());
+        add(entry);
+    }
+
+    /**
+     * @desc 记录入库前处理失败的原始消息
+     * @param topic
+     * @param partition
+     * @param offset
+     * @param payload 原始消息字节
+     * @param stage 失败阶段
+     * @param cause 失败原因
+     */
+    public void recordRaw(String topic, int partition, long offset, byte[] payload, String stage, String cause) {
+        DeadLetterEntry entry = newEntry(stage, cause);
+        entry.setTopic(topic);
+        entry.setPartition(partition);
+        entry.setOffset(offset);
+        entry.setPayload(payload == null ? null : new String(payload, StandardCharsets.UTF_8));
+        add(entry);
+    }
+
+    /**
+     * @desc 取出已到重放时间的记录，按下次重放时间升序
+     * @param limit 最大数量
+     * @return
+     */
+    public synchronized List<DeadLetterEntry> pollDue(int limit) {
+        long now = System.currentTimeMillis();
+        return pending.values().stream()
+                .filter(entry -> entry.getNextRetryTime() <= now)
+                .sorted(Comparator.comparingLong(DeadLetterEntry::getNextRetryTime))
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @desc 标记重放完成
+     * @param entry
+     * @param remark 完成说明
+     */
+    public synchronized void markDone(DeadLetterEntry entry, String remark) {
+        entry.setStatus(DeadLetterEntry.STATUS_DONE);
+        entry.setCause(truncate(remark));
+        entry.setUpdateTime(System.currentTimeMillis());
+        pending.remove(entry.getId());
+        append(entry);
+    }
+
+    /**
+     * @desc 标记重放失败：按指数退避计算下次重放时间，超过最大次数后放弃
+     * @param entry
+     * @param cause 失败原因
+     */
+    public synchronized void markRetry(DeadLetterEntry entry, String cause) {
+        long now = System.currentTimeMillis();
+        entry.setAttempts(entry.getAttempts() + 1);
+        entry.setCause(truncate(cause));
+        entry.setUpdateTime(now);
+        if (entry.getAttempts() >= deadLetterProperties.getMaxAttempts()) {
+            entry.setStatus(DeadLetterEntry.STATUS_GAVE_UP);
+            pending.remove(entry.getId());
+            log.warn("死信重放超过最大次数，放弃重放 | tblId:{} | alarmId:{} | 阶段:{} | 次数:{}", entry.getTblId(), entry.getAlarmId(), entry.getStage(), entry.getAttempts());
+        } else {
+            entry.setNextRetryTime(now + backoff(entry.getAttempts()));
+        }
+        append(entry);
+    }
+
+    /**
+     * @desc 待重放数量
+     * @return
+     */
+    public synchronized int pendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * @desc 已结束记录占比过高时重写死信文件，仅保留待重放记录
+     */
+    public synchronized void compactIfNeeded() {
+        if (channel == null || lineCount < COMPACT_MIN_LINES || lineCount <= pending.size() * 2) {
+            return;
+        }
+        Path tmpFile = spoolFile.resolveSibling(SPOOL_FILE_NAME + ".tmp");
+        try (FileChannel tmp = FileChannel.open(tmpFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (DeadLetterEntry entry : pending.values()) {
+                write(tmp, entry);
+            }
+            tmp.force(true);
+            channel.close();
+            Files.move(tmpFile, spoolFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel = FileChannel.open(spoolFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            log.info("死信文件压缩完成 | 压缩前行数:{} | 保留数量:{}", lineCount, pending.size());
+            lineCount = pending.size();
+        } catch (IOException e) {
+            log.error("死信文件压缩异常 | 文件:{}", spoolFile, e);
+            try {
+                if (!channel.isOpen()) {
+                    channel = FileChannel.open(spoolFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                }
+            } catch (IOException reopenException) {
+                log.error("死信文件重新打开异常 | 文件:{}", spoolFile, reopenException);
+            }
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("死信文件关闭异常 | 文件:{}", spoolFile, e);
+            }
+        }
+    }
+
+    private DeadLetterEntry newEntry(String stage, String cause) {
+        long now = System.currentTimeMillis();
+        DeadLetterEntry entry = new DeadLetterEntry();
+        entry.setId(UUID.randomUUID().toString().replace("-", ""));
+        entry.setStatus(DeadLetterEntry.STATUS_PENDING);
+        entry.setStage(stage);
+        entry.setCause(truncate(cause));
+        entry.setCreateTime(now);
+        entry.setUpdateTime(now);
+        entry.setNextRetryTime(now + backoff(0));
+        return entry;
+    }
+
+    private synchronized void add(DeadLetterEntry entry) {
+        if (channel == null) {
+            return;
+        }
+        pending.put(entry.getId(), entry);
+        append(entry);
+        log.info("告警记录写入死信暂存 | tblId:{} | alarmId:{} | imagePath:{} | videoPath:{} | 阶段:{} | 原因:{}", entry.getTblId(), entry.getAlarmId(), entry.getImagePath(), entry.getVideoPath(), entry.getStage(), entry.getCause());
+    }
+
+    private void append(DeadLetterEntry entry) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            write(channel, entry);
+            channel.force(false);
+            lineCount++;
+        } catch (IOException e) {
+            log.error("死信写入异常 | tblId:{} | alarmId:{} | 阶段:{}", entry.getTblId(), entry.getAlarmId(), entry.getStage(), e);
+        }
+    }
+
+    private static void write(FileChannel target, DeadLetterEntry entry) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap((JSON.toJSONString(entry) + "\n").getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+    }
+
+    /**
+     * @desc 回放死信文件：同一死信标识以最后一行为准
+     */
+    private void load() throws IOException {
+        if (!Files.exists(spoolFile)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(spoolFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineCount++;
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                try {
+                    DeadLetterEntry entry = JSON.parseObject(line, DeadLetterEntry.class);
+                    if (DeadLetterEntry.STATUS_PENDING.equals(entry.getStatus())) {
+                        pending.put(entry.getId(), entry);
+                    } else {
+                        pending.remove(entry.getId());
+                    }
+                } catch (Exception e) {
+                    log.warn("死信文件存在无法解析的行，已跳过 | 行号:{}", lineCount);
+                }
+            }
+        }
+    }
+
+    private long backoff(int attempts) {
+        long delay = deadLetterProperties.getBaseBackoffMs() << Math.min(attempts, 20);
+        return Math.min(delay, deadLetterProperties.getMaxBackoffMs());
+    }
+
+    private static String truncate(String cause) {
+        if (cause == null || cause.length() <= MAX_CAUSE_LENGTH) {
+            return cause;
+        }
+        return cause.substring(0, MAX_CAUSE_LENGTH);
+    }
+}
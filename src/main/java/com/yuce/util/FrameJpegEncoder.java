@@ -0,0 +1,82 @@
+package com.yuce.util;
+
+import org.bytedeco.javacpp.BytePointer;
+import org.bytedeco.javacpp.IntPointer;
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.OpenCVFrameConverter;
+import org.bytedeco.opencv.opencv_core.Mat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import static org.bytedeco.opencv.global.opencv_imgcodecs.IMWRITE_JPEG_QUALITY;
+import static org.bytedeco.opencv.global.opencv_imgcodecs.imencode;
+
+/**
+ * 抽帧图片JPEG编码：Frame直接转为OpenCV Mat（共享帧像素数据，不复制），由OpenCV原生编码到堆外缓冲区后写入文件，
+ * 不经过BufferedImage及ImageIO，避免每帧分配整幅图像大小的堆内数组
+ * 转换器与编码缓冲区按线程复用（抽帧阶段为固定线程池），缓冲区按历史最大图片扩容后不再重复分配
+ */
+public class FrameJpegEncoder {
+
+    private static final int INITIAL_BUFFER_BYTES = 1 << 20;
+
+    private final int quality;
+    private final ThreadLocal<Encoder> encoders;
+
+    /**
+     * 单线程编码资源
+     */
+    private static class Encoder {
+        private final OpenCVFrameConverter.ToMat converter = new OpenCVFrameConverter.ToMat();
+        private final BytePointer buffer = new BytePointer(INITIAL_BUFFER_BYTES);
+        private final IntPointer params;
+
+        Encoder(int quality) {
+            this.params = new IntPointer(IMWRITE_JPEG_QUALITY, quality);
+        }
+    }
+
+    /**
+     * @param quality JPEG质量（1~100）
+     */
+    public FrameJpegEncoder(int quality) {
+        this.quality = Math.max(1, Math.min(100, quality));
+        this.encoders = ThreadLocal.withInitial(() -> new Encoder(this.quality));
+    }
+
+    public int getQuality() {
+        return quality;
+    }
+
+    /**
+     * @desc 编码并写入文件
+     * @param frame 视频帧
+     * @param file 目标文件
+     * @return 帧不含图像或编码失败时返回false，由调用方降级处理
+     * @throws IOException 文件写入失败
+     */
+    public boolean write(Frame frame, File file) throws IOException {
+        Encoder encoder = encoders.get();
+        Mat mat = encoder.converter.convert(frame);
+        if (mat == null || mat.empty()) {
+            return false;
+        }
+        BytePointer buffer = encoder.buffer;
+        // 编码结果不超过缓冲区容量时原地写入，否则重新分配；重置limit使已扩容的容量可被复用
+        buffer.position(0).limit(buffer.capacity());
+        if (!imencode(".jpg", mat, buffer, encoder.params)) {
+            return false;
+        }
+        ByteBuffer bytes = buffer.asByteBuffer();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        }
+        return true;
+    }
+}
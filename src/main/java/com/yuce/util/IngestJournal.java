@@ -0,0 +1,310 @@
+package com.yuce.util;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * 本地追加写入消息日志（内存映射分段文件）
+ * 拉取线程收到消息后立即追加写入并刷盘，处理线程按自身游标顺序读取，二者互不阻塞：
+ *  1、日志按条目序号寻址，分段文件以段内首条序号命名，写满后滚动到新分段
+ *  2、条目格式：总长度(4) | 消息体CRC32(4) | 分区(4) | 偏移量(8) | 主题长度(2) | 主题 | 消息体，
+ *     总长度最后写入，读取方读到完整长度即表示条目已写完；长度为0表示该分段已结束
+ *  3、处理游标持久化在cursor文件中，游标之前的分段全部处理完成后删除
+ * 约定：append/sync可由多个拉取线程调用，poll/commit仅由单一处理线程调用
+ */
+@Slf4j
+public class IngestJournal {
+
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String CURSOR_FILE = "cursor";
+    private static final int HEADER_BYTES = 22;
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final ConcurrentSkipListMap<Long, Path> segments = new ConcurrentSkipListMap<>(); //段内首条序号 -> 分段文件
+
+    // 写入状态（append/sync同步访问）
+    private MappedByteBuffer writeBuffer;
+    private long writeBase;
+    private long nextSeq;
+    private volatile long publishedSeq; //已完整写入的条目序号上界（不含）
+
+    // 读取状态（仅处理线程访问）
+    private MappedByteBuffer readBuffer;
+    private long readBase;
+    private long readSeq;
+
+    private volatile long committedSeq; //已处理完成的条目序号上界（不含）
+
+    /**
+     * @param dir 日志目录
+     * @param segmentBytes 单分段文件大小
+     * @throws IOException
+     */
+    public IngestJournal(Path dir, int segmentBytes) throws IOException {
+        if (segmentBytes <= HEADER_BYTES) {
+            throw new IllegalArgumentException("日志分段大小过小：" + segmentBytes);
+        }
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(dir);
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .forEach(path -> {
+                        String name = path.getFileName().toString();
+                        segments.put(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())), path);
+                    });
+        }
+
+        Path cursorFile = dir.resolve(CURSOR_FILE);
+        long cursor = Files.exists(cursorFile) ? Long.parseLong(new String(Files.readAllBytes(cursorFile), StandardCharsets.UTF_8).trim()) : 0;
+
+        // 恢复写入位置：扫描最后一个分段，截止到第一条不完整或校验失败的条目
+        if (segments.isEmpty()) {
+            openWriter(cursor);
+        } else {
+            Map.Entry<Long, Path> last = segments.lastEntry();
+            writeBase = last.getKey();
+            writeBuffer = map(last.getValue(), FileChannel.MapMode.READ_WRITE);
+            long count = 0;
+            while (skipEntry(writeBuffer, true)) {
+                count++;
+            }
+            nextSeq = writeBase + count;
+        }
+        publishedSeq = nextSeq;
+
+        // 恢复读取位置：定位到游标所在分段并跳过已处理条目
+        committedSeq = Math.min(Math.max(cursor, segments.firstKey()), nextSeq);
+        openReader(segments.floorKey(committedSeq));
+        while (readSeq < committedSeq) {
+            if (!skipEntry(readBuffer, false)) {
+                openReader(readSeq);
+                continue;
+            }
+            readSeq++;
+        }
+        log.info("本地消息日志初始化完成 | 目录:{} | 分段数:{} | 已处理位置:{} | 写入位置:{}", dir, segments.size(), committedSeq, nextSeq);
+    }
+
+    /**
+     * @desc 追加写入一条消息
+     * @param topic
+     * @param partition
+     * @param offset
+     * @param value 消息体
+     * @return 条目序号
+     * @throws IOException
+     */
+    public synchronized long append(String topic, int partition, long offset, byte[] value) throws IOException {
+        byte[] topicBytes = topic.getBytes(StandardCharsets.UTF_8);
+        byte[] payload = value == null ? new byte[0] : value;
+        int size = HEADER_BYTES + topicBytes.length + payload.length;
+        if (size > segmentBytes) {
+            throw new IllegalArgumentException("消息超过日志分段大小：" + size);
+        }
+        if (writeBuffer.remaining() < size) {
+            if (writeBuffer.remaining() >= 4) {
+                writeBuffer.putInt(writeBuffer.position(), 0); // 分段结束标记，覆盖异常退出时可能残留的半条数据
+            }
+            writeBuffer.force();
+            openWriter(nextSeq);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        int pos = writeBuffer.position();
+        writeBuffer.position(pos + 4);
+        writeBuffer.putInt((int) crc.getValue());
+        writeBuffer.putInt(partition);
+        writeBuffer.putLong(offset);
+        writeBuffer.putShort((short) topicBytes.length);
+        writeBuffer.put(topicBytes);
+        writeBuffer.put(payload);
+        writeBuffer.putInt(pos, size); // 总长度最后写入，读取方据此判断条目完整
+        publishedSeq = ++nextSeq;
+        return nextSeq - 1;
+    }
+
+    /**
+     * @desc 刷盘：将当前分段已写入内容持久化
+     */
+    public synchronized void sync() {
+        writeBuffer.force();
+    }
+
+    /**
+     * @desc 按游标读取已写入的条目
+     * @param max 最大条数
+     * @return 无新条目时返回空列表
+     */
+    public List<JournalEntry> poll(int max) {
+        List<JournalEntry> entries = new ArrayList<>();
+        while (entries.size() < max && readSeq < publishedSeq) {
+            int pos = readBuffer.position();
+            int size = readBuffer.remaining() >= 4 ? readBuffer.getInt(pos) : 0;
+            if (size <= 0) {
+                // 当前分段已结束，下一条位于以当前序号命名的新分段
+                try {
+                    openReader(readSeq);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                continue;
+            }
+            int partition = readBuffer.getInt(pos + 8);
+            long offset = readBuffer.getLong(pos + 12);
+            int topicLength = readBuffer.getShort(pos + 20);
+            byte[] topicBytes = new byte[topicLength];
+            byte[] payload = new byte[size - HEADER_BYTES - topicLength];
+            readBuffer.position(pos + HEADER_BYTES);
+            readBuffer.get(topicBytes);
+            readBuffer.get(payload);
+            entries.add(new JournalEntry(readSeq++, new String(topicBytes, StandardCharsets.UTF_8), partition, offset, payload));
+        }
+        return entries;
+    }
+
+    /**
+     * @desc 持久化处理游标并删除已全部处理完成的分段
+     * @param seq 已处理完成的条目序号上界（不含）
+     * @throws IOException
+     */
+    public void commit(long seq) throws IOException {
+        if (seq <= committedSeq) {
+            return;
+        }
+        Path cursorFile = dir.resolve(CURSOR_FILE);
+        Path tmpFile = dir.resolve(CURSOR_FILE + ".tmp");
+        Files.write(tmpFile, String.valueOf(seq).getBytes(StandardCharsets.UTF_8));
+        Files.move(tmpFile, cursorFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        committedSeq = seq;
+
+        // 下一分段起始序号不大于游标的分段已全部处理完成
+        for (Map.Entry<Long, Path> entry : segments.entrySet()) {
+            Long nextBase = segments.higherKey(entry.getKey());
+            if (nextBase == null || nextBase > seq || entry.getKey() == readBase) {
+                break;
+            }
+            segments.remove(entry.getKey());
+            Files.deleteIfExists(entry.getValue());
+            log.info("本地消息日志分段已处理完成，删除 | 分段:{}", entry.getValue().getFileName());
+        }
+    }
+
+    /**
+     * @desc 已写入未处理完成的条目数量
+     * @return
+     */
+    public long pending() {
+        return publishedSeq - committedSeq;
+    }
+
+    /**
+     * @desc 尚未读取的条目数量
+     * @return
+     */
+    public long unread() {
+        return publishedSeq - readSeq;
+    }
+
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    public synchronized void close() {
+        writeBuffer.force();
+    }
+
+    private void openWriter(long base) throws IOException {
+        Path path = dir.resolve(String.format("%020d%s", base, SEGMENT_SUFFIX));
+        writeBuffer = map(path, FileChannel.MapMode.READ_WRITE);
+        writeBase = base;
+        nextSeq = base;
+        segments.put(base, path);
+    }
+
+    private void openReader(long base) throws IOException {
+        Path path = segments.get(base);
+        if (path == null) {
+            throw new IllegalStateException("本地消息日志分段缺失：" + base);
+        }
+        readBuffer = map(path, FileChannel.MapMode.READ_ONLY);
+        readBase = base;
+        readSeq = base;
+    }
+
+    private MappedByteBuffer map(Path path, FileChannel.MapMode mode) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(mode, 0, segmentBytes);
+        }
+    }
+
+    /**
+     * @desc 跳过一条完整条目
+     * @param buffer
+     * @param verify 是否校验消息体CRC（恢复写入位置时校验，截断未写完的条目）
+     * @return 条目不存在或不完整时返回false，位置保持不变
+     */
+    private static boolean skipEntry(MappedByteBuffer buffer, boolean verify) {
+        int pos = buffer.position();
+        if (buffer.remaining() < HEADER_BYTES) {
+            return false;
+        }
+        int size = buffer.getInt(pos);
+        if (size < HEADER_BYTES || size > buffer.remaining()) {
+            return false;
+        }
+        if (verify) {
+            int topicLength = buffer.getShort(pos + 20);
+            int payloadLength = size - HEADER_BYTES - topicLength;
+            if (topicLength < 0 || payloadLength < 0) {
+                return false;
+            }
+            byte[] payload = new byte[payloadLength];
+            buffer.position(pos + HEADER_BYTES + topicLength);
+            buffer.get(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != buffer.getInt(pos + 4)) {
+                buffer.position(pos);
+                return false;
+            }
+        }
+        buffer.position(pos + size);
+        return true;
+    }
+
+    /**
+     * 日志条目
+     */
+    @Getter
+    public static class JournalEntry {
+        private final long seq;
+        private final String topic;
+        private final int partition;
+        private final long offset;
+        private final byte[] payload;
+
+        JournalEntry(long seq, String topic, int partition, long offset, byte[] payload) {
+            this.seq = seq;
+            this.topic = topic;
+            this.partition = partition;
+            this.offset = offset;
+            this.payload = payload;
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package com.yuce.util;
+
+import com.yuce.config.KafkaProperties;
+import com.yuce.task.EventFetchTask;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * kafka按时间段回放：
+ *  1、独立回放消费组，按offsetsForTimes将各分区定位到起止时间对应的偏移量，不订阅主题、不提交偏移量，不影响在线消费
+ *  2、多个拉取consumer平均分配分区，消息按设备ID分发到回放专用工作线程池处理，各分区到达结束偏移量后自动停止
+ *  3、已存在的告警清理派生结果后重新执行算法处理链路
+ * 同一时间仅允许一个回放任务
+ */
+@Slf4j
+@Component
+public class KafkaReplayUtil {
+
+    @Autowired
+    private KafkaUtil kafkaUtil;
+
+    @Autowired
+    private KafkaProperties kafkaProperties;
+
+    @Autowired
+    private EventFetchTask eventFetchTask;
+
+    private volatile ReplayJob currentJob; //当前（或最近一次）回放任务
+
+    /**
+     * @desc 启动回放
+     * @param startTime 起始时间（含）
+     * @param endTime 结束时间（不含）
+     * @param threads 处理并行度，小于等于0时使用配置值
+     * @return 回放状态
+     */
+    public synchronized Map<String, Object> start(LocalDateTime startTime, LocalDateTime endTime, int threads) {
+        if (currentJob != null && currentJob.running.get()) {
+            throw new IllegalStateException("已有回放任务正在执行");
+        }
+        if (!startTime.isBefore(endTime)) {
+            throw new IllegalArgumentException("起始时间必须早于结束时间");
+        }
+        KafkaProperties.Replay replay = kafkaProperties.getReplay();
+        String groupId = replay.getGroupId() != null ? replay.getGroupId() : kafkaProperties.getConsumer().getGroupId() + "-replay";
+        long startMillis = startTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        long endMillis = endTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+
+        // 定位各分区起止偏移量：结束时间之后无消息的分区以当前最新偏移量为结束位置
+        Map<TopicPartition, long[]> ranges = new LinkedHashMap<>();
+        try (KafkaConsumer<String, byte[]> locator = new KafkaConsumer<>(kafkaUtil.buildConsumerProperties("replay-locator", groupId))) {
+            List<TopicPartition> partitions = new ArrayList<>();
+            for (PartitionInfo info : locator.partitionsFor(kafkaUtil.getTopic())) {
+                partitions.add(new TopicPartition(info.topic(), info.partition()));
+            }
+            Map<TopicPartition, Long> startQuery = new HashMap<>();
+            Map<TopicPartition, Long> endQuery = new HashMap<>();
+            partitions.forEach(tp -> {
+                startQuery.put(tp, startMillis);
+                endQuery.put(tp, endMillis);
+            });
+            Map<TopicPartition, OffsetAndTimestamp> startOffsets = locator.offsetsForTimes(startQuery);
+            Map<TopicPartition, OffsetAndTimestamp> endOffsets = locator.offsetsForTimes(endQuery);
+            Map<TopicPartition, Long> latestOffsets = locator.endOffsets(partitions);
+            for (TopicPartition tp : partitions) {
+                OffsetAndTimestamp from = startOffsets.get(tp);
+                if (from == null) {
+                    continue; // 起始时间之后无消息
+                }
+                OffsetAndTimestamp to = endOffsets.get(tp);
+                long end = to != null ? to.offset() : latestOffsets.getOrDefault(tp, from.offset());
+                if (end > from.offset()) {
+                    ranges.put(tp, new long[]{from.offset(), end});
+                }
+            }
+        }
+
+        int workerThreads = threads > 0 ? threads : replay.getThreads();
+        ReplayJob job = new ReplayJob(startTime, endTime, groupId, workerThreads, ranges);
+        currentJob = job;
+        if (ranges.isEmpty()) {
+            job.running.set(false);
+            job.finishTime = System.currentTimeMillis();
+            log.info("kafka回放时间段内无消息 | 起始时间:{} | 结束时间:{}", startTime, endTime);
+            return job.status();
+        }
+
+        job.workerPool = new KeyedWorkerPool("KafkaReplayWorkerThread", workerThreads, replay.getQueueCapacity());
+        int readers = Math.max(1, Math.min(replay.getReaders(), ranges.size()));
+        List<List<TopicPartition>> assignments = new ArrayList<>();
+        for (int i = 0; i < readers; i++) {
+            assignments.add(new ArrayList<>());
+        }
+        int index = 0;
+        for (TopicPartition tp : ranges.keySet()) {
+            assignments.get(index++ % readers).add(tp);
+        }
+        job.activeReaders.set(readers);
+        for (int i = 0; i < readers; i++) {
+            List<TopicPartition> assignment = assignments.get(i);
+            Thread reader = new Thread(() -> runReader(job, assignment), "KafkaReplayReaderThread-" + i);
+            reader.setDaemon(true);
+            reader.start();
+        }
+        log.info("kafka回放启动 | 起始时间:{} | 结束时间:{} | 消费组:{} | 分区数:{} | 拉取consumer数:{} | 处理并行度:{} | 总消息数:{}",
+                startTime, endTime, groupId, ranges.size(), readers, workerThreads, job.total);
+        return job.status();
+    }
+
+    /**
+     * @desc 停止回放：拉取consumer停止拉取，已分发的消息继续处理完成
+     * @return 是否存在正在执行的回放任务
+     */
+    public boolean stop() {
+        ReplayJob job = currentJob;
+        if (job == null || !job.running.get()) {
+            return false;
+        }
+        job.stopRequested = true;
+        log.info("kafka回放停止请求已提交");
+        return true;
+    }
+
+    /**
+     * @desc 回放进度：已分发、已处理消息数，处理速率及预计剩余时间
+     * @return
+     */
+    public Map<String, Object> status() {
+        ReplayJob job = currentJob;
+        if (job == null) {
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("running", false);
+            return status;
+        }
+        return job.status();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        stop();
+    }
+
+    /**
+     * @desc 拉取consumer：直接指定分区并定位到起始偏移量，逐条分发至结束偏移量后退出
+     * @param job
+     * @param assignment
+     */
+    private void runReader(ReplayJob job, List<TopicPartition> assignment) {
+        String clientId = Thread.currentThread().getName();
+        try (KafkaConsumer<String, byte[]> consumer = new KafkaConsumer<>(kafkaUtil.buildConsumerProperties(clientId, job.groupId))) {
+            consumer.assign(assignment);
+            Set<TopicPartition> remaining = new HashSet<>(assignment);
+            for (TopicPartition tp : assignment) {
+                consumer.seek(tp, job.ranges.get(tp)[0]);
+            }
+
+            while (!remaining.isEmpty() && !job.stopRequested) {
+                ConsumerRecords<String, byte[]> records = consumer.poll(1000);
+                for (TopicPartition tp : records.partitions()) {
+                    long endOffset = job.ranges.get(tp)[1];
+                    for (ConsumerRecord<String, byte[]> record : records.records(tp)) {
+                        if (record.offset() >= endOffset || job.stopRequested) {
+                            break;
+                        }
+                        job.dispatched.incrementAndGet();
+                        String key = eventFetchTask.dispatchKey(record);
+                        job.workerPool.submit(key != null ? key : "partition-" + record.partition(), () -> {
+                            try {
+                                eventFetchTask.replayMessage(record);
+                            } catch (Exception e) {
+                                job.failed.incrementAndGet();
+                                log.error("回放消息处理失败：topic={}, partition={}, offset={}", record.topic(), record.partition(), record.offset(), e);
+                            } finally {
+                                job.processed.incrementAndGet();
+                            }
+                        });
+                    }
+                }
+                // 已到达结束偏移量的分区停止拉取
+                for (Iterator<TopicPartition> it = remaining.iterator(); it.hasNext(); ) {
+                    TopicPartition tp = it.next();
+                    if (consumer.position(tp) >= job.ranges.get(tp)[1]) {
+                        consumer.pause(Collections.singletonList(tp));
+                        it.remove();
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.error("kafka回放拉取异常 | consumer:{}", clientId, e);
+        } finally {
+            if (job.activeReaders.decrementAndGet() == 0) {
+                finish(job);
+            }
+        }
+    }
+
+    /**
+     * @desc 全部拉取consumer退出后等待已分发消息处理完成
+     * @param job
+     */
+    private void finish(ReplayJob job) {
+        job.workerPool.shutdown();
+        try {
+            while (!job.workerPool.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.info("kafka回放等待处理完成 | 已处理:{} | 已分发:{}", job.processed.get(), job.dispatched.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        job.finishTime = System.currentTimeMillis();
+        job.running.set(false);
+        log.info("kafka回放结束 | 起始时间:{} | 结束时间:{} | 已处理:{} | 失败:{} | 总消息数:{} | 是否手动停止:{} | 耗时:{}s",
+                job.startTime, job.endTime, job.processed.get(), job.failed.get(), job.total, job.stopRequested, (job.finishTime - job.launchTime) / 1000);
+    }
+
+    /**
+     * 回放任务运行状态
+     */
+    private static class ReplayJob {
+        private final LocalDateTime startTime;
+        private final LocalDateTime endTime;
+        private final String groupId;
+        private final int threads;
+        private final Map<TopicPartition, long[]> ranges; //分区 -> [起始偏移量, 结束偏移量)
+        private final long total;
+        private final long launchTime = System.currentTimeMillis();
+        private final AtomicBoolean running = new AtomicBoolean(true);
+        private final AtomicLong dispatched = new AtomicLong();
+        private final AtomicLong processed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong activeReaders = new AtomicLong();
+        private volatile KeyedWorkerPool workerPool;
+        private volatile boolean stopRequested;
+        private volatile long finishTime;
+
+        ReplayJob(LocalDateTime startTime, LocalDateTime endTime, String groupId, int threads, Map<TopicPartition, long[]> ranges) {
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.groupId = groupId;
+            this.threads = threads;
+            this.ranges = new ConcurrentHashMap<>(ranges);
+            this.total = ranges.values().stream().mapToLong(range -> range[1] - range[0]).sum();
+        }
+
+        Map<String, Object> status() {
+            long now = finishTime > 0 ? finishTime : System.currentTimeMillis();
+            double elapsedSeconds = Math.max(1, now - launchTime) / 1000.0;
+            long done = processed.get();
+            double rate = done / elapsedSeconds;
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("running", running.get());
+            status.put("stopRequested", stopRequested);
+            status.put("startTime", startTime);
+            status.put("endTime", endTime);
+            status.put("groupId", groupId);
+            status.put("partitions", ranges.size());
+            status.put("threads", threads);
+            status.put("total", total);
+            status.put("dispatched", dispatched.get());
+            status.put("processed", done);
+            status.put("failed", failed.get());
+            status.put("queued", workerPool == null ? 0 : workerPool.queuedCount());
+            status.put("ratePerSecond", Math.round(rate * 100) / 100.0);
+            status.put("elapsedSeconds", (long) elapsedSeconds);
+            status.put("etaSeconds", running.get() && rate > 0 ? (long) ((total - done) / rate) : null);
+            status.put("launchTime", LocalDateTime.ofInstant(Instant.ofEpochMilli(launchTime), ZoneId.systemDefault()));
+            return status;
+        }
+    }
+}
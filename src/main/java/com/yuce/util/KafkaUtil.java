@@ -1,40 +1,257 @@
 package com.yuce.util;
 
+import com.yuce.config.KafkaProperties;
 import com.yuce.handler.MessageHandler;
+import com.yuce.handler.MessageLane;
+import com.yuce.handler.MessageTask;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.*;
+import org.apache.kafka.common.PartitionInfo;
 import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 @Component
 @Slf4j
 public class KafkaUtil {
 
-    private final ConcurrentHashMap<String, KafkaConsumer<String, String>> consumers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, KafkaConsumer<String, byte[]>> consumers = new ConcurrentHashMap<>();
     private final ConcurrentHashMap<String, ExecutorService> consumerExecutors = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, AtomicBoolean> consumerRunning = new ConcurrentHashMap<>(); //各consumer运行标识，置为false后该consumer提交偏移量并退出
+    private final Deque<String> consumerOrder = new ConcurrentLinkedDeque<>(); //consumer启动顺序，缩容时优先停止最新启动的consumer
     private final AtomicInteger consumerCounter = new AtomicInteger(0);
 
     private static final long COMMIT_INTERVAL_MS = 1000;
-    private volatile String groupId = "concurrent-version-video-alarm-169";
-    private volatile String topic = "DATA_COLLECT_VIDEO_ALARM_DETAIL";
-    private volatile String bootstrapServers = "12.1.150.178:9082,12.1.150.179:9082,12.1.150.180:9082,12.1.150.91:9082,12.1.150.92:9082";
-    private volatile Integer maxPollRecords = 60;
+    private static final long WORKER_STOP_TIMEOUT_MS = 5000; //停机时consumer退出后等待工作线程结束的最长时间
+
+    @Autowired
+    private KafkaProperties kafkaProperties;
+
+    @Autowired
+    private DeadLetterSpool deadLetterSpool; //消费失败的原始消息写入死信暂存
+
+    private volatile MessageHandler messageHandler; //消息处理器，扩容时复用
+
+    private KafkaConsumer<String, byte[]> lagConsumer; //消费积压查询专用consumer，不订阅主题
+
+    private volatile KeyedWorkerPool workerPool; //工作线程池（worker.enabled=true时创建），快速通道未开启时处理全部消息
+    private volatile KeyedWorkerPool fastWorkerPool; //快速通道工作线程池（worker.fast-threads>0时创建）
+    private final ConcurrentHashMap<MessageLane, AtomicLong> laneFailed = new ConcurrentHashMap<>(); //各通道处理失败数
+
+    // 各consumer持有分区的偏移量跟踪器及已暂停分区（工作线程池模式使用，供状态查询）
+    private final ConcurrentHashMap<String, Map<TopicPartition, ContiguousOffsetTracker>> consumerTrackers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<TopicPartition>> consumerPaused = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Map<TopicPartition, Deque<PendingTask>>> consumerPending = new ConcurrentHashMap<>(); //各consumer因工作通道已满暂存的待分发任务
+
+    private volatile boolean shuttingDown = false; //停机标识，置位后不再启动或扩容consumer
+
+    private volatile IngestJournal journal; //本地消息日志（journal.enabled=true时创建），拉取与处理解耦
+    private final AtomicBoolean journalRunning = new AtomicBoolean(false);
+    private volatile Thread journalDispatcher; //本地消息日志处理线程
+    private final ContiguousOffsetTracker journalTracker = new ContiguousOffsetTracker(); //日志条目处理完成跟踪，按条目序号提交处理游标
+
+    /**
+     * 工作通道已满时暂存的待分发任务：拉取线程不阻塞等待通道空位，按分区顺序暂存并暂停该分区，下次拉取前重新投递
+     */
+    private static class PendingTask {
+        private final KeyedWorkerPool pool;
+        private final String key;
+        private final Supplier<CompletableFuture<?>> action;
+
+        PendingTask(KeyedWorkerPool pool, String key, Supplier<CompletableFuture<?>> action) {
+            this.pool = pool;
+            this.key = key;
+            this.action = action;
+        }
+
+        boolean trySubmit() {
+            return pool.trySubmitAsync(key, action);
+        }
+    }
 
     /**
      * @desc 启动所有consumers
      * @param consumerCount
      * @param messageHandler
      */
-    public void startConsumers(int consumerCount, MessageHandler messageHandler) {
+    public synchronized void startConsumers(int consumerCount, MessageHandler messageHandler) {
+        if (shuttingDown) {
+            return;
+        }
+        this.messageHandler = messageHandler;
+        initWorkerPool();
+        initJournal(messageHandler);
         for (int i = 0; i < consumerCount; i++) {
             String clientId = "consumer-" + consumerCounter.incrementAndGet();
             startConsumer(clientId, messageHandler);
         }
     }
 
+    /**
+     * @desc 扩容：新增consumer，总数不超过配置上限
+     * @param count 期望新增数量
+     * @return 实际新增数量
+     */
+    public synchronized int scaleUp(int count) {
+        if (messageHandler == null || shuttingDown) {
+            return 0;
+        }
+        int added = Math.max(0, Math.min(count, kafkaProperties.getScaling().getMaxConsumers() - consumerCount()));
+        for (int i = 0; i < added; i++) {
+            startConsumer("consumer-" + consumerCounter.incrementAndGet(), messageHandler);
+        }
+        if (added > 0) {
+            log.info("kafka消费者扩容 | 新增:{} | 当前数量:{}", added, consumerCount());
+        }
+        return added;
+    }
+
+    /**
+     * @desc 缩容：停止最新启动的consumer，总数不低于配置下限；被停止的consumer提交偏移量后退出，分区由组内其余consumer接管
+     * @param count 期望减少数量
+     * @return 实际减少数量
+     */
+    public synchronized int scaleDown(int count) {
+        int removed = Math.max(0, Math.min(count, consumerCount() - kafkaProperties.getScaling().getMinConsumers()));
+        for (int i = 0; i < removed; i++) {
+            String consumerKey = consumerOrder.pollLast();
+            AtomicBoolean running = consumerKey == null ? null : consumerRunning.get(consumerKey);
+            if (running != null) {
+                running.set(false);
+            }
+        }
+        if (removed > 0) {
+            log.info("kafka消费者缩容 | 减少:{} | 当前数量:{}", removed, consumerCount());
+        }
+        return removed;
+    }
+
+    /**
+     * @desc 停机：所有consumer停止拉取，在截止时间内等待在途告警处理完成并提交最终连续完成偏移量后关闭；
+     *       consumer全部退出后关闭工作线程池，仍未完成的告警偏移量未提交，由下次启动重新消费
+     */
+    public void shutdown() {
+        List<ExecutorService> executors;
+        synchronized (this) {
+            if (shuttingDown) {
+                return;
+            }
+            shuttingDown = true;
+            executors = new ArrayList<>(consumerExecutors.values());
+            consumerOrder.clear();
+            consumerRunning.values().forEach(running -> running.set(false));
+        }
+        long drainTimeoutMs = kafkaProperties.getShutdown().getDrainTimeoutMs();
+        log.info("kafka消费者开始停机 | consumer数量:{} | 最长等待:{}ms", executors.size(), drainTimeoutMs);
+
+        // consumer各自在截止时间内排空并提交，额外预留一次拉取及提交的时间
+        long deadline = System.currentTimeMillis() + drainTimeoutMs + WORKER_STOP_TIMEOUT_MS;
+        try {
+            for (ExecutorService executor : executors) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0 || !executor.awaitTermination(remaining, TimeUnit.MILLISECONDS)) {
+                    log.warn("consumer未在截止时间内退出，强制停止");
+                    executor.shutdownNow();
+                }
+            }
+            stopJournalDispatcher(deadline);
+            for (KeyedWorkerPool pool : Arrays.asList(fastWorkerPool, workerPool)) {
+                if (pool == null) {
+                    continue;
+                }
+                pool.shutdown();
+                if (!pool.awaitTermination(WORKER_STOP_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    int dropped = pool.shutdownNow();
+                    log.warn("工作线程池未在截止时间内结束，中断剩余任务 | 丢弃排队任务:{}", dropped);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronized (this) {
+            if (journal != null) {
+                journal.close();
+            }
+            if (lagConsumer != null) {
+                lagConsumer.close();
+                lagConsumer = null;
+            }
+        }
+        log.info("kafka消费者停机完成");
+    }
+
+    /**
+     * @desc 当前运行中的consumer数量（不含正在停止的consumer）
+     * @return
+     */
+    public int consumerCount() {
+        return consumerOrder.size();
+    }
+
+    /**
+     * @desc 查询各分区消费积压：分区最新偏移量 - 消费组已提交偏移量
+     * @return 分区号 -> 积压条数
+     */
+    public synchronized Map<Integer, Long> getPartitionLag() {
+        if (lagConsumer == null) {
+            lagConsumer = new KafkaConsumer<>(buildConsumerProperties("lag-monitor"));
+        }
+        List<TopicPartition> partitions = new ArrayList<>();
+        for (PartitionInfo info : lagConsumer.partitionsFor(getTopic())) {
+            partitions.add(new TopicPartition(info.topic(), info.partition()));
+        }
+        Map<TopicPartition, Long> endOffsets = lagConsumer.endOffsets(partitions);
+        Map<Integer, Long> lag = new TreeMap<>();
+        for (TopicPartition partition : partitions) {
+            OffsetAndMetadata committed = lagConsumer.committed(partition);
+            long end = endOffsets.getOrDefault(partition, 0L);
+            lag.put(partition.partition(), Math.max(0, end - (committed == null ? 0 : committed.offset())));
+        }
+        return lag;
+    }
+
+    /**
+     * @desc 初始化工作线程池：开启后拉取线程只负责分发，消息处理交由按key分片的工作线程执行
+     */
+    private synchronized void initWorkerPool() {
+        KafkaProperties.Worker worker = kafkaProperties.getWorker();
+        if (workerPool == null && worker != null && worker.isEnabled()) {
+            workerPool = new KeyedWorkerPool("KafkaWorkerThread", worker.getThreads(), worker.getQueueCapacity());
+            if (worker.getFastThreads() > 0) {
+                fastWorkerPool = new KeyedWorkerPool("KafkaFastWorkerThread", worker.getFastThreads(), worker.getFastQueueCapacity());
+            }
+        }
+    }
+
+    /**
+     * @desc 初始化本地消息日志并启动日志处理线程：开启后拉取线程只负责写入日志，处理线程按自身游标读取日志处理
+     * @param handler
+     */
+    private synchronized void initJournal(MessageHandler handler) {
+        KafkaProperties.Journal journalConfig = kafkaProperties.getJournal();
+        if (journal != null || journalConfig == null || !journalConfig.isEnabled()) {
+            return;
+        }
+        try {
+            journal = new IngestJournal(Paths.get(journalConfig.getDir()), journalConfig.getSegmentBytes());
+        } catch (IOException e) {
+            log.error("本地消息日志初始化失败，退回直接处理模式 | 目录:{}", journalConfig.getDir(), e);
+            return;
+        }
+        journalRunning.set(true);
+        journalDispatcher = new Thread(() -> runJournalDispatcher(handler), "KafkaJournalDispatchThread");
+        journalDispatcher.start();
+    }
+
     /**
      * @desc 启动单个consumer实例
      * @param clientId
@@ -42,26 +259,46 @@ public class KafkaUtil {
      */
     private void startConsumer(String clientId, MessageHandler messageHandler) {
         Properties props = buildConsumerProperties(clientId);
-        KafkaConsumer<String, String> consumer = new KafkaConsumer<>(props);
-        String consumerKey = groupId + "-" + clientId;
+        KafkaConsumer<String, byte[]> consumer = new KafkaConsumer<>(props);
+        String consumerKey = getGroupId() + "-" + clientId;
+        AtomicBoolean running = new AtomicBoolean(true);
         consumers.put(consumerKey, consumer);
+        consumerRunning.put(consumerKey, running);
+        consumerOrder.addLast(consumerKey);
         ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "KafkaConsumerThread-" + clientId));
         consumerExecutors.put(consumerKey, executor);
-        executor.submit(() -> runConsumer(consumer, consumerKey, messageHandler));
+        executor.submit(() -> runConsumer(consumer, consumerKey, running, messageHandler));
     }
 
     /**
      * @desc 执行consumer消费逻辑
      * @param consumer
      * @param consumerKey
+     * @param running
      * @param handler
      */
-    private void runConsumer(KafkaConsumer<String, String> consumer, String consumerKey, MessageHandler handler) {
+    private void runConsumer(KafkaConsumer<String, byte[]> consumer, String consumerKey, AtomicBoolean running, MessageHandler handler) {
+        // 当前consumer持有分区的偏移量跟踪器及已暂停分区（仅工作线程池模式使用）
+        Map<TopicPartition, ContiguousOffsetTracker> trackers = new ConcurrentHashMap<>();
+        Set<TopicPartition> paused = ConcurrentHashMap.newKeySet();
+        Map<TopicPartition, Deque<PendingTask>> pending = new ConcurrentHashMap<>();
+        consumerTrackers.put(consumerKey, trackers);
+        consumerPaused.put(consumerKey, paused);
+        consumerPending.put(consumerKey, pending);
         try {
-            consumer.subscribe(Collections.singletonList(topic), new ConsumerRebalanceListener() {
+            consumer.subscribe(Collections.singletonList(getTopic()), new ConsumerRebalanceListener() {
                 @Override
                 public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
-                    consumer.commitSync(); // 提交当前偏移量
+                    if (workerPool == null || journal != null) {
+                        consumer.commitSync(); // 提交当前偏移量（日志模式下已拉取消息均已写入本地日志）
+                        return;
+                    }
+                    // 仅提交连续完成的位置，未完成的消息由新的分区持有者重新消费
+                    commitCompleted(consumer, trackers);
+                    partitions.forEach(trackers::remove);
+                    partitions.forEach(pending::remove); // 暂存未分发的消息未提交，由新的分区持有者重新消费
+                    paused.removeAll(partitions); // 重新分配后的分区默认处于未暂停状态
+                    log.info("Revoked partitions: {}", partitions);
                 }
 
                 @Override
@@ -71,10 +308,67 @@ public class KafkaUtil {
             });
 
             waitForAssignment(consumer);
-            consumeMessages(consumer, consumerKey, handler);
+            if (journal != null) {
+                journalMessages(consumer, consumerKey, running);
+            } else if (workerPool == null) {
+                consumeMessages(consumer, consumerKey, running, handler);
+            } else {
+                dispatchMessages(consumer, consumerKey, running, handler, trackers, paused, pending);
+                drainAndCommit(consumer, consumerKey, trackers, pending);
+            }
         } catch (Exception e) {
             log.error("消费者 {} 运行异常", consumerKey, e);
+        } finally {
+            closeConsumer(consumer, consumerKey);
+        }
+    }
+
+    /**
+     * @desc consumer退出前等待自身分区在途消息处理完成并提交偏移量；等待期间暂停全部分区并保持poll以维持组成员关系，
+     *       暂存的待分发任务继续投递
+     * @param consumer
+     * @param consumerKey
+     * @param trackers
+     * @param pending
+     */
+    private void drainAndCommit(KafkaConsumer<String, byte[]> consumer, String consumerKey, Map<TopicPartition, ContiguousOffsetTracker> trackers,
+                                Map<TopicPartition, Deque<PendingTask>> pending) {
+        consumer.pause(consumer.assignment());
+        long deadline = System.currentTimeMillis() + kafkaProperties.getShutdown().getDrainTimeoutMs();
+        while (System.currentTimeMillis() < deadline && trackers.values().stream().anyMatch(t -> t.inFlight() > 0)) {
+            dispatchPending(pending);
+            consumer.poll(100);
+            commitCompleted(consumer, trackers);
+        }
+        commitCompleted(consumer, trackers);
+        int remaining = trackers.values().stream().mapToInt(ContiguousOffsetTracker::inFlight).sum();
+        if (remaining > 0) {
+            log.warn("consumer停止时仍有在途消息未完成，将由分区新持有者或下次启动重新消费 | consumer:{} | 在途数量:{}", consumerKey, remaining);
+        }
+    }
+
+    /**
+     * @desc 关闭consumer并清理运行状态
+     * @param consumer
+     * @param consumerKey
+     */
+    private void closeConsumer(KafkaConsumer<String, byte[]> consumer, String consumerKey) {
+        try {
+            consumer.close();
+        } catch (Exception e) {
+            log.warn("consumer关闭异常 | consumer:{}", consumerKey, e);
         }
+        consumers.remove(consumerKey);
+        consumerRunning.remove(consumerKey);
+        consumerOrder.remove(consumerKey);
+        consumerTrackers.remove(consumerKey);
+        consumerPaused.remove(consumerKey);
+        consumerPending.remove(consumerKey);
+        ExecutorService executor = consumerExecutors.remove(consumerKey);
+        if (executor != null) {
+            executor.shutdown();
+        }
+        log.info("consumer已停止 | consumer:{}", consumerKey);
     }
 
     /**
@@ -82,7 +376,7 @@ public class KafkaUtil {
      * @param consumer
      * @return
      */
-    private Set<TopicPartition> waitForAssignment(KafkaConsumer<String, String> consumer) {
+    private Set<TopicPartition> waitForAssignment(KafkaConsumer<String, byte[]> consumer) {
         Set<TopicPartition> partitions = new HashSet<>();
         int retries = 0;
         while (partitions.isEmpty() && retries++ < 20) {
@@ -92,23 +386,177 @@ public class KafkaUtil {
         return partitions;
     }
 
+    /**
+     * @desc 日志模式拉取逻辑：拉取的消息追加写入本地日志并刷盘后立即提交偏移量；
+     *       日志未处理条目达到上限时暂停拉取，回落后恢复
+     * @param consumer
+     * @param consumerKey
+     * @param running
+     */
+    private void journalMessages(KafkaConsumer<String, byte[]> consumer, String consumerKey, AtomicBoolean running) {
+        long maxBacklog = kafkaProperties.getJournal().getMaxBacklog();
+        boolean paused = false;
+        while (running.get() && !Thread.currentThread().isInterrupted()) {
+            try {
+                if (!paused && journal.pending() >= maxBacklog) {
+                    consumer.pause(consumer.assignment());
+                    paused = true;
+                    log.warn("本地消息日志积压达到上限，暂停拉取 | consumer:{} | 未处理条目:{}", consumerKey, journal.pending());
+                } else if (paused && journal.pending() < maxBacklog / 2) {
+                    consumer.resume(consumer.paused());
+                    paused = false;
+                    log.info("本地消息日志积压回落，恢复拉取 | consumer:{} | 未处理条目:{}", consumerKey, journal.pending());
+                }
+
+                ConsumerRecords<String, byte[]> records = consumer.poll(paused ? 100 : 1000);
+                if (records.isEmpty()) {
+                    continue;
+                }
+                try {
+                    for (ConsumerRecord<String, byte[]> record : records) {
+                        journal.append(record.topic(), record.partition(), record.offset(), record.value());
+                    }
+                    journal.sync();
+                } catch (Exception e) {
+                    // 写入失败不提交，回退到本批起始位置重新拉取（已写入部分可能重复写入日志，由幂等判重兜底）
+                    log.error("本地消息日志写入失败，回退重新拉取 | consumer:{}", consumerKey, e);
+                    for (TopicPartition partition : records.partitions()) {
+                        consumer.seek(partition, records.records(partition).get(0).offset());
+                    }
+                    Thread.sleep(1000);
+                    continue;
+                }
+                consumer.commitSync();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.error("消费拉取异常", e);
+            }
+        }
+        consumer.commitSync();
+    }
+
+    /**
+     * @desc 日志处理逻辑：按游标顺序读取日志条目，批量预处理后分发到工作线程池（未开启时在当前线程处理），
+     *       定时持久化连续处理完成的条目序号作为处理游标
+     * @param handler
+     */
+    private void runJournalDispatcher(MessageHandler handler) {
+        int batchSize = kafkaProperties.getConsumer().getMaxPollRecords();
+        long lastCommitTime = System.currentTimeMillis();
+        while (journalRunning.get()) {
+            try {
+                List<IngestJournal.JournalEntry> entries = journal.poll(batchSize);
+                if (entries.isEmpty()) {
+                    Thread.sleep(100);
+                } else {
+                    dispatchJournalEntries(handler, entries);
+                }
+                if (System.currentTimeMillis() - lastCommitTime > COMMIT_INTERVAL_MS) {
+                    commitJournal();
+                    lastCommitTime = System.currentTimeMillis();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.error("本地消息日志处理异常", e);
+            }
+        }
+        commitJournal();
+    }
+
+    /**
+     * @desc 分发一批日志条目
+     * @param handler
+     * @param entries
+     */
+    private void dispatchJournalEntries(MessageHandler handler, List<IngestJournal.JournalEntry> entries) {
+        Map<TopicPartition, List<ConsumerRecord<String, byte[]>>> recordMap = new HashMap<>();
+        Map<ConsumerRecord<String, byte[]>, Long> seqMap = new IdentityHashMap<>();
+        for (IngestJournal.JournalEntry entry : entries) {
+            ConsumerRecord<String, byte[]> record = new ConsumerRecord<>(entry.getTopic(), entry.getPartition(), entry.getOffset(), null, entry.getPayload());
+            recordMap.computeIfAbsent(new TopicPartition(entry.getTopic(), entry.getPartition()), tp -> new ArrayList<>()).add(record);
+            seqMap.put(record, entry.getSeq());
+            journalTracker.track(entry.getSeq());
+        }
+
+        Set<ConsumerRecord<String, byte[]>> dispatched = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (MessageTask task : prepareTasks(handler, new ConsumerRecords<>(recordMap))) {
+            ConsumerRecord<String, byte[]> record = task.getRecord();
+            long seq = seqMap.get(record);
+            dispatched.add(record);
+            Supplier<CompletableFuture<?>> action = () -> startTask(task, () -> journalTracker.complete(seq));
+            if (workerPool != null) {
+                poolOf(task).submitAsync(resolveDispatchKey(task), action);
+            } else {
+                action.get().join();
+            }
+        }
+        seqMap.forEach((record, seq) -> {
+            if (!dispatched.contains(record)) {
+                journalTracker.complete(seq);
+            }
+        });
+    }
+
+    /**
+     * @desc 持久化日志处理游标
+     */
+    private void commitJournal() {
+        long committable = journalTracker.pollCommittable();
+        if (committable < 0) {
+            return;
+        }
+        try {
+            journal.commit(committable);
+        } catch (IOException e) {
+            log.error("本地消息日志处理游标持久化失败 | 游标:{}", committable, e);
+        }
+    }
+
+    /**
+     * @desc 停止日志处理线程：停止读取新条目，在截止时间内等待已分发条目处理完成并持久化处理游标
+     * @param deadline
+     * @throws InterruptedException
+     */
+    private void stopJournalDispatcher(long deadline) throws InterruptedException {
+        Thread dispatcher = journalDispatcher;
+        if (dispatcher == null) {
+            return;
+        }
+        journalRunning.set(false);
+        dispatcher.join(Math.max(1, deadline - System.currentTimeMillis()));
+        while (journalTracker.inFlight() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+            commitJournal();
+        }
+        commitJournal();
+        if (journalTracker.inFlight() > 0) {
+            log.warn("日志处理停止时仍有在途条目未完成，下次启动从处理游标重新处理 | 在途数量:{}", journalTracker.inFlight());
+        }
+    }
+
     /**
      * @desc 消费处理消息逻辑
      * @param consumer
      * @param consumerKey
+     * @param running
      * @param handler
      */
-    private void consumeMessages(KafkaConsumer<String, String> consumer, String consumerKey, MessageHandler handler) {
+    private void consumeMessages(KafkaConsumer<String, byte[]> consumer, String consumerKey, AtomicBoolean running, MessageHandler handler) {
         long lastCommitTime = System.currentTimeMillis();
 
-        while (!Thread.currentThread().isInterrupted()) {
+        while (running.get() && !Thread.currentThread().isInterrupted()) {
             try {
-                ConsumerRecords<String, String> records = consumer.poll(1000);
-                for (ConsumerRecord<String, String> record : records) {
+                ConsumerRecords<String, byte[]> records = consumer.poll(1000);
+                for (MessageTask task : prepareTasks(handler, records)) {
+                    ConsumerRecord<String, byte[]> record = task.getRecord();
                     try {
-                        handler.handleMessage(record);
+                        task.run();
                     } catch (Exception e) {
                         log.error("消费失败：topic={}, partition={}, offset={}", record.topic(), record.partition(), record.offset(), e);
+                        deadLetterSpool.recordRaw(record.topic(), record.partition(), record.offset(), record.value(), "consume", String.valueOf(e));
                     }
                 }
 
@@ -121,6 +569,285 @@ public class KafkaUtil {
                 log.error("消费拉取异常", e);
             }
         }
+        consumer.commitSync(); // 退出前提交已处理消息的偏移量
+    }
+
+    /**
+     * @desc 分发处理消息逻辑：拉取线程只负责把消息按分发键投递到工作线程池，
+     *       定时提交各分区最大连续完成偏移量，处理乱序完成时不会越过未完成的消息；
+     *       工作通道已满时拉取线程不阻塞，任务按分区暂存并暂停该分区，保证持续poll不触发再均衡
+     * @param consumer
+     * @param consumerKey
+     * @param running
+     * @param handler
+     * @param trackers
+     * @param paused
+     * @param pending
+     */
+    private void dispatchMessages(KafkaConsumer<String, byte[]> consumer, String consumerKey, AtomicBoolean running, MessageHandler handler,
+                                  Map<TopicPartition, ContiguousOffsetTracker> trackers, Set<TopicPartition> paused,
+                                  Map<TopicPartition, Deque<PendingTask>> pending) {
+        long lastCommitTime = System.currentTimeMillis();
+
+        while (running.get() && !Thread.currentThread().isInterrupted()) {
+            try {
+                dispatchPending(pending);
+
+                // 存在暂停分区时缩短拉取等待时间，以便在途消息回落后尽快恢复
+                ConsumerRecords<String, byte[]> records = consumer.poll(paused.isEmpty() ? 1000 : 100);
+                for (ConsumerRecord<String, byte[]> record : records) {
+                    TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+                    trackers.computeIfAbsent(partition, tp -> new ContiguousOffsetTracker()).track(record.offset());
+                }
+
+                // 批量预处理后仅需逐条处理的消息进入工作线程池，其余消息（过滤、重复）直接标记完成
+                Set<ConsumerRecord<String, byte[]>> dispatched = Collections.newSetFromMap(new IdentityHashMap<>());
+                for (MessageTask task : prepareTasks(handler, records)) {
+                    ConsumerRecord<String, byte[]> record = task.getRecord();
+                    ContiguousOffsetTracker tracker = trackers.get(new TopicPartition(record.topic(), record.partition()));
+                    dispatched.add(record);
+                    dispatch(pending, new TopicPartition(record.topic(), record.partition()), new PendingTask(poolOf(task), resolveDispatchKey(task),
+                            () -> startTask(task, () -> tracker.complete(record.offset()))));
+                }
+                for (ConsumerRecord<String, byte[]> record : records) {
+                    if (!dispatched.contains(record)) {
+                        trackers.get(new TopicPartition(record.topic(), record.partition())).complete(record.offset());
+                    }
+                }
+
+                applyBackpressure(consumer, consumerKey, trackers, paused, pending);
+
+                if (System.currentTimeMillis() - lastCommitTime > COMMIT_INTERVAL_MS) {
+                    commitCompleted(consumer, trackers);
+                    lastCommitTime = System.currentTimeMillis();
+                }
+            } catch (Exception e) {
+                log.error("消费拉取异常 | consumer:{}", consumerKey, e);
+            }
+        }
+    }
+
+    /**
+     * @desc 在工作通道线程上启动任务：异步任务启动后即释放通道线程，处理结束时记录失败并标记完成（偏移量跟踪支持乱序完成）
+     * @param task
+     * @param onComplete 处理结束（含失败）时回调
+     * @return 处理结束时完成，不以异常完成
+     */
+    private CompletableFuture<?> startTask(MessageTask task, Runnable onComplete) {
+        ConsumerRecord<String, byte[]> record = task.getRecord();
+        return task.start().handle((result, e) -> {
+            try {
+                if (e != null) {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    laneFailed(task.getLane()).incrementAndGet();
+                    log.error("消费失败：topic={}, partition={}, offset={}", record.topic(), record.partition(), record.offset(), cause);
+                    deadLetterSpool.recordRaw(record.topic(), record.partition(), record.offset(), record.value(), "consume", String.valueOf(cause));
+                }
+            } finally {
+                onComplete.run();
+            }
+            return null;
+        });
+    }
+
+    /**
+     * @desc 投递任务：分区已有暂存任务时追加到暂存队列末尾（保持分区内投递顺序），否则非阻塞投递，通道已满时暂存
+     * @param pending
+     * @param partition
+     * @param task
+     */
+    private void dispatch(Map<TopicPartition, Deque<PendingTask>> pending, TopicPartition partition, PendingTask task) {
+        Deque<PendingTask> queue = pending.get(partition);
+        if ((queue == null || queue.isEmpty()) && task.trySubmit()) {
+            return;
+        }
+        pending.computeIfAbsent(partition, tp -> new ConcurrentLinkedDeque<>()).addLast(task);
+    }
+
+    /**
+     * @desc 按分区顺序重新投递暂存任务，遇到通道仍满的任务即停止该分区本轮投递
+     * @param pending
+     */
+    private void dispatchPending(Map<TopicPartition, Deque<PendingTask>> pending) {
+        Iterator<Map.Entry<TopicPartition, Deque<PendingTask>>> iterator = pending.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Deque<PendingTask> queue = iterator.next().getValue();
+            PendingTask task;
+            while ((task = queue.peekFirst()) != null && task.trySubmit()) {
+                queue.pollFirst();
+            }
+            if (queue.isEmpty()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * @desc 分区背压：存在暂存待分发任务（工作通道已满）或在途消息数达到高水位的分区暂停拉取，
+     *       暂存任务全部投递且在途消息回落到低水位后恢复；
+     *       暂停期间consumer仍持续poll，保持心跳与组成员关系，不会因处理缓慢触发再均衡
+     * @param consumer
+     * @param consumerKey
+     * @param trackers
+     * @param paused
+     * @param pending
+     */
+    private void applyBackpressure(KafkaConsumer<String, byte[]> consumer, String consumerKey,
+                                   Map<TopicPartition, ContiguousOffsetTracker> trackers, Set<TopicPartition> paused,
+                                   Map<TopicPartition, Deque<PendingTask>> pending) {
+        KafkaProperties.Backpressure backpressure = kafkaProperties.getBackpressure();
+        boolean enabled = backpressure != null && backpressure.isEnabled();
+
+        List<TopicPartition> toPause = new ArrayList<>();
+        List<TopicPartition> toResume = new ArrayList<>();
+        trackers.forEach((partition, tracker) -> {
+            boolean blocked = pending.containsKey(partition);
+            int inFlight = tracker.inFlight();
+            if (!paused.contains(partition) && (blocked || enabled && inFlight >= backpressure.getHighWatermark())) {
+                toPause.add(partition);
+            } else if (paused.contains(partition) && !blocked && (!enabled || inFlight <= backpressure.getLowWatermark())) {
+                toResume.add(partition);
+            }
+        });
+
+        if (!toPause.isEmpty()) {
+            consumer.pause(toPause);
+            paused.addAll(toPause);
+            log.info("分区工作通道已满或在途消息达到高水位，暂停拉取 | consumer:{} | 分区:{} | 高水位:{}", consumerKey, toPause, enabled ? backpressure.getHighWatermark() : null);
+        }
+        if (!toResume.isEmpty()) {
+            consumer.resume(toResume);
+            paused.removeAll(toResume);
+            log.info("分区暂存任务已投递且在途消息回落，恢复拉取 | consumer:{} | 分区:{} | 低水位:{}", consumerKey, toResume, enabled ? backpressure.getLowWatermark() : null);
+        }
+    }
+
+    /**
+     * @desc 消费状态：背压水位、各分区在途深度及暂停情况
+     * @return
+     */
+    public Map<String, Object> getConsumerStatus() {
+        KafkaProperties.Backpressure backpressure = kafkaProperties.getBackpressure();
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("consumerCount", consumerCount());
+        status.put("workerEnabled", workerPool != null);
+        status.put("backpressureEnabled", backpressure != null && backpressure.isEnabled());
+        status.put("highWatermark", backpressure == null ? null : backpressure.getHighWatermark());
+        status.put("lowWatermark", backpressure == null ? null : backpressure.getLowWatermark());
+        status.put("workerQueued", workerPool == null ? 0 : workerPool.queuedCount());
+        status.put("workerActive", workerPool == null ? 0 : workerPool.activeCount());
+        status.put("fastLaneEnabled", fastWorkerPool != null);
+        if (workerPool != null) {
+            Map<String, Object> lanes = new LinkedHashMap<>();
+            for (MessageLane lane : MessageLane.values()) {
+                KeyedWorkerPool pool = lane == MessageLane.FAST ? fastWorkerPool : workerPool;
+                if (pool == null) {
+                    continue;
+                }
+                Map<String, Object> laneStats = pool.stats();
+                laneStats.put("failed", laneFailed(lane).get());
+                lanes.put(lane.name(), laneStats);
+            }
+            status.put("lanes", lanes);
+        }
+        status.put("journalEnabled", journal != null);
+        if (journal != null) {
+            status.put("journalPending", journal.pending());
+            status.put("journalUnread", journal.unread());
+            status.put("journalInFlight", journalTracker.inFlight());
+            status.put("journalSegments", journal.segmentCount());
+        }
+
+        int totalInFlight = 0;
+        List<Map<String, Object>> partitions = new ArrayList<>();
+        for (Map.Entry<String, Map<TopicPartition, ContiguousOffsetTracker>> entry : consumerTrackers.entrySet()) {
+            Set<TopicPartition> paused = consumerPaused.getOrDefault(entry.getKey(), Collections.emptySet());
+            Map<TopicPartition, Deque<PendingTask>> pending = consumerPending.getOrDefault(entry.getKey(), Collections.emptyMap());
+            for (Map.Entry<TopicPartition, ContiguousOffsetTracker> partitionEntry : entry.getValue().entrySet()) {
+                ContiguousOffsetTracker tracker = partitionEntry.getValue();
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("consumer", entry.getKey());
+                item.put("partition", partitionEntry.getKey().partition());
+                item.put("inFlight", tracker.inFlight());
+                item.put("uncommitted", tracker.uncommitted());
+                item.put("paused", paused.contains(partitionEntry.getKey()));
+                Deque<PendingTask> pendingTasks = pending.get(partitionEntry.getKey());
+                item.put("pending", pendingTasks == null ? 0 : pendingTasks.size());
+                partitions.add(item);
+                totalInFlight += tracker.inFlight();
+            }
+        }
+        partitions.sort(Comparator.comparingInt(item -> (Integer) item.get("partition")));
+        status.put("totalInFlight", totalInFlight);
+        status.put("partitions", partitions);
+        return status;
+    }
+
+    /**
+     * @desc 提交各分区最大连续完成偏移量
+     * @param consumer
+     * @param trackers
+     */
+    private void commitCompleted(KafkaConsumer<String, byte[]> consumer, Map<TopicPartition, ContiguousOffsetTracker> trackers) {
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        trackers.forEach((partition, tracker) -> {
+            long committable = tracker.pollCommittable();
+            if (committable >= 0) {
+                offsets.put(partition, new OffsetAndMetadata(committable));
+            }
+        });
+        if (!offsets.isEmpty()) {
+            consumer.commitSync(offsets);
+            log.debug("手动提交连续完成偏移量:{}", offsets);
+        }
+    }
+
+    /**
+     * @desc 批量预处理本次拉取的消息，预处理异常时退化为逐条处理
+     * @param handler
+     * @param records
+     * @return
+     */
+    private List<MessageTask> prepareTasks(MessageHandler handler, ConsumerRecords<String, byte[]> records) {
+        if (records.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<ConsumerRecord<String, byte[]>> recordList = new ArrayList<>(records.count());
+        records.forEach(recordList::add);
+        try {
+            return handler.handleBatch(recordList);
+        } catch (Exception e) {
+            log.error("批量预处理异常，退化为逐条处理 | 消息数量:{}", recordList.size(), e);
+            List<MessageTask> tasks = new ArrayList<>(recordList.size());
+            for (ConsumerRecord<String, byte[]> record : recordList) {
+                tasks.add(new MessageTask(record, handler.dispatchKey(record), () -> handler.handleMessage(record)));
+            }
+            return tasks;
+        }
+    }
+
+    /**
+     * @desc 按任务通道选择工作线程池，快速通道未开启时统一使用默认工作线程池
+     * @param task
+     * @return
+     */
+    private KeyedWorkerPool poolOf(MessageTask task) {
+        KeyedWorkerPool fastPool = fastWorkerPool;
+        return task.getLane() == MessageLane.FAST && fastPool != null ? fastPool : workerPool;
+    }
+
+    private AtomicLong laneFailed(MessageLane lane) {
+        return laneFailed.computeIfAbsent(lane, key -> new AtomicLong());
+    }
+
+    /**
+     * @desc 获取任务分发键，缺失时按分区分发以保持分区内顺序
+     * @param task
+     * @return
+     */
+    private String resolveDispatchKey(MessageTask task) {
+        String key = task.getDispatchKey();
+        return key != null ? key : "partition-" + task.getRecord().partition();
     }
 
     /**
@@ -129,19 +856,38 @@ public class KafkaUtil {
      * @return
      */
     private Properties buildConsumerProperties(String clientId) {
+        return buildConsumerProperties(clientId, getGroupId());
+    }
+
+    /**
+     * @desc 指定消费组的consumer属性配置（回放等独立消费组使用）
+     * @param clientId
+     * @param groupId
+     * @return
+     */
+    Properties buildConsumerProperties(String clientId, String groupId) {
+        KafkaProperties.Consumer consumerConfig = kafkaProperties.getConsumer();
         Properties props = new Properties();
-        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, String.join(",", kafkaProperties.getBootstrapServers()));
         props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
         props.put(ConsumerConfig.CLIENT_ID_CONFIG, clientId);
-        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false"); // 手动提交
-        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
-        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, "org.apache.kafka.common.serialization.StringDeserializer");
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, "org.apache.kafka.common.serialization.StringDeserializer");
-        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false"); // 手动提交，偏移量按处理完成位置提交
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, consumerConfig.getAutoOffsetReset());
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, consumerConfig.getKeyDeserializer());
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, "org.apache.kafka.common.serialization.ByteArrayDeserializer"); // 原始字节，由处理方按需解码
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, consumerConfig.getMaxPollRecords());
         props.put(ConsumerConfig.SESSION_TIMEOUT_MS_CONFIG, 30000);     // 30s，避免心跳超时
         props.put(ConsumerConfig.HEARTBEAT_INTERVAL_MS_CONFIG, 10000);  // 10s，建议为 session 的 1/3
         props.put(ConsumerConfig.MAX_POLL_INTERVAL_MS_CONFIG, 600000);  // 5min，防止处理太久被踢出组
         props.put(ConsumerConfig.REQUEST_TIMEOUT_MS_CONFIG, 40000);     // 保证比 session.timeout.ms 更大
         return props;
     }
-}
\ No newline at end of file
+
+    private String getGroupId() {
+        return kafkaProperties.getConsumer().getGroupId();
+    }
+
+    String getTopic() {
+        return kafkaProperties.getTopic().getVideoAlarmDetail();
+    }
+}
@@ -0,0 +1,313 @@
+package com.yuce.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 按键分片的有界工作线程池
+ * 相同key的任务始终落在同一条单线程通道上串行执行（保证同一设备告警的处理顺序），
+ * 不同key的任务在多条通道间并行；通道队列满时提交方阻塞等待，形成天然背压；
+ * 不可阻塞的提交方（如kafka拉取线程）使用trySubmit，通道队列满时由提交方自行暂存；
+ * 异步任务（submitAsync/trySubmitAsync）在通道线程上启动后即释放线程，同key后续任务在前一任务结束后才启动
+ */
+@Slf4j
+public class KeyedWorkerPool {
+
+    private final ThreadPoolExecutor[] lanes;
+    private final int queueCapacity;
+    private final AtomicLong completed = new AtomicLong(); //已执行任务数
+    private final AtomicLong totalWaitNanos = new AtomicLong(); //累计排队耗时
+    private final AtomicLong totalRunNanos = new AtomicLong(); //累计执行耗时
+    private final Map<String, Deque<Supplier<CompletableFuture<?>>>> chains = new HashMap<>(); //有异步任务未结束的key -> 等待前一任务结束的同key任务
+    private int chained; //等待前一任务结束的异步任务数
+    private final ThreadPoolExecutor continuation; //通道队列满时启动同key后续异步任务，避免阻塞完成回调线程
+
+    /**
+     * @param name 线程名前缀
+     * @param threads 通道（线程）数量
+     * @param queueCapacity 单通道队列容量
+     */
+    public KeyedWorkerPool(String name, int threads, int queueCapacity) {
+        if (threads <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("工作线程数量与队列容量必须大于0");
+        }
+        this.lanes = new ThreadPoolExecutor[threads];
+        this.queueCapacity = queueCapacity;
+        for (int i = 0; i < threads; i++) {
+            String threadName = name + "-" + i;
+            ThreadPoolExecutor lane = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(queueCapacity),
+                    r -> new Thread(r, threadName),
+                    (r, executor) -> {
+                        // 队列已满：阻塞提交线程直到有空位
+                        if (executor.isShutdown()) {
+                            throw new RejectedExecutionException("工作通道已关闭：" + threadName);
+                        }
+                        try {
+                            executor.getQueue().put(r);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new RejectedExecutionException("等待工作通道空位时被中断：" + threadName, e);
+                        }
+                    });
+            lane.prestartAllCoreThreads();
+            lanes[i] = lane;
+        }
+        this.continuation = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), r -> new Thread(r, name + "-continue"));
+        log.info("按键分片工作线程池初始化完成 | 名称:{} | 通道数:{} | 单通道队列容量:{}", name, threads, queueCapacity);
+    }
+
+    /**
+     * @desc 按key提交任务，同key任务串行执行
+     * @param key
+     * @param task
+     */
+    public void submit(String key, Runnable task) {
+        lanes[laneIndex(key)].execute(wrap(task));
+    }
+
+    /**
+     * @desc 按key非阻塞提交任务，同key任务串行执行
+     * @param key
+     * @param task
+     * @return 通道队列已满时返回false，任务未提交
+     */
+    public boolean trySubmit(String key, Runnable task) {
+        ThreadPoolExecutor lane = lanes[laneIndex(key)];
+        if (lane.isShutdown()) {
+            throw new RejectedExecutionException("工作通道已关闭");
+        }
+        // 通道线程已预启动，直接入队即可被执行
+        return lane.getQueue().offer(wrap(task));
+    }
+
+    /**
+     * @desc 按key提交异步任务，同key任务在前一任务的future完成后才启动；通道队列满时阻塞等待
+     * @param key
+     * @param task 在通道线程上调用，返回处理结束时完成的future
+     */
+    public void submitAsync(String key, Supplier<CompletableFuture<?>> task) {
+        synchronized (chains) {
+            if (enqueueChained(key, task)) {
+                return;
+            }
+            chains.put(key, new ArrayDeque<>());
+        }
+        try {
+            lanes[laneIndex(key)].execute(wrap(() -> start(key, task)));
+        } catch (RejectedExecutionException e) {
+            release(key);
+            throw e;
+        }
+    }
+
+    /**
+     * @desc 按key非阻塞提交异步任务，同key任务在前一任务的future完成后才启动
+     * @param key
+     * @param task 在通道线程上调用，返回处理结束时完成的future
+     * @return 通道队列已满或等待中的同key任务数达到上限（通道数*单通道队列容量）时返回false，任务未提交
+     */
+    public boolean trySubmitAsync(String key, Supplier<CompletableFuture<?>> task) {
+        ThreadPoolExecutor lane = lanes[laneIndex(key)];
+        if (lane.isShutdown()) {
+            throw new RejectedExecutionException("工作通道已关闭");
+        }
+        synchronized (chains) {
+            if (chains.containsKey(key)) {
+                return chained < lanes.length * queueCapacity && enqueueChained(key, task);
+            }
+            // 先登记key再入队，避免任务在登记前结束
+            chains.put(key, new ArrayDeque<>());
+            if (!lane.getQueue().offer(wrap(() -> start(key, task)))) {
+                chains.remove(key);
+                return false;
+            }
+            return true;
+        }
+    }
+
+    private boolean enqueueChained(String key, Supplier<CompletableFuture<?>> task) {
+        Deque<Supplier<CompletableFuture<?>>> chain = chains.get(key);
+        if (chain == null) {
+            return false;
+        }
+        chain.addLast(task);
+        chained++;
+        return true;
+    }
+
+    /**
+     * @desc 启动异步任务，结束时启动同key的下一个任务
+     */
+    private void start(String key, Supplier<CompletableFuture<?>> task) {
+        CompletableFuture<?> future;
+        try {
+            future = task.get();
+        } catch (Throwable e) {
+            log.error("异步任务启动异常 | key:{}", key, e);
+            future = null;
+        }
+        if (future == null) {
+            next(key);
+        } else {
+            future.whenComplete((result, e) -> next(key));
+        }
+    }
+
+    private void next(String key) {
+        Supplier<CompletableFuture<?>> task;
+        synchronized (chains) {
+            Deque<Supplier<CompletableFuture<?>>> chain = chains.get(key);
+            task = chain == null ? null : chain.pollFirst();
+            if (task == null) {
+                chains.remove(key);
+                return;
+            }
+            chained--;
+        }
+        // 完成回调可能在处理链路的阶段线程上执行，不可阻塞：优先入原通道，队列满时交由续接线程
+        Runnable runnable = wrap(() -> start(key, task));
+        ThreadPoolExecutor lane = lanes[laneIndex(key)];
+        try {
+            if (lane.isShutdown() || !lane.getQueue().offer(runnable)) {
+                continuation.execute(runnable);
+            }
+        } catch (RejectedExecutionException e) {
+            log.warn("工作线程池已关闭，丢弃同key后续任务 | key:{}", key);
+            release(key);
+        }
+    }
+
+    private void release(String key) {
+        synchronized (chains) {
+            Deque<Supplier<CompletableFuture<?>>> chain = chains.remove(key);
+            if (chain != null) {
+                chained -= chain.size();
+            }
+        }
+    }
+
+    private Runnable wrap(Runnable task) {
+        long submitTime = System.nanoTime();
+        return () -> {
+            long start = System.nanoTime();
+            try {
+                task.run();
+            } finally {
+                completed.incrementAndGet();
+                totalWaitNanos.addAndGet(start - submitTime);
+                totalRunNanos.addAndGet(System.nanoTime() - start);
+            }
+        };
+    }
+
+    /**
+     * @desc 排队等待执行的任务总数（含等待同key前一异步任务结束的任务）
+     * @return
+     */
+    public int queuedCount() {
+        int count = continuation.getQueue().size();
+        for (ThreadPoolExecutor lane : lanes) {
+            count += lane.getQueue().size();
+        }
+        synchronized (chains) {
+            return count + chained;
+        }
+    }
+
+    /**
+     * @desc 正在执行的任务数量
+     * @return
+     */
+    public int activeCount() {
+        int count = 0;
+        for (ThreadPoolExecutor lane : lanes) {
+            count += lane.getActiveCount();
+        }
+        return count;
+    }
+
+    public int laneCount() {
+        return lanes.length;
+    }
+
+    /**
+     * @desc 运行状态：通道数、队列容量、排队数、执行中数量、完成数、平均排队耗时、平均执行耗时（异步任务仅计启动耗时）
+     * @return
+     */
+    public Map<String, Object> stats() {
+        long done = completed.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("threads", lanes.length);
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("queued", queuedCount());
+        stats.put("active", activeCount());
+        stats.put("completed", done);
+        stats.put("avgWaitMillis", done == 0 ? 0 : totalWaitNanos.get() / done / 1000000);
+        stats.put("avgMillis", done == 0 ? 0 : totalRunNanos.get() / done / 1000000);
+        return stats;
+    }
+
+    /**
+     * @desc 停止接收新任务，已排队任务继续执行
+     */
+    public void shutdown() {
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.shutdown();
+        }
+        continuation.shutdown();
+    }
+
+    /**
+     * @desc 立即停止：中断正在执行的任务并丢弃已排队任务
+     * @return 被丢弃的任务数量
+     */
+    public int shutdownNow() {
+        int dropped = 0;
+        for (ThreadPoolExecutor lane : lanes) {
+            dropped += lane.shutdownNow().size();
+        }
+        dropped += continuation.shutdownNow().size();
+        synchronized (chains) {
+            dropped += chained;
+            chains.clear();
+            chained = 0;
+        }
+        return dropped;
+    }
+
+    /**
+     * @desc 等待所有通道执行完毕
+     * @param timeout
+     * @param unit
+     * @return 是否在超时前全部结束
+     * @throws InterruptedException
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (ThreadPoolExecutor lane : lanes) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || !lane.awaitTermination(remaining, TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        long remaining = deadline - System.nanoTime();
+        return remaining > 0 && continuation.awaitTermination(remaining, TimeUnit.NANOSECONDS);
+    }
+
+    private int laneIndex(String key) {
+        if (key == null) {
+            return 0;
+        }
+        return (key.hashCode() & 0x7fffffff) % lanes.length;
+    }
+}
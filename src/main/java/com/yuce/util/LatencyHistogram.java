@@ -0,0 +1,94 @@
+package com.yuce.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 无锁耗时直方图：按毫秒对数分桶（每个2的幂区间再细分4档）计数，用于排队耗时、告警时延等分位数统计
+ * 分位数取所在分桶上界，相对误差不超过25%；记录为常数时间，适合在处理热路径上调用
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKETS = 4; //每个2的幂区间细分档数
+    private static final int MAX_POWER = 40; //上限约2^40毫秒，超出计入最后一档
+
+    private final AtomicLongArray buckets = new AtomicLongArray(MAX_POWER * SUB_BUCKETS + 1);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @desc 记录一次耗时
+     * @param millis 毫秒，负数按0记录
+     */
+    public void record(long millis) {
+        long value = Math.max(0, millis);
+        buckets.incrementAndGet(bucketOf(value));
+        count.incrementAndGet();
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            // 并发更新最大值，失败重试
+        }
+    }
+
+    /**
+     * @desc 分位数
+     * @param percentile 0~100
+     * @return 毫秒，无记录时返回0
+     */
+    public long percentile(double percentile) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            seen += buckets.get(i);
+            if (seen >= Math.max(rank, 1)) {
+                return Math.min(upperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * @desc 常用分位数：count、p50、p90、p99、max
+     * @return
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("count", count.get());
+        snapshot.put("p50", percentile(50));
+        snapshot.put("p90", percentile(90));
+        snapshot.put("p99", percentile(99));
+        snapshot.put("max", max.get());
+        return snapshot;
+    }
+
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int power = 63 - Long.numberOfLeadingZeros(value); // value所在区间[2^power, 2^(power+1))
+        if (power >= MAX_POWER) {
+            return MAX_POWER * SUB_BUCKETS;
+        }
+        int sub = (int) ((value - (1L << power)) >> (power - 2)); // 区间内四等分，power>=2
+        return power * SUB_BUCKETS + sub - 4;
+    }
+
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        if (bucket >= MAX_POWER * SUB_BUCKETS) {
+            return Long.MAX_VALUE;
+        }
+        int index = bucket + 4;
+        int power = index / SUB_BUCKETS;
+        int sub = index % SUB_BUCKETS;
+        return (1L << power) + ((long) (sub + 1) << (power - 2)) - 1;
+    }
+}
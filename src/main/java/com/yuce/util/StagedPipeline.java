@@ -0,0 +1,320 @@
+package com.yuce.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 分阶段（SEDA）处理引擎
+ * 每个阶段拥有独立命名的有界队列与线程池，阶段处理完成后返回下一阶段名称显式流转，返回null表示处理结束；
+ * 下游队列已满时上游线程阻塞等待，形成逐级背压，吞吐由实际瓶颈阶段决定而非各阶段耗时之和
+ * 约定：阶段流转不得成环，否则在队列满时可能相互等待
+ * 阶段可指定优先级比较器，积压时按优先级出队（如新告警优先），未指定时先进先出
+ * 阶段前可设置闸门（如按键公平调度），流转到闸门的对象由闸门决定何时进入下一阶段，闸门排队不占用阶段线程
+ * @param <T> 流转对象
+ */
+@Slf4j
+public class StagedPipeline<T> {
+
+    /**
+     * 阶段处理逻辑
+     */
+    @FunctionalInterface
+    public interface StageHandler<T> {
+        /**
+         * @param item 流转对象
+         * @return 下一阶段名称，返回null表示处理结束
+         * @throws Exception 异常时流转结束，结果以异常完成
+         */
+        String handle(T item) throws Exception;
+    }
+
+    /**
+     * 阶段闸门：决定流转对象何时进入下一阶段
+     */
+    @FunctionalInterface
+    public interface Gate<T> {
+        /**
+         * @param item 流转对象
+         * @param admit 放行动作，执行后对象进入下一阶段（下一阶段队列满时阻塞执行线程）
+         */
+        void offer(T item, Runnable admit);
+    }
+
+    private final String name;
+    private final Map<String, Stage<T>> stages = new LinkedHashMap<>();
+    private final Map<String, GateRoute<T>> gates = new ConcurrentHashMap<>();
+
+    private static class GateRoute<T> {
+        private final Gate<T> gate;
+        private final String nextStage;
+
+        GateRoute(Gate<T> gate, String nextStage) {
+            this.gate = gate;
+            this.nextStage = nextStage;
+        }
+    }
+
+    /**
+     * @param name 引擎名称，用作线程名前缀
+     */
+    public StagedPipeline(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @desc 注册阶段
+     * @param stageName 阶段名称
+     * @param threads 阶段线程数
+     * @param queueCapacity 阶段队列容量
+     * @param handler 阶段处理逻辑
+     * @return
+     */
+    public synchronized StagedPipeline<T> stage(String stageName, int threads, int queueCapacity, StageHandler<T> handler) {
+        return stage(stageName, threads, queueCapacity, null, handler);
+    }
+
+    /**
+     * @desc 注册按优先级出队的阶段
+     * @param stageName 阶段名称
+     * @param threads 阶段线程数
+     * @param queueCapacity 阶段队列容量
+     * @param priority 优先级比较器，排序靠前的先执行，同优先级先进先出；为null时先进先出
+     * @param handler 阶段处理逻辑
+     * @return
+     */
+    public synchronized StagedPipeline<T> stage(String stageName, int threads, int queueCapacity, Comparator<? super T> priority, StageHandler<T> handler) {
+        if (stages.containsKey(stageName) || gates.containsKey(stageName)) {
+            throw new IllegalArgumentException("阶段重复注册：" + stageName);
+        }
+        if (threads <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("阶段线程数与队列容量必须大于0：" + stageName);
+        }
+        stages.put(stageName, new Stage<>(name + "-" + stageName, threads, queueCapacity, priority, handler));
+        log.info("处理阶段注册完成 | 引擎:{} | 阶段:{} | 线程数:{} | 队列容量:{} | 优先级出队:{}", name, stageName, threads, queueCapacity, priority != null);
+        return this;
+    }
+
+    /**
+     * @desc 注册闸门：流转到闸门名称的对象由闸门放行后进入下一阶段
+     * @param gateName 闸门名称，不可与阶段重名
+     * @param nextStage 放行后进入的阶段
+     * @param gate 闸门逻辑
+     * @return
+     */
+    public synchronized StagedPipeline<T> gate(String gateName, String nextStage, Gate<T> gate) {
+        if (stages.containsKey(gateName) || gates.containsKey(gateName)) {
+            throw new IllegalArgumentException("闸门名称重复：" + gateName);
+        }
+        gates.put(gateName, new GateRoute<>(gate, nextStage));
+        log.info("处理闸门注册完成 | 引擎:{} | 闸门:{} | 下一阶段:{}", name, gateName, nextStage);
+        return this;
+    }
+
+    /**
+     * @desc 从指定阶段开始处理，起始阶段队列已满时阻塞等待
+     * @param firstStage 起始阶段名称
+     * @param item 流转对象
+     * @return 处理结束（或异常）时完成
+     */
+    public CompletableFuture<T> submit(String firstStage, T item) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        enqueue(firstStage, item, future);
+        return future;
+    }
+
+    /**
+     * @desc 各阶段运行状态：排队数、执行中数量、完成数、异常数、平均耗时
+     * @return 阶段名称 -> 状态
+     */
+    public Map<String, Map<String, Object>> stats() {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        stages.forEach((stageName, stage) -> result.put(stageName, stage.stats()));
+        return result;
+    }
+
+    /**
+     * @desc 阶段排队数
+     * @param stageName 阶段名称
+     * @return 阶段不存在时返回0
+     */
+    public int queued(String stageName) {
+        Stage<T> stage = stages.get(stageName);
+        return stage == null ? 0 : stage.executor.getQueue().size();
+    }
+
+    /**
+     * @desc 停止接收新任务，已排队任务继续执行
+     */
+    public void shutdown() {
+        stages.values().forEach(stage -> stage.executor.shutdown());
+    }
+
+    private void enqueue(String stageName, T item, CompletableFuture<T> future) {
+        GateRoute<T> route = gates.get(stageName);
+        if (route != null) {
+            try {
+                route.gate.offer(item, () -> enqueue(route.nextStage, item, future));
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+            return;
+        }
+        Stage<T> stage = stages.get(stageName);
+        if (stage == null) {
+            future.completeExceptionally(new IllegalStateException("处理阶段不存在：" + stageName));
+            return;
+        }
+        try {
+            stage.execute(new StageTask<>(item, stage.sequence.incrementAndGet(), () -> run(stage, item, future)));
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    private void run(Stage<T> stage, T item, CompletableFuture<T> future) {
+        long start = System.nanoTime();
+        String next;
+        try {
+            next = stage.handler.handle(item);
+        } catch (Throwable e) {
+            stage.failed.incrementAndGet();
+            stage.record(start);
+            future.completeExceptionally(e);
+            return;
+        }
+        stage.record(start);
+        if (next == null) {
+            future.complete(item);
+        } else {
+            enqueue(next, item, future);
+        }
+    }
+
+    /**
+     * 阶段任务：携带流转对象、入队序号及入队时间，用于优先级排序及排队耗时统计
+     */
+    private static class StageTask<T> implements Runnable {
+        private final T item;
+        private final long sequence;
+        private final long enqueueNanos = System.nanoTime();
+        private final Runnable action;
+        private Stage<T> stage;
+
+        StageTask(T item, long sequence, Runnable action) {
+            this.item = item;
+            this.sequence = sequence;
+            this.action = action;
+        }
+
+        @Override
+        public void run() {
+            stage.started(this);
+            action.run();
+        }
+    }
+
+    /**
+     * 单个处理阶段
+     */
+    private static class Stage<T> {
+        private final ThreadPoolExecutor executor;
+        private final StageHandler<T> handler;
+        private final int threads;
+        private final int queueCapacity;
+        private final Semaphore queuePermits; //优先级阶段的有界排队许可（优先级队列本身无界）
+        private final AtomicLong sequence = new AtomicLong();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final LatencyHistogram waitMillis = new LatencyHistogram(); //排队耗时分布
+
+        @SuppressWarnings("unchecked")
+        Stage(String threadPrefix, int threads, int queueCapacity, Comparator<? super T> priority, StageHandler<T> handler) {
+            AtomicInteger counter = new AtomicInteger(0);
+            this.threads = threads;
+            this.queueCapacity = queueCapacity;
+            this.handler = handler;
+            BlockingQueue<Runnable> queue;
+            if (priority == null) {
+                this.queuePermits = null;
+                queue = new ArrayBlockingQueue<>(queueCapacity);
+            } else {
+                this.queuePermits = new Semaphore(queueCapacity);
+                Comparator<StageTask<T>> taskOrder = Comparator.<StageTask<T>, T>comparing(task -> task.item, priority)
+                        .thenComparingLong(task -> task.sequence);
+                queue = new PriorityBlockingQueue<>(queueCapacity, (a, b) -> taskOrder.compare((StageTask<T>) a, (StageTask<T>) b));
+            }
+            this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    queue,
+                    r -> new Thread(r, threadPrefix + "-" + counter.incrementAndGet()),
+                    (r, pool) -> {
+                        // 队列已满：阻塞提交线程直到有空位
+                        if (pool.isShutdown()) {
+                            throw new RejectedExecutionException("处理阶段已关闭：" + threadPrefix);
+                        }
+                        try {
+                            pool.getQueue().put(r);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new RejectedExecutionException("等待处理阶段空位时被中断：" + threadPrefix, e);
+                        }
+                    });
+        }
+
+        /**
+         * @desc 提交任务：优先级阶段先获取排队许可，许可用尽时阻塞等待，形成与有界队列一致的背压
+         */
+        void execute(StageTask<T> task) {
+            task.stage = this;
+            if (queuePermits != null) {
+                try {
+                    queuePermits.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RejectedExecutionException("等待处理阶段空位时被中断", e);
+                }
+            }
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                if (queuePermits != null) {
+                    queuePermits.release();
+                }
+                throw e;
+            }
+        }
+
+        void started(StageTask<T> task) {
+            if (queuePermits != null) {
+                queuePermits.release();
+            }
+            waitMillis.record((System.nanoTime() - task.enqueueNanos) / 1000000);
+        }
+
+        void record(long start) {
+            completed.incrementAndGet();
+            totalNanos.addAndGet(System.nanoTime() - start);
+        }
+
+        Map<String, Object> stats() {
+            long done = completed.get();
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("threads", threads);
+            stats.put("queueCapacity", queueCapacity);
+            stats.put("queued", executor.getQueue().size());
+            stats.put("active", executor.getActiveCount());
+            stats.put("completed", done);
+            stats.put("failed", failed.get());
+            stats.put("avgMillis", done == 0 ? 0 : totalNanos.get() / done / 1000000);
+            stats.put("priority", queuePermits != null);
+            stats.put("waitMillis", waitMillis.snapshot());
+            return stats;
+        }
+    }
+}
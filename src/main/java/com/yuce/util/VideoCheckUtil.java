@@ -50,6 +50,18 @@ public class VideoCheckUtil {
      */
     public static boolean checkVideoMetaData(FFmpegFrameGrabber grabber, OriginalAlarmRecord record, String alarmId)
             throws FFmpegFrameGrabber.Exception {
+        return checkVideoValid(grabber, record, alarmId) && checkContainerMetaData(grabber, record, alarmId);
+    }
+
+    /**
+     * 基于已打开容器的信息校验视频元数据（格式、编码、分辨率、时长、帧数），不解码视频帧；
+     * 空视频由后续抽帧阶段的抽帧数量校验发现
+     * @param grabber FFmpeg帧抓取器（已初始化）
+     * @param record 原始告警记录（包含事件类型等上下文）
+     * @param alarmId 告警ID（用于日志追踪）
+     * @return 校验通过返回true，否则false
+     */
+    public static boolean checkContainerMetaData(FFmpegFrameGrabber grabber, OriginalAlarmRecord record, String alarmId) {
         // 1. 提取视频元数据（统一处理空值）
         String format = Optional.ofNullable(grabber.getFormat()).orElse("").toLowerCase();
         String codec = Optional.ofNullable(grabber.getVideoCodecName()).orElse("").toLowerCase();
@@ -64,8 +76,7 @@ public class VideoCheckUtil {
                 alarmId, format, codec, width, height, durationSec, totalFrames, eventType);
 
         // 3. 执行各项校验（短路逻辑：一项失败则整体失败）
-        return checkVideoValid(grabber, record, alarmId)
-                && isDurationSupported(eventType, durationSec, alarmId, record)
+        return isDurationSupported(eventType, durationSec, alarmId, record)
                 && isFormatSupported(format, alarmId, record)
                 && isCodecSupported(codec, alarmId, record)
                 && isResolutionSupported(width, height, alarmId, record)
@@ -0,0 +1,377 @@
+package com.yuce.util;
+
+import com.yuce.config.VideoProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * 本地视频缓存：远程视频完整下载到videoBaseDir后，连通性校验、元数据读取及抽帧均读取本地文件，
+ * 重复处理、回放及补抽帧不再访问网络
+ *  同一videoPath并发请求共享一次下载；按最近访问时间淘汰，超过保留时长或总容量上限时删除最久未访问的文件
+ *  文件名为videoPath的摘要，访问时刷新文件修改时间，重启后按修改时间恢复访问顺序
+ *  获取到的文件以租约形式持有，租约释放（视频会话关闭）前不会被淘汰；超过容量上限的单个视频不缓存，直接读取远程地址
+ */
+@Slf4j
+@Component
+public class VideoFileCache {
+
+    private static final String TEMP_SUFFIX = ".part";
+    private static final long TRANSFER_CHUNK_BYTES = 8L << 20;
+
+    @Autowired
+    private VideoProperties videoProperties;
+
+    private Path cacheDir;
+    private final Map<String, CacheEntry> entries = new ConcurrentHashMap<>(); //文件名 -> 缓存记录
+    private final Map<String, CompletableFuture<Path>> downloading = new ConcurrentHashMap<>(); //videoPath -> 下载中任务
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong downloadCount = new AtomicLong();
+    private final AtomicLong sharedCount = new AtomicLong(); //等待其他线程下载结果的次数
+    private final AtomicLong evictCount = new AtomicLong();
+    private final AtomicLong oversizedCount = new AtomicLong(); //超过容量上限未缓存的次数
+
+    private static class CacheEntry {
+        private final Path path;
+        private final long size;
+        private volatile long lastAccess;
+        private final AtomicInteger pins = new AtomicInteger(); //未释放的租约数，大于0时不淘汰
+
+        CacheEntry(Path path, long size, long lastAccess) {
+            this.path = path;
+            this.size = size;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    /**
+     * 缓存文件租约：持有期间文件不会被淘汰，使用结束后必须关闭，重复关闭无副作用
+     */
+    public final class Lease implements AutoCloseable {
+        private final CacheEntry entry;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Lease(CacheEntry entry) {
+            this.entry = entry;
+        }
+
+        public Path getPath() {
+            return entry.path;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                release(entry);
+            }
+        }
+    }
+
+    /**
+     * 单个视频超过缓存容量上限，不缓存
+     */
+    private static class OversizedException extends IOException {
+        OversizedException(long size) {
+            super("视频大小超过缓存容量上限：" + size + "字节");
+        }
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        VideoProperties.Cache cache = videoProperties.getCache();
+        if (!cache.isEnabled()) {
+            return;
+        }
+        cacheDir = Paths.get(videoProperties.getVideoBaseDir());
+        Files.createDirectories(cacheDir);
+        try (Stream<Path> files = Files.list(cacheDir)) {
+            files.filter(Files::isRegularFile).forEach(this::restore);
+        }
+        evict();
+        log.info("本地视频缓存初始化完成 | 目录:{} | 文件数:{} | 占用:{}MB | 容量上限:{}MB | 保留时长:{}小时", cacheDir, entries.size(), totalBytes.get() >> 20, cache.getMaxBytes() >> 20, cache.getMaxAgeHours());
+    }
+
+    private void restore(Path file) {
+        try {
+            if (file.getFileName().toString().endsWith(TEMP_SUFFIX)) {
+                Files.deleteIfExists(file); // 上次下载中断的残留文件
+                return;
+            }
+            long size = Files.size(file);
+            entries.put(file.getFileName().toString(), new CacheEntry(file, size, Files.getLastModifiedTime(file).toMillis()));
+            totalBytes.addAndGet(size);
+        } catch (IOException e) {
+            log.warn("本地视频缓存文件恢复失败 | 文件:{} | 异常:{}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * @desc 是否使用本地缓存：仅缓存http(s)视频
+     * @param url
+     * @return
+     */
+    public boolean supports(String url) {
+        return cacheDir != null && url != null && (url.startsWith("http://") || url.startsWith("https://"));
+    }
+
+    /**
+     * @desc 获取视频本地文件租约，未缓存时下载；同一videoPath并发请求共享一次下载
+     * @param videoPath 原始视频地址（缓存key）
+     * @param encodedUrl 已编码的下载地址
+     * @return 本地文件租约，使用结束后关闭；视频超过缓存容量上限时返回null，由调用方直接读取远程地址
+     * @throws IOException 下载失败
+     */
+    public Lease fetch(String videoPath, String encodedUrl) throws IOException {
+        String fileName = fileNameOf(videoPath, encodedUrl);
+        while (true) {
+            Lease lease = pin(fileName);
+            if (lease != null) {
+                hitCount.incrementAndGet();
+                return lease;
+            }
+            CompletableFuture<Path> download = new CompletableFuture<>();
+            CompletableFuture<Path> existing = downloading.putIfAbsent(videoPath, download);
+            if (existing != null) {
+                sharedCount.incrementAndGet();
+                if (await(existing, videoPath) == null) {
+                    return null;
+                }
+                continue; // 下载完成后重新获取租约，期间被淘汰时重新下载
+            }
+            try {
+                lease = pin(fileName); // 获得下载权前其他线程可能刚完成下载
+                if (lease == null) {
+                    lease = download(fileName, encodedUrl);
+                }
+                download.complete(lease == null ? null : lease.getPath());
+                return lease;
+            } catch (IOException | RuntimeException e) {
+                download.completeExceptionally(e);
+                throw e;
+            } finally {
+                downloading.remove(videoPath, download);
+            }
+        }
+    }
+
+    /**
+     * @desc 对已缓存文件加租约，与淘汰互斥，加租约后文件不会被删除
+     * @return 未缓存时返回null
+     */
+    private synchronized Lease pin(String fileName) {
+        CacheEntry entry = entries.get(fileName);
+        if (entry == null || !Files.exists(entry.path)) {
+            return null;
+        }
+        entry.pins.incrementAndGet();
+        touch(entry);
+        return new Lease(entry);
+    }
+
+    private void release(CacheEntry entry) {
+        if (entry.pins.decrementAndGet() == 0 && totalBytes.get() > videoProperties.getCache().getMaxBytes()) {
+            evict(); // 租约期间暂缓淘汰的容量在释放后回收
+        }
+    }
+
+    private Path await(CompletableFuture<Path> download, String videoPath) throws IOException {
+        try {
+            return download.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("等待视频下载被中断：" + videoPath, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(String.valueOf(cause), cause);
+        }
+    }
+
+    /**
+     * @desc 下载到临时文件后原子重命名，未下载完整的文件不会被读取；下载完成即持有租约，淘汰不会删除刚下载的文件
+     * @return 文件租约，视频超过缓存容量上限时返回null
+     */
+    private Lease download(String fileName, String encodedUrl) throws IOException {
+        VideoProperties.Cache cache = videoProperties.getCache();
+        Path target = cacheDir.resolve(fileName);
+        Path temp = cacheDir.resolve(fileName + TEMP_SUFFIX + "-" + Thread.currentThread().getId());
+        long start = System.currentTimeMillis();
+        Lease lease;
+        HttpURLConnection conn = (HttpURLConnection) new URL(encodedUrl).openConnection();
+        conn.setConnectTimeout(cache.getConnectTimeoutMs());
+        conn.setReadTimeout(cache.getReadTimeoutMs());
+        try {
+            int code = conn.getResponseCode();
+            if (code != HttpURLConnection.HTTP_OK) {
+                throw new IOException("视频下载失败，响应码：" + code);
+            }
+            long expected = conn.getContentLengthLong();
+            if (expected > cache.getMaxBytes()) {
+                throw new OversizedException(expected);
+            }
+            long size = 0;
+            try (InputStream input = conn.getInputStream();
+                 ReadableByteChannel source = Channels.newChannel(input);
+                 FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                long transferred;
+                while ((transferred = channel.transferFrom(source, size, TRANSFER_CHUNK_BYTES)) > 0) {
+                    size += transferred;
+                    if (size > cache.getMaxBytes()) {
+                        throw new OversizedException(size);
+                    }
+                }
+            }
+            if (expected >= 0 && size != expected) {
+                throw new IOException("视频下载不完整，期望:" + expected + "字节，实际:" + size + "字节");
+            }
+            CacheEntry entry = new CacheEntry(target, size, System.currentTimeMillis());
+            entry.pins.incrementAndGet();
+            synchronized (this) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                CacheEntry previous = entries.put(fileName, entry);
+                totalBytes.addAndGet(previous == null ? size : size - previous.size);
+            }
+            downloadCount.incrementAndGet();
+            log.info("视频下载完成 | url:{} | 大小:{}KB | 耗时:{}ms", encodedUrl, size >> 10, System.currentTimeMillis() - start);
+            lease = new Lease(entry);
+        } catch (OversizedException e) {
+            oversizedCount.incrementAndGet();
+            log.info("视频超过缓存容量上限，直接读取远程地址 | url:{} | {}", encodedUrl, e.getMessage());
+            return null;
+        } finally {
+            conn.disconnect();
+            Files.deleteIfExists(temp);
+        }
+        if (totalBytes.get() > cache.getMaxBytes()) {
+            evict();
+        }
+        return lease;
+    }
+
+    private void touch(CacheEntry entry) {
+        long now = System.currentTimeMillis();
+        entry.lastAccess = now;
+        try {
+            Files.setLastModifiedTime(entry.path, FileTime.fromMillis(now));
+        } catch (IOException e) {
+            log.debug("本地视频缓存访问时间更新失败 | 文件:{} | 异常:{}", entry.path, e.getMessage());
+        }
+    }
+
+    /**
+     * @desc 定时淘汰过期文件
+     */
+    @Scheduled(initialDelayString = "${video.cache.clean-interval-ms:60000}", fixedDelayString = "${video.cache.clean-interval-ms:60000}")
+    public void scheduledEvict() {
+        if (cacheDir != null) {
+            evict();
+        }
+    }
+
+    /**
+     * @desc 淘汰：删除超过保留时长的文件，总容量仍超过上限时按最近访问时间从旧到新删除；
+     *       持有租约的文件跳过，释放后再淘汰
+     * @return 删除文件数
+     */
+    public synchronized int evict() {
+        VideoProperties.Cache cache = videoProperties.getCache();
+        long expireBefore = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(cache.getMaxAgeHours());
+        List<Map.Entry<String, CacheEntry>> ordered = new ArrayList<>(entries.entrySet());
+        ordered.sort(Comparator.comparingLong(item -> item.getValue().lastAccess));
+        int removed = 0;
+        for (Map.Entry<String, CacheEntry> item : ordered) {
+            CacheEntry entry = item.getValue();
+            if (entry.lastAccess >= expireBefore && totalBytes.get() <= cache.getMaxBytes()) {
+                break;
+            }
+            if (entry.pins.get() > 0) {
+                continue;
+            }
+            if (entries.remove(item.getKey(), entry)) {
+                totalBytes.addAndGet(-entry.size);
+                try {
+                    Files.deleteIfExists(entry.path);
+                } catch (IOException e) {
+                    log.warn("本地视频缓存文件删除失败 | 文件:{} | 异常:{}", entry.path, e.getMessage());
+                }
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            evictCount.addAndGet(removed);
+            log.info("本地视频缓存淘汰完成 | 删除文件数:{} | 剩余文件数:{} | 占用:{}MB", removed, entries.size(), totalBytes.get() >> 20);
+        }
+        return removed;
+    }
+
+    /**
+     * @desc 缓存状态：文件数、占用、持有租约文件数、命中、下载、共享下载、淘汰、超限未缓存次数
+     * @return
+     */
+    public Map<String, Object> stats() {
+        VideoProperties.Cache cache = videoProperties.getCache();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", cacheDir != null);
+        stats.put("dir", cacheDir == null ? null : cacheDir.toString());
+        stats.put("files", entries.size());
+        stats.put("bytes", totalBytes.get());
+        stats.put("pinned", entries.values().stream().filter(entry -> entry.pins.get() > 0).count());
+        stats.put("maxBytes", cache.getMaxBytes());
+        stats.put("maxAgeHours", cache.getMaxAgeHours());
+        stats.put("downloading", downloading.size());
+        stats.put("hits", hitCount.get());
+        stats.put("downloads", downloadCount.get());
+        stats.put("shared", sharedCount.get());
+        stats.put("evicted", evictCount.get());
+        stats.put("oversized", oversizedCount.get());
+        return stats;
+    }
+
+    /**
+     * @desc 缓存文件名：videoPath的SHA-1摘要，保留原扩展名便于FFmpeg识别格式
+     */
+    private static String fileNameOf(String videoPath, String encodedUrl) {
+        String path = encodedUrl;
+        int query = path.indexOf('?');
+        if (query >= 0) {
+            path = path.substring(0, query);
+        }
+        String name = path.substring(path.lastIndexOf('/') + 1);
+        int dot = name.lastIndexOf('.');
+        String extension = dot >= 0 && name.length() - dot <= 6 ? name.substring(dot).toLowerCase() : ".video";
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(videoPath.getBytes(StandardCharsets.UTF_8));
+            StringBuilder builder = new StringBuilder(digest.length * 2 + extension.length());
+            for (byte b : digest) {
+                builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return builder.append(extension).toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.yuce.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 单条告警的视频会话：视频只建立一次连接，连通性校验、元数据校验及抽帧复用同一个已打开的FFmpegFrameGrabber，
+ * 避免重复的网络握手与FFmpeg初始化；会话不可并发使用，可在阶段间按顺序传递，使用结束后必须关闭
+ * 在阶段队列中等待的会话为"暂存"状态，暂存数量全局受限，防止积压时大量连接、解码器同时被占用
+ */
+@Slf4j
+public class VideoSession implements AutoCloseable {
+
+    private static final AtomicInteger PARKED = new AtomicInteger(); //当前暂存的会话数
+
+    private final String url;
+    private final FFmpegFrameGrabber grabber;
+    private final AutoCloseable resource; //随会话关闭释放的关联资源（如本地缓存文件租约），可为null
+    private volatile boolean closed;
+    private boolean parked;
+    private long parkedNanos;
+
+    private VideoSession(String url, FFmpegFrameGrabber grabber, AutoCloseable resource) {
+        this.url = url;
+        this.grabber = grabber;
+        this.resource = resource;
+    }
+
+    /**
+     * @desc 打开视频会话：建立连接并读取容器信息，失败时释放已分配的资源
+     * @param url 已编码的视频地址
+     * @return
+     * @throws FFmpegFrameGrabber.Exception 连接或读取容器信息失败
+     */
+    public static VideoSession open(String url) throws FFmpegFrameGrabber.Exception {
+        return open(url, 0);
+    }
+
+    /**
+     * @desc 打开视频会话并指定解码线程数
+     * @param url 已编码的视频地址
+     * @param decodeThreads FFmpeg解码线程数，小于等于0时由FFmpeg自动决定
+     * @return
+     * @throws FFmpegFrameGrabber.Exception 连接或读取容器信息失败
+     */
+    public static VideoSession open(String url, int decodeThreads) throws FFmpegFrameGrabber.Exception {
+        return open(url, decodeThreads, null);
+    }
+
+    /**
+     * @desc 打开视频会话并关联随会话关闭释放的资源；打开失败时资源由调用方释放
+     * @param url 已编码的视频地址或本地文件路径
+     * @param decodeThreads FFmpeg解码线程数，小于等于0时由FFmpeg自动决定
+     * @param resource 关联资源，可为null
+     * @return
+     * @throws FFmpegFrameGrabber.Exception 连接或读取容器信息失败
+     */
+    public static VideoSession open(String url, int decodeThreads, AutoCloseable resource) throws FFmpegFrameGrabber.Exception {
+        FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(url);
+        configure(grabber);
+        if (decodeThreads > 0) {
+            grabber.setVideoOption("threads", String.valueOf(decodeThreads));
+        }
+        try {
+            grabber.start();
+        } catch (FFmpegFrameGrabber.Exception | RuntimeException e) {
+            try {
+                grabber.close();
+            } catch (Exception closeException) {
+                log.debug("视频会话打开失败后释放资源异常 | url:{} | 异常:{}", url, closeException.getMessage());
+            }
+            throw e;
+        }
+        return new VideoSession(url, grabber, resource);
+    }
+
+    /**
+     * @desc 已打开的帧抓取器
+     * @return
+     */
+    public FFmpegFrameGrabber getGrabber() {
+        if (closed) {
+            throw new IllegalStateException("视频会话已关闭：" + url);
+        }
+        return grabber;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * @desc 暂存会话（等待下一阶段使用），暂存数量已达上限时不暂存
+     * @param maxParked 全局暂存上限
+     * @return 是否暂存成功，失败时调用方应关闭会话
+     */
+    public synchronized boolean park(int maxParked) {
+        if (closed || parked) {
+            return parked;
+        }
+        if (PARKED.incrementAndGet() > maxParked) {
+            PARKED.decrementAndGet();
+            return false;
+        }
+        parked = true;
+        parkedNanos = System.nanoTime();
+        return true;
+    }
+
+    /**
+     * @desc 结束暂存
+     * @return 暂存时长（毫秒），未暂存时返回0
+     */
+    public synchronized long unpark() {
+        if (!parked) {
+            return 0;
+        }
+        parked = false;
+        PARKED.decrementAndGet();
+        return (System.nanoTime() - parkedNanos) / 1000000;
+    }
+
+    /**
+     * @desc 当前暂存的会话数
+     * @return
+     */
+    public static int parkedCount() {
+        return PARKED.get();
+    }
+
+    /**
+     * @desc 关闭会话，重复关闭无副作用
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        unpark();
+        closed = true;
+        try {
+            grabber.stop();
+            grabber.release();
+        } catch (Exception e) {
+            log.warn("视频会话关闭异常 | url:{} | 异常:{}", url, e.getMessage());
+        }
+        if (resource != null) {
+            try {
+                resource.close();
+            } catch (Exception e) {
+                log.warn("视频会话关联资源释放异常 | url:{} | 异常:{}", url, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @desc grabber配置：连接超时5秒，断线重连（会话跨阶段传递时连接可能被服务端回收）
+     * @param grabber
+     */
+    private static void configure(FFmpegFrameGrabber grabber) {
+        grabber.setOption("timeout", "5000000");
+        grabber.setOption("reconnect", "1");
+        grabber.setOption("reconnect_streamed", "1");
+        grabber.setOption("fflags", "nobuffer");
+    }
+}
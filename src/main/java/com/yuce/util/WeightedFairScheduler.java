@@ -0,0 +1,243 @@
+package com.yuce.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntFunction;
+
+/**
+ * 按键加权公平调度器（步长调度，近似加权公平排队）
+ * 各key独立排队，调度线程每次从未达到在途上限的key中选择累计步长最小者放行，放行后步长按 STRIDE/权重 递增，
+ * 长期放行比例与权重成正比；空闲后重新活跃的key步长追平当前虚拟时间，不能凭空闲期积累额度
+ * 放行动作在独立调度线程中执行，下游队列满时仅阻塞调度线程，不占用上游处理线程
+ * @param <T> 排队对象
+ */
+@Slf4j
+public class WeightedFairScheduler<T> {
+
+    private static final long STRIDE = 1L << 20;
+
+    private final String name;
+    private final int maxInFlight; //全局在途上限
+    private final ToIntFunction<String> weightOf; //key -> 权重
+    private final ToIntFunction<String> maxInFlightOf; //key -> 单key在途上限
+    private final Comparator<? super T> order; //key内出队顺序，为null时先进先出
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Map<String, KeyState<T>> keys = new ConcurrentHashMap<>();
+    private final Thread dispatcher;
+    private int inFlight;
+    private long virtualTime; //最近一次放行key的步长
+    private long sequence;
+    private volatile boolean running = true;
+
+    private static class Entry<T> {
+        private final T item;
+        private final Runnable admit;
+        private final long sequence;
+        private final long enqueueNanos = System.nanoTime();
+
+        Entry(T item, Runnable admit, long sequence) {
+            this.item = item;
+            this.admit = admit;
+            this.sequence = sequence;
+        }
+    }
+
+    private static class KeyState<T> {
+        private final int weight;
+        private final int maxInFlight;
+        private final PriorityQueue<Entry<T>> waiting;
+        private int inFlight;
+        private long pass;
+        private long admitted;
+        private final LatencyHistogram waitMillis = new LatencyHistogram();
+
+        KeyState(int weight, int maxInFlight, Comparator<? super T> order) {
+            this.weight = Math.max(1, weight);
+            this.maxInFlight = Math.max(1, maxInFlight);
+            Comparator<Entry<T>> sequenceOrder = Comparator.comparingLong(entry -> entry.sequence);
+            this.waiting = new PriorityQueue<>(order == null ? sequenceOrder
+                    : Comparator.<Entry<T>, T>comparing(entry -> entry.item, order).thenComparing(sequenceOrder));
+        }
+
+        boolean eligible() {
+            return !waiting.isEmpty() && inFlight < maxInFlight;
+        }
+    }
+
+    /**
+     * @param name 调度器名称，用作线程名
+     * @param maxInFlight 全局在途上限
+     * @param weightOf key -> 权重
+     * @param maxInFlightOf key -> 单key在途上限
+     * @param order key内出队顺序，为null时先进先出
+     */
+    public WeightedFairScheduler(String name, int maxInFlight, ToIntFunction<String> weightOf, ToIntFunction<String> maxInFlightOf, Comparator<? super T> order) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("全局在途上限必须大于0：" + name);
+        }
+        this.name = name;
+        this.maxInFlight = maxInFlight;
+        this.weightOf = weightOf;
+        this.maxInFlightOf = maxInFlightOf;
+        this.order = order;
+        this.dispatcher = new Thread(this::dispatch, name + "-dispatcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+        log.info("加权公平调度器启动 | 名称:{} | 全局在途上限:{}", name, maxInFlight);
+    }
+
+    /**
+     * @desc 按key排队，轮到时在调度线程中执行放行动作；已停止时直接放行
+     * @param key
+     * @param item
+     * @param admit 放行动作，执行后占用一个在途额度，处理结束后须调用complete释放
+     */
+    public void submit(String key, T item, Runnable admit) {
+        lock.lock();
+        try {
+            if (running) {
+                KeyState<T> state = keys.computeIfAbsent(key, k -> new KeyState<>(weightOf.applyAsInt(k), maxInFlightOf.applyAsInt(k), order));
+                if (state.waiting.isEmpty() && state.inFlight == 0) {
+                    state.pass = Math.max(state.pass, virtualTime); // 重新活跃，追平虚拟时间
+                }
+                state.waiting.add(new Entry<>(item, admit, ++sequence));
+                changed.signal();
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        admit.run();
+    }
+
+    /**
+     * @desc 放行对象处理结束，释放在途额度
+     * @param key
+     */
+    public void complete(String key) {
+        lock.lock();
+        try {
+            KeyState<T> state = keys.get(key);
+            if (state != null && state.inFlight > 0) {
+                state.inFlight--;
+                inFlight--;
+                changed.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @desc 停止调度：排队中的对象全部放行（下游已关闭时由下游拒绝），之后提交的对象直接放行
+     */
+    public void shutdown() {
+        List<Entry<T>> pending = new ArrayList<>();
+        lock.lock();
+        try {
+            running = false;
+            for (KeyState<T> state : keys.values()) {
+                pending.addAll(state.waiting);
+                state.waiting.clear();
+            }
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        dispatcher.interrupt();
+        pending.forEach(entry -> entry.admit.run());
+    }
+
+    /**
+     * @desc 排队等待放行的对象总数
+     * @return
+     */
+    public int waitingCount() {
+        lock.lock();
+        try {
+            int waiting = 0;
+            for (KeyState<T> state : keys.values()) {
+                waiting += state.waiting.size();
+            }
+            return waiting;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @desc 运行状态：全局在途数及各key权重、在途上限、排队数、在途数、累计放行数、排队耗时分位数
+     * @return
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        Map<String, Object> keyStats = new TreeMap<>();
+        lock.lock();
+        try {
+            stats.put("maxInFlight", maxInFlight);
+            stats.put("inFlight", inFlight);
+            int waiting = 0;
+            for (Map.Entry<String, KeyState<T>> entry : keys.entrySet()) {
+                KeyState<T> state = entry.getValue();
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("weight", state.weight);
+                item.put("maxInFlight", state.maxInFlight);
+                item.put("waiting", state.waiting.size());
+                item.put("inFlight", state.inFlight);
+                item.put("admitted", state.admitted);
+                item.put("waitMillis", state.waitMillis.snapshot());
+                keyStats.put(entry.getKey(), item);
+                waiting += state.waiting.size();
+            }
+            stats.put("waiting", waiting);
+        } finally {
+            lock.unlock();
+        }
+        stats.put("keys", keyStats);
+        return stats;
+    }
+
+    private void dispatch() {
+        while (running) {
+            Entry<T> next;
+            lock.lock();
+            try {
+                KeyState<T> selected = null;
+                if (inFlight < maxInFlight) {
+                    for (KeyState<T> state : keys.values()) {
+                        if (state.eligible() && (selected == null || state.pass < selected.pass)) {
+                            selected = state;
+                        }
+                    }
+                }
+                if (selected == null) {
+                    changed.await();
+                    continue;
+                }
+                next = selected.waiting.poll();
+                selected.inFlight++;
+                selected.admitted++;
+                inFlight++;
+                virtualTime = selected.pass;
+                selected.pass += STRIDE / selected.weight;
+                selected.waitMillis.record((System.nanoTime() - next.enqueueNanos) / 1000000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                next.admit.run();
+            } catch (Exception e) {
+                log.error("加权公平调度放行异常 | 名称:{}", name, e);
+            }
+        }
+    }
+}
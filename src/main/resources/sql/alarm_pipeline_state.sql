@@ -0,0 +1,11 @@
+CREATE TABLE `alarm_pipeline_state` (
+ `tbl_id` bigint(20) NOT NULL COMMENT '告警记录唯一标识',
+ `stage_mask` int(11) NOT NULL DEFAULT '0' COMMENT '已完成阶段位掩码',
+ `stage_times` json DEFAULT NULL COMMENT '各阶段完成时间（JSON对象，阶段名称 -> 时间）',
+ `last_stage` varchar(32) DEFAULT NULL COMMENT '最近执行的阶段',
+ `last_error_stage` varchar(32) DEFAULT NULL COMMENT '最近失败的阶段',
+ `last_error` varchar(500) DEFAULT NULL COMMENT '最近失败原因',
+ `create_time` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '记录创建时间',
+ `update_time` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '记录更新时间',
+ PRIMARY KEY (`tbl_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8 COMMENT='告警处理阶段状态表'
@@ -0,0 +1,17 @@
+CREATE TABLE `alarm_pre_filter_rule` (
+ `id` int(11) NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+ `rule_name` varchar(64) NOT NULL COMMENT '规则名称',
+ `companies` varchar(255) DEFAULT NULL COMMENT '匹配厂商，多个以逗号分隔，为空时不限',
+ `event_types` varchar(255) DEFAULT NULL COMMENT '匹配事件类型，多个以逗号分隔，为空时不限',
+ `road_ids` varchar(1000) DEFAULT NULL COMMENT '匹配路段ID，多个以逗号分隔，为空时不限',
+ `device_ids` varchar(2000) DEFAULT NULL COMMENT '匹配设备ID，多个以逗号分隔，为空时不限',
+ `start_time` varchar(5) DEFAULT NULL COMMENT '告警时段开始（HH:mm，含），为空时不限',
+ `end_time` varchar(5) DEFAULT NULL COMMENT '告警时段结束（HH:mm，不含），早于开始时间时跨天',
+ `check_flag` tinyint(4) NOT NULL COMMENT '命中后的初检结果：0-无法判断，1-正检，2-误检',
+ `reason` varchar(255) DEFAULT NULL COMMENT '命中原因，写入初检结果',
+ `priority` int(11) NOT NULL DEFAULT '0' COMMENT '优先级，数值小的先匹配',
+ `enabled` tinyint(4) NOT NULL DEFAULT '1' COMMENT '是否启用：0-停用，1-启用',
+ `create_time` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+ `modify_time` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+ PRIMARY KEY (`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8 COMMENT='告警预筛选规则表'